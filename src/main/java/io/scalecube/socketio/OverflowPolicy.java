@@ -0,0 +1,40 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio;
+
+/**
+ * Defines what happens when outbound queue of the polling session exceeds its limits.
+ */
+public enum OverflowPolicy {
+
+  /**
+   * Oldest queued packets are dropped until new packet fits.
+   */
+  DROP_OLDEST,
+
+  /**
+   * New packet is dropped.
+   */
+  DROP_NEWEST,
+
+  /**
+   * All queued messages are dropped in favour of the new one, so client receives only the latest message.
+   */
+  COALESCE,
+
+  /**
+   * Queued packets are dropped and session is disconnected.
+   */
+  DISCONNECT
+
+}
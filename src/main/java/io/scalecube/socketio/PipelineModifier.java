@@ -17,6 +17,13 @@ import io.netty.channel.ChannelPipeline;
 /**
  * Interface which makes changes to the channel pipeline.
  * It is invoked from {@link io.scalecube.socketio.pipeline.SocketIOChannelInitializer#initChannel(io.netty.channel.Channel)}
+ * <p>
+ * Handshake, disconnect and polling requests are handled by single request router which is registered under
+ * {@link io.scalecube.socketio.pipeline.SocketIOChannelInitializer#SOCKETIO_HANDSHAKE_HANDLER} name, so handlers
+ * which should see requests before Socket.IO (e.g. authentication or CORS) are added before it. Disconnect,
+ * XHR-Polling and JSONP-Polling handlers aren't present in the pipeline, their deprecated names can't be used
+ * as anchors. WebSocket and Flash socket handlers are added only when channel is upgraded, so handlers which are
+ * placed relative to them are added by {@link UpgradePipelineModifier}.
  */
 public interface PipelineModifier {
 
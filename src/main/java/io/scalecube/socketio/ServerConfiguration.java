@@ -12,20 +12,21 @@
  */
 package io.scalecube.socketio;
 
+import java.util.concurrent.Executor;
+
 import javax.net.ssl.SSLContext;
 
 import io.netty.handler.ssl.ClientAuth;
 import io.netty.handler.ssl.JdkSslContext;
 import io.netty.handler.ssl.SslContext;
+import io.scalecube.socketio.metrics.SocketIOMetrics;
+import io.scalecube.socketio.serialization.PacketEncoder;
 
 /**
  * Class represents different options of socket.io server
  */
 public final class ServerConfiguration {
 
-  // Default configuration
-  public static final ServerConfiguration DEFAULT = builder().build();
-
   // Default settings
   public static final int DEFAULT_PORT = 8080;
   public static final int DEFAULT_HEARTBEAT_TIMEOUT = 60;
@@ -41,6 +42,29 @@ public final class ServerConfiguration {
   public static final boolean DEFAULT_EPOLL_ENABLED = true;
   public static final boolean DEFAULT_HTTP_COMPRESSION_ENABLED = false;
   public static final boolean DEFAULT_WEBSOCKET_COMPRESSION_ENABLED = false;
+  public static final boolean DEFAULT_SHARDED_SESSION_STORAGE_ENABLED = false;
+  public static final boolean DEFAULT_HEARTBEAT_SWEEPER_ENABLED = false;
+  public static final boolean DEFAULT_ZERO_COPY_DECODING_ENABLED = false;
+  public static final int DEFAULT_COMPOSITE_BUFFER_THRESHOLD = PacketEncoder.DEFAULT_COMPOSITE_THRESHOLD;
+  public static final int DEFAULT_POLLING_QUEUE_MAX_SIZE = 0;
+  public static final long DEFAULT_POLLING_QUEUE_MAX_BYTES = 0;
+  public static final OverflowPolicy DEFAULT_POLLING_QUEUE_OVERFLOW_POLICY = OverflowPolicy.DROP_OLDEST;
+  public static final boolean DEFAULT_SESSION_AFFINITY_ENABLED = false;
+  public static final Executor DEFAULT_LISTENER_EXECUTOR = null;
+  public static final boolean DEFAULT_LISTENER_ORDERING_ENABLED = true;
+  public static final boolean DEFAULT_FLUSH_COALESCING_ENABLED = false;
+  public static final int DEFAULT_FLUSH_COALESCING_MAX_MESSAGES = 64;
+  public static final int DEFAULT_FLUSH_COALESCING_MAX_BYTES = 65536;
+  public static final boolean DEFAULT_SEND_LATENCY_TRACKING_ENABLED = false;
+  public static final SocketIOMetrics DEFAULT_METRICS = null;
+  public static final int DEFAULT_REPLAY_BUFFER_SIZE = 0;
+  public static final String DEFAULT_SESSION_SNAPSHOT_FILE = null;
+  public static final int DEFAULT_DRAIN_WINDOW = 0;
+  public static final boolean DEFAULT_BINARY_WEB_SOCKET_ENABLED = false;
+  public static final int DEFAULT_REPLAY_GRACE_PERIOD = 10;
+
+  // Default configuration
+  public static final ServerConfiguration DEFAULT = builder().build();
 
   private final int port;
   private final int heartbeatTimeout;
@@ -56,6 +80,26 @@ public final class ServerConfiguration {
   private final boolean epollEnabled;
   private final boolean httpCompressionEnabled;
   private final boolean websocketCompressionEnabled;
+  private final boolean shardedSessionStorageEnabled;
+  private final boolean heartbeatSweeperEnabled;
+  private final boolean zeroCopyDecodingEnabled;
+  private final int compositeBufferThreshold;
+  private final int pollingQueueMaxSize;
+  private final long pollingQueueMaxBytes;
+  private final OverflowPolicy pollingQueueOverflowPolicy;
+  private final boolean sessionAffinityEnabled;
+  private final Executor listenerExecutor;
+  private final boolean listenerOrderingEnabled;
+  private final boolean flushCoalescingEnabled;
+  private final int flushCoalescingMaxMessages;
+  private final int flushCoalescingMaxBytes;
+  private final boolean sendLatencyTrackingEnabled;
+  private final SocketIOMetrics metrics;
+  private final int replayBufferSize;
+  private final String sessionSnapshotFile;
+  private final int drainWindow;
+  private final boolean binaryWebSocketEnabled;
+  private final int replayGracePeriod;
 
   /**
    * Private constructor. Use {@link ServerConfiguration.Builder} to build configuration.
@@ -75,6 +119,26 @@ public final class ServerConfiguration {
     this.epollEnabled = builder.epollEnabled;
     this.httpCompressionEnabled = builder.httpCompressionEnabled;
     this.websocketCompressionEnabled = builder.websocketCompressionEnabled;
+    this.shardedSessionStorageEnabled = builder.shardedSessionStorageEnabled;
+    this.heartbeatSweeperEnabled = builder.heartbeatSweeperEnabled;
+    this.zeroCopyDecodingEnabled = builder.zeroCopyDecodingEnabled;
+    this.compositeBufferThreshold = builder.compositeBufferThreshold;
+    this.pollingQueueMaxSize = builder.pollingQueueMaxSize;
+    this.pollingQueueMaxBytes = builder.pollingQueueMaxBytes;
+    this.pollingQueueOverflowPolicy = builder.pollingQueueOverflowPolicy;
+    this.sessionAffinityEnabled = builder.sessionAffinityEnabled;
+    this.listenerExecutor = builder.listenerExecutor;
+    this.listenerOrderingEnabled = builder.listenerOrderingEnabled;
+    this.flushCoalescingEnabled = builder.flushCoalescingEnabled;
+    this.flushCoalescingMaxMessages = builder.flushCoalescingMaxMessages;
+    this.flushCoalescingMaxBytes = builder.flushCoalescingMaxBytes;
+    this.sendLatencyTrackingEnabled = builder.sendLatencyTrackingEnabled;
+    this.metrics = builder.metrics;
+    this.replayBufferSize = builder.replayBufferSize;
+    this.sessionSnapshotFile = builder.sessionSnapshotFile;
+    this.drainWindow = builder.drainWindow;
+    this.binaryWebSocketEnabled = builder.binaryWebSocketEnabled;
+    this.replayGracePeriod = builder.replayGracePeriod;
   }
 
   public static Builder builder() {
@@ -195,6 +259,169 @@ public final class ServerConfiguration {
     return websocketCompressionEnabled;
   }
 
+  /**
+   * Flag which defines if sessions are stored in lock striped open-addressing hash tables keyed by
+   * session id encoded as two longs instead of single concurrent map keyed by session id string. It reduces
+   * memory footprint and lookup cost when server holds a lot of sessions. Default is false.
+   */
+  public boolean isShardedSessionStorageEnabled() {
+    return shardedSessionStorageEnabled;
+  }
+
+  /**
+   * Flag which defines if heartbeats and heartbeat timeouts of all sessions are handled by single time wheel
+   * sweeper instead of scheduling separate timeouts for each session.
+   */
+  public boolean isHeartbeatSweeperEnabled() {
+    return heartbeatSweeperEnabled;
+  }
+
+  /**
+   * Flag which defines if received messages are passed to listener as retained slices of received frames
+   * instead of copies.
+   */
+  public boolean isZeroCopyDecodingEnabled() {
+    return zeroCopyDecodingEnabled;
+  }
+
+  /**
+   * Max size in bytes of outbound message which is copied to the same buffer with packet header. Larger
+   * messages are composed with header without copying.
+   */
+  public int getCompositeBufferThreshold() {
+    return compositeBufferThreshold;
+  }
+
+  /**
+   * Max number of packets which may be queued by polling session until it is polled by client, 0 means
+   * unlimited.
+   */
+  public int getPollingQueueMaxSize() {
+    return pollingQueueMaxSize;
+  }
+
+  /**
+   * Max total size in bytes of messages which may be queued by polling session until they are polled by
+   * client, 0 means unlimited.
+   */
+  public long getPollingQueueMaxBytes() {
+    return pollingQueueMaxBytes;
+  }
+
+  /**
+   * Policy which defines what happens with packets which exceed polling queue limits.
+   */
+  public OverflowPolicy getPollingQueueOverflowPolicy() {
+    return pollingQueueOverflowPolicy;
+  }
+
+  /**
+   * Flag which defines if all packets of the same session are dispatched to the same event executor thread,
+   * if eventExecutorEnabled flag set to true.
+   */
+  public boolean isSessionAffinityEnabled() {
+    return sessionAffinityEnabled;
+  }
+
+  /**
+   * Executor which runs listener callbacks. If it is set to null callbacks are executed by the thread which
+   * dispatches packets.
+   */
+  public Executor getListenerExecutor() {
+    return listenerExecutor;
+  }
+
+  /**
+   * Flag which defines if callbacks of the same session are executed sequentially in the order of events,
+   * if listener executor is set.
+   */
+  public boolean isListenerOrderingEnabled() {
+    return listenerOrderingEnabled;
+  }
+
+  /**
+   * Returns if flushes of WebSocket and Flash Socket sessions are coalesced, so messages are flushed
+   * once per event loop tick or when flush coalescing thresholds are reached instead of on each message.
+   */
+  public boolean isFlushCoalescingEnabled() {
+    return flushCoalescingEnabled;
+  }
+
+  /**
+   * Returns max number of messages which are written before flush, if flush coalescing is enabled.
+   */
+  public int getFlushCoalescingMaxMessages() {
+    return flushCoalescingMaxMessages;
+  }
+
+  /**
+   * Returns max total size in bytes of messages which are written before flush, if flush coalescing is enabled.
+   */
+  public int getFlushCoalescingMaxBytes() {
+    return flushCoalescingMaxBytes;
+  }
+
+  /**
+   * Returns if latency of sent messages is recorded to per transport histograms.
+   */
+  public boolean isSendLatencyTrackingEnabled() {
+    return sendLatencyTrackingEnabled;
+  }
+
+  /**
+   * Returns metrics which are notified about server events or null if metrics are disabled.
+   */
+  public SocketIOMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Returns size in bytes of per session buffer of WebSocket and Flash Socket messages which weren't written
+   * to the client yet or 0 if replay of messages on reconnect is disabled.
+   */
+  public int getReplayBufferSize() {
+    return replayBufferSize;
+  }
+
+  /**
+   * Path to the file where metadata of connected sessions (id, origin, transport, remote address,
+   * creation and last heartbeat time, joined rooms) is saved on server stop. On server start sessions are loaded
+   * from this file, so clients which reconnect with known session id within close timeout resume their sessions.
+   * If null session snapshot is disabled. Default value is null.
+   */
+  public String getSessionSnapshotFile() {
+    return sessionSnapshotFile;
+  }
+
+  /**
+   * Time window in seconds across which connected sessions are advised to reconnect on server stop. Sessions
+   * are advised in batches by error packet with reconnect advice after server stops accepting connections, then
+   * server waits for polling queues to be flushed and only then closes event loops. If it is set to 0 sessions
+   * aren't advised to reconnect. Default value is 0.
+   */
+  public int getDrainWindow() {
+    return drainWindow;
+  }
+
+  /**
+   * Flag which defines if WebSocket and Flash socket clients may negotiate binary frames mode by "binary=1" query
+   * parameter or "socketio-binary" subprotocol of the handshake request. In binary mode packets are sent in binary
+   * frames with compact binary header and raw data. Default value is false.
+   */
+  public boolean isBinaryWebSocketEnabled() {
+    return binaryWebSocketEnabled;
+  }
+
+  /**
+   * Time in seconds during which WebSocket and Flash Socket messages are kept in the replay buffer after
+   * they are written to the socket. Write to half-open connection succeeds locally until the drop is detected,
+   * so messages written within this period before client reconnects are replayed too and may be delivered
+   * twice. Used only if replay buffer size is positive. Default value is 10 seconds.
+   */
+  public int getReplayGracePeriod() {
+    return replayGracePeriod;
+  }
+
   @Override
   public String toString() {
     return "ServerConfiguration{port=" + port +
@@ -211,6 +438,26 @@ public final class ServerConfiguration {
         ", epollEnabled=" + epollEnabled +
         ", httpCompressionEnabled=" + httpCompressionEnabled +
         ", websocketCompressionEnabled=" + websocketCompressionEnabled +
+        ", shardedSessionStorageEnabled=" + shardedSessionStorageEnabled +
+        ", heartbeatSweeperEnabled=" + heartbeatSweeperEnabled +
+        ", zeroCopyDecodingEnabled=" + zeroCopyDecodingEnabled +
+        ", compositeBufferThreshold=" + compositeBufferThreshold +
+        ", pollingQueueMaxSize=" + pollingQueueMaxSize +
+        ", pollingQueueMaxBytes=" + pollingQueueMaxBytes +
+        ", pollingQueueOverflowPolicy=" + pollingQueueOverflowPolicy +
+        ", sessionAffinityEnabled=" + sessionAffinityEnabled +
+        ", listenerExecutor=" + listenerExecutor +
+        ", listenerOrderingEnabled=" + listenerOrderingEnabled +
+        ", flushCoalescingEnabled=" + flushCoalescingEnabled +
+        ", flushCoalescingMaxMessages=" + flushCoalescingMaxMessages +
+        ", flushCoalescingMaxBytes=" + flushCoalescingMaxBytes +
+        ", sendLatencyTrackingEnabled=" + sendLatencyTrackingEnabled +
+        ", metrics=" + metrics +
+        ", replayBufferSize=" + replayBufferSize +
+        ", sessionSnapshotFile=" + sessionSnapshotFile +
+        ", drainWindow=" + drainWindow +
+        ", binaryWebSocketEnabled=" + binaryWebSocketEnabled +
+        ", replayGracePeriod=" + replayGracePeriod +
         '}';
   }
 
@@ -230,6 +477,26 @@ public final class ServerConfiguration {
     private boolean epollEnabled = DEFAULT_EPOLL_ENABLED;
     private boolean httpCompressionEnabled = DEFAULT_HTTP_COMPRESSION_ENABLED;
     private boolean websocketCompressionEnabled = DEFAULT_WEBSOCKET_COMPRESSION_ENABLED;
+    private boolean shardedSessionStorageEnabled = DEFAULT_SHARDED_SESSION_STORAGE_ENABLED;
+    private boolean heartbeatSweeperEnabled = DEFAULT_HEARTBEAT_SWEEPER_ENABLED;
+    private boolean zeroCopyDecodingEnabled = DEFAULT_ZERO_COPY_DECODING_ENABLED;
+    private int compositeBufferThreshold = DEFAULT_COMPOSITE_BUFFER_THRESHOLD;
+    private int pollingQueueMaxSize = DEFAULT_POLLING_QUEUE_MAX_SIZE;
+    private long pollingQueueMaxBytes = DEFAULT_POLLING_QUEUE_MAX_BYTES;
+    private OverflowPolicy pollingQueueOverflowPolicy = DEFAULT_POLLING_QUEUE_OVERFLOW_POLICY;
+    private boolean sessionAffinityEnabled = DEFAULT_SESSION_AFFINITY_ENABLED;
+    private Executor listenerExecutor = DEFAULT_LISTENER_EXECUTOR;
+    private boolean listenerOrderingEnabled = DEFAULT_LISTENER_ORDERING_ENABLED;
+    private boolean flushCoalescingEnabled = DEFAULT_FLUSH_COALESCING_ENABLED;
+    private int flushCoalescingMaxMessages = DEFAULT_FLUSH_COALESCING_MAX_MESSAGES;
+    private int flushCoalescingMaxBytes = DEFAULT_FLUSH_COALESCING_MAX_BYTES;
+    private boolean sendLatencyTrackingEnabled = DEFAULT_SEND_LATENCY_TRACKING_ENABLED;
+    private SocketIOMetrics metrics = DEFAULT_METRICS;
+    private int replayBufferSize = DEFAULT_REPLAY_BUFFER_SIZE;
+    private String sessionSnapshotFile = DEFAULT_SESSION_SNAPSHOT_FILE;
+    private int drainWindow = DEFAULT_DRAIN_WINDOW;
+    private boolean binaryWebSocketEnabled = DEFAULT_BINARY_WEB_SOCKET_ENABLED;
+    private int replayGracePeriod = DEFAULT_REPLAY_GRACE_PERIOD;
 
     private Builder() {}
 
@@ -355,6 +622,166 @@ public final class ServerConfiguration {
       return this;
     }
 
+    /**
+     * See {@link ServerConfiguration#isShardedSessionStorageEnabled()}
+     */
+    public Builder shardedSessionStorageEnabled(boolean shardedSessionStorageEnabled) {
+      this.shardedSessionStorageEnabled = shardedSessionStorageEnabled;
+      return this;
+    }
+
+    /**
+     * See {@link ServerConfiguration#isHeartbeatSweeperEnabled()}
+     */
+    public Builder heartbeatSweeperEnabled(boolean heartbeatSweeperEnabled) {
+      this.heartbeatSweeperEnabled = heartbeatSweeperEnabled;
+      return this;
+    }
+
+    /**
+     * See {@link ServerConfiguration#isZeroCopyDecodingEnabled()}
+     */
+    public Builder zeroCopyDecodingEnabled(boolean zeroCopyDecodingEnabled) {
+      this.zeroCopyDecodingEnabled = zeroCopyDecodingEnabled;
+      return this;
+    }
+
+    /**
+     * See {@link ServerConfiguration#getCompositeBufferThreshold()}
+     */
+    public Builder compositeBufferThreshold(int compositeBufferThreshold) {
+      this.compositeBufferThreshold = compositeBufferThreshold;
+      return this;
+    }
+
+    /**
+     * See {@link ServerConfiguration#getPollingQueueMaxSize()}
+     */
+    public Builder pollingQueueMaxSize(int pollingQueueMaxSize) {
+      this.pollingQueueMaxSize = pollingQueueMaxSize;
+      return this;
+    }
+
+    /**
+     * See {@link ServerConfiguration#getPollingQueueMaxBytes()}
+     */
+    public Builder pollingQueueMaxBytes(long pollingQueueMaxBytes) {
+      this.pollingQueueMaxBytes = pollingQueueMaxBytes;
+      return this;
+    }
+
+    /**
+     * See {@link ServerConfiguration#getPollingQueueOverflowPolicy()}
+     */
+    public Builder pollingQueueOverflowPolicy(OverflowPolicy pollingQueueOverflowPolicy) {
+      this.pollingQueueOverflowPolicy = pollingQueueOverflowPolicy;
+      return this;
+    }
+
+    /**
+     * See {@link ServerConfiguration#isSessionAffinityEnabled()}
+     */
+    public Builder sessionAffinityEnabled(boolean sessionAffinityEnabled) {
+      this.sessionAffinityEnabled = sessionAffinityEnabled;
+      return this;
+    }
+
+    /**
+     * See {@link ServerConfiguration#getListenerExecutor()}
+     */
+    public Builder listenerExecutor(Executor listenerExecutor) {
+      this.listenerExecutor = listenerExecutor;
+      return this;
+    }
+
+    /**
+     * See {@link ServerConfiguration#isListenerOrderingEnabled()}
+     */
+    public Builder listenerOrderingEnabled(boolean listenerOrderingEnabled) {
+      this.listenerOrderingEnabled = listenerOrderingEnabled;
+      return this;
+    }
+
+    /**
+     * See {@link ServerConfiguration#isFlushCoalescingEnabled()}
+     */
+    public Builder flushCoalescingEnabled(boolean flushCoalescingEnabled) {
+      this.flushCoalescingEnabled = flushCoalescingEnabled;
+      return this;
+    }
+
+    /**
+     * See {@link ServerConfiguration#getFlushCoalescingMaxMessages()}
+     */
+    public Builder flushCoalescingMaxMessages(int flushCoalescingMaxMessages) {
+      this.flushCoalescingMaxMessages = flushCoalescingMaxMessages;
+      return this;
+    }
+
+    /**
+     * See {@link ServerConfiguration#getFlushCoalescingMaxBytes()}
+     */
+    public Builder flushCoalescingMaxBytes(int flushCoalescingMaxBytes) {
+      this.flushCoalescingMaxBytes = flushCoalescingMaxBytes;
+      return this;
+    }
+
+    /**
+     * See {@link ServerConfiguration#isSendLatencyTrackingEnabled()}
+     */
+    public Builder sendLatencyTrackingEnabled(boolean sendLatencyTrackingEnabled) {
+      this.sendLatencyTrackingEnabled = sendLatencyTrackingEnabled;
+      return this;
+    }
+
+    /**
+     * See {@link ServerConfiguration#getMetrics()}
+     */
+    public Builder metrics(SocketIOMetrics metrics) {
+      this.metrics = metrics;
+      return this;
+    }
+
+    /**
+     * See {@link ServerConfiguration#getReplayBufferSize()}
+     */
+    public Builder replayBufferSize(int replayBufferSize) {
+      this.replayBufferSize = replayBufferSize;
+      return this;
+    }
+
+    /**
+     * See {@link ServerConfiguration#getSessionSnapshotFile()}
+     */
+    public Builder sessionSnapshotFile(String sessionSnapshotFile) {
+      this.sessionSnapshotFile = sessionSnapshotFile;
+      return this;
+    }
+
+    /**
+     * See {@link ServerConfiguration#getDrainWindow()}
+     */
+    public Builder drainWindow(int drainWindow) {
+      this.drainWindow = drainWindow;
+      return this;
+    }
+
+    /**
+     * See {@link ServerConfiguration#isBinaryWebSocketEnabled()}
+     */
+    public Builder binaryWebSocketEnabled(boolean binaryWebSocketEnabled) {
+      this.binaryWebSocketEnabled = binaryWebSocketEnabled;
+      return this;
+    }
+
+    /**
+     * See {@link ServerConfiguration#getReplayGracePeriod()}
+     */
+    public Builder replayGracePeriod(int replayGracePeriod) {
+      this.replayGracePeriod = replayGracePeriod;
+      return this;
+    }
+
     /**
      * Creates new instance of {@code ServerConfiguration}
      */
@@ -15,6 +15,7 @@ package io.scalecube.socketio;
 import java.net.SocketAddress;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.Future;
 
 /**
  * When client handshake and connects to the socket.io server a
@@ -55,6 +56,18 @@ public interface Session {
    */
   TransportType getUpgradedFromTransportType();
 
+  /**
+   * @return if this flag is true it means that session was restored from session snapshot saved by previous
+   *         server run, so client resumed its session after server restart.
+   */
+  boolean isResumedSession();
+
+  /**
+   * Returns time in milliseconds when this session was created. For resumed sessions it is creation time of
+   * the original session.
+   */
+  long getCreationTime();
+
   /**
    * Returns transport type for this session (e.g. WebSocket or XHR-Polling).
    */
@@ -84,6 +97,31 @@ public interface Session {
    */
   void send(final ByteBuf message);
 
+  /**
+   * Sends provided message's payload to client. Passed ByteBuf will be released
+   * during sending operation.
+   *
+   * @param message
+   *            message's payload to be sent to client
+   * @return future which is completed when message is written to the socket (for polling transports when it
+   *         is written in poll response) or failed if message was dropped or couldn't be written
+   */
+  Future<Void> sendAsync(final ByteBuf message);
+
+  /**
+   * Returns true if message sent now won't pile up in outbound buffers. For socket transports it means
+   * that channel is writable, for polling transports that polling queue is filled less than half of its limits.
+   */
+  boolean isWritable();
+
+  /**
+   * Runs provided task once when session becomes writable or disconnected. If session is writable already
+   * task is executed immediately.
+   *
+   * @param task task to be executed
+   */
+  void runWhenWritable(final Runnable task);
+
   /**
    * Disconnects this session
    */
@@ -30,7 +30,12 @@ public interface SocketIOListener {
   /**
    * Notify about arrival of new message. It is a responsibility of interface implementation
    * to release provided message's byte buffer. In case if byte buffer won't be released it
-   * will cause memory leak.
+   * will cause memory leak. Message may be passed to {@link Session#send(ByteBuf)} or to another
+   * Netty channel, in this case it will be released after it is written.
+   *
+   * <p>If zero copy decoding is enabled in server configuration message is a slice of received
+   * frame, so the whole frame is held in memory until message is released. Message which has
+   * to be kept for a long time should be copied and released.
    *
    * @param session session to which messages arrived
    * @param message message's payload
@@ -13,15 +13,26 @@
 package io.scalecube.socketio;
 
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
 import io.netty.handler.ssl.ClientAuth;
 import io.netty.handler.ssl.JdkSslContext;
 import io.netty.handler.ssl.SslContext;
 import io.netty.util.HashedWheelTimer;
+import io.scalecube.socketio.metrics.LatencyHistogram;
 import io.scalecube.socketio.pipeline.SocketIOChannelInitializer;
+import io.scalecube.socketio.session.Broadcaster;
+import io.scalecube.socketio.session.SessionDrainer;
+import io.scalecube.socketio.session.SessionStorage;
+import io.scalecube.socketio.session.HeartbeatSweeper;
 import io.scalecube.socketio.session.SocketIOHeartbeatScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
 import javax.net.ssl.SSLContext;
 
 /**
@@ -45,11 +56,24 @@ public final class SocketIOServer {
 
   private HashedWheelTimer timer;
 
+  private HeartbeatSweeper heartbeatSweeper;
+
   private volatile State state = State.STOPPED;
 
   private ServerBootstrapFactory serverBootstrapFactory;
 
   private ServerBootstrap bootstrap;
+  // Child group is shut down on stop only if it was created by default bootstrap factory, since custom factory
+  // may share it with other servers or clients
+  private boolean ownsChildGroup;
+
+  private SocketIOChannelInitializer channelInitializer;
+
+  private Channel serverChannel;
+
+  private SessionStorage sessionStorage;
+
+  private Broadcaster broadcaster;
 
   private SocketIOServer(ServerConfiguration configuration) {
     this.configuration = configuration;
@@ -113,39 +137,128 @@ public final class SocketIOServer {
     SocketIOHeartbeatScheduler.setHashedWheelTimer(timer);
     SocketIOHeartbeatScheduler.setHeartbeatInterval(configuration.getHeartbeatInterval());
     SocketIOHeartbeatScheduler.setHeartbeatTimeout(configuration.getHeartbeatTimeout());
+    SocketIOHeartbeatScheduler.setMetrics(configuration.getMetrics());
+    if (configuration.isHeartbeatSweeperEnabled()) {
+      heartbeatSweeper = new HeartbeatSweeper(timer,
+          configuration.getHeartbeatInterval(), configuration.getHeartbeatTimeout());
+      heartbeatSweeper.start();
+    }
+    SocketIOHeartbeatScheduler.setHeartbeatSweeper(heartbeatSweeper);
+
+    // Configure sessions
+    sessionStorage = new SessionStorage(configuration);
+    broadcaster = new Broadcaster(sessionStorage, configuration.getCompositeBufferThreshold());
+    loadSessionSnapshot();
 
     // Configure and bind server
     ServerBootstrapFactory bootstrapFactory = serverBootstrapFactory != null
         ? serverBootstrapFactory
         : new DefaultServerBootstrapFactory(configuration);
     bootstrap = bootstrapFactory.createServerBootstrap();
-    bootstrap.childHandler(new SocketIOChannelInitializer(configuration, listener, pipelineModifier));
-    bootstrap.bind(configuration.getPort()).syncUninterruptibly();
+    ownsChildGroup = bootstrapFactory instanceof DefaultServerBootstrapFactory;
+    channelInitializer = new SocketIOChannelInitializer(configuration, listener, pipelineModifier, sessionStorage);
+    bootstrap.childHandler(channelInitializer);
+    serverChannel = bootstrap.bind(configuration.getPort()).syncUninterruptibly().channel();
 
     state = State.STARTED;
     log.info("Socket.IO server started: {}", configuration);
   }
 
   /**
-   * Stops Socket.IO server.
+   * Stops Socket.IO server. If drainWindow is configured connected sessions are drained before stop,
+   * see {@link #drain(long, TimeUnit)}.
    *
    * @throws IllegalStateException
    *             if server already stopped
    */
   public synchronized void stop() {
+    drain(configuration.getDrainWindow(), TimeUnit.SECONDS);
+  }
+
+  /**
+   * Drains and stops Socket.IO server. Server stops accepting new connections, then connected sessions are
+   * advised to reconnect in batches spread across the given window, so clients reconnect to other servers
+   * gradually. After that server waits up to heartbeat interval for polling queues to be flushed and only
+   * then closes event loops (child event loop group is closed only if it was created by default bootstrap factory).
+   * If window is 0 sessions aren't advised to reconnect. Session snapshot, if it is configured, is saved before
+   * sessions are advised to reconnect, so it isn't emptied by disconnecting clients. Blocks calling thread until
+   * server is stopped.
+   * <p>
+   * Listening socket is closed first, so only already open connections can be used during the drain. Polling
+   * client which doesn't reuse its keep-alive connection can't receive the advice or flush its queue, in that case
+   * the flush phase just waits until heartbeat interval expires.
+   *
+   * @throws IllegalStateException
+   *             if server already stopped
+   */
+  public synchronized void drain(long window, TimeUnit unit) {
     if (isStopped()) {
       throw new IllegalStateException("Failed to stop Socket.IO server: server already stopped");
     }
 
     log.info("Socket.IO server stopping");
 
+    // Stop accepting new connections
+    serverChannel.close().syncUninterruptibly();
+    // Saved before clients start disconnecting, so snapshot isn't emptied by the drain
+    saveSessionSnapshot();
+    if (window > 0) {
+      try {
+        int count = new SessionDrainer(sessionStorage).drain(unit.toMillis(window),
+            TimeUnit.SECONDS.toMillis(configuration.getHeartbeatInterval()));
+        log.info("Socket.IO server drained {} sessions", count);
+      } catch (InterruptedException e) {
+        log.warn("Socket.IO server drain was interrupted");
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    if (heartbeatSweeper != null) {
+      heartbeatSweeper.stop();
+      heartbeatSweeper = null;
+    }
     timer.stop();
     bootstrap.config().group().shutdownGracefully().syncUninterruptibly();
+    if (ownsChildGroup) {
+      bootstrap.config().childGroup().shutdownGracefully().syncUninterruptibly();
+    }
+    channelInitializer.shutdownGracefully();
+    serverChannel = null;
+    channelInitializer = null;
     state = State.STOPPED;
 
     log.info("Socket.IO server stopped");
   }
 
+  private void loadSessionSnapshot() {
+    String snapshotFile = configuration.getSessionSnapshotFile();
+    if (snapshotFile == null) {
+      return;
+    }
+    try {
+      long resumeTimeoutMillis = TimeUnit.SECONDS.toMillis(configuration.getCloseTimeout());
+      int count = sessionStorage.loadSnapshot(new File(snapshotFile), resumeTimeoutMillis);
+      if (count > 0) {
+        log.info("Loaded {} resumable sessions from session snapshot: {}", count, snapshotFile);
+      }
+    } catch (IOException e) {
+      log.warn("Failed to load session snapshot: {}", snapshotFile, e);
+    }
+  }
+
+  private void saveSessionSnapshot() {
+    String snapshotFile = configuration.getSessionSnapshotFile();
+    if (snapshotFile == null) {
+      return;
+    }
+    try {
+      int count = sessionStorage.saveSnapshot(new File(snapshotFile));
+      log.info("Saved {} sessions to session snapshot: {}", count, snapshotFile);
+    } catch (IOException e) {
+      log.warn("Failed to save session snapshot: {}", snapshotFile, e);
+    }
+  }
+
   /**
    * Restarts Socket.IO server. If server already started it stops server;
    * otherwise it just starts server.
@@ -171,6 +284,110 @@ public final class SocketIOServer {
     return state == State.STOPPED;
   }
 
+  /**
+   * Adds session to the given room. Room is created on first join and removed when last session leaves it
+   * or disconnects.
+   *
+   * @throws IllegalStateException
+   *             if server isn't started
+   */
+  public void join(String room, Session session) {
+    getSessionStorage("join room").join(room, session.getSessionId());
+  }
+
+  /**
+   * Removes session from the given room.
+   *
+   * @throws IllegalStateException
+   *             if server isn't started
+   */
+  public void leave(String room, Session session) {
+    getSessionStorage("leave room").leave(room, session.getSessionId());
+  }
+
+  /**
+   * Sends provided message's payload to all connected sessions. Message is encoded only once for all
+   * sessions. Passed ByteBuf will be released during sending operation. Encoded message is written directly to
+   * WebSocket and Flash socket channels, so these writes aren't recorded in send latency histograms, except
+   * for sessions with replay buffer which receive message via regular send in order to store it for replay.
+   *
+   * @throws IllegalStateException
+   *             if server isn't started
+   */
+  public void broadcast(ByteBuf message) {
+    getBroadcaster(message).broadcast(message);
+  }
+
+  /**
+   * Sends provided message's payload to all connected sessions which joined the given room. Message is
+   * encoded only once for all sessions. Passed ByteBuf will be released during sending operation. Send latency
+   * isn't recorded for broadcast messages in the same cases as for {@link #broadcast(ByteBuf)}.
+   *
+   * @throws IllegalStateException
+   *             if server isn't started
+   */
+  public void broadcast(String room, ByteBuf message) {
+    getBroadcaster(message).broadcast(room, message);
+  }
+
+  /**
+   * Returns total number of outbound packets which are queued by polling sessions until they are polled by clients.
+   *
+   * @throws IllegalStateException
+   *             if server isn't started
+   */
+  public long getPollingQueuedPacketsCount() {
+    return getSessionStorage("get polling queue depth").getPollingQueuedPacketsCount();
+  }
+
+  /**
+   * Returns total size in bytes of outbound messages which are queued by polling sessions.
+   *
+   * @throws IllegalStateException
+   *             if server isn't started
+   */
+  public long getPollingQueuedBytes() {
+    return getSessionStorage("get polling queue size").getPollingQueuedBytes();
+  }
+
+  /**
+   * Returns total number of outbound packets which were dropped by polling sessions due to queue overflow or
+   * disconnect.
+   *
+   * @throws IllegalStateException
+   *             if server isn't started
+   */
+  public long getPollingDroppedPacketsCount() {
+    return getSessionStorage("get polling dropped packets").getPollingDroppedPacketsCount();
+  }
+
+  /**
+   * Returns histogram of latency in nanoseconds of messages sent to sessions of the given transport type, measured
+   * from sending message till writing it to the socket (for polling transports till writing it in poll response).
+   * Returns null if sendLatencyTrackingEnabled flag isn't set.
+   *
+   * @throws IllegalStateException
+   *             if server isn't started
+   */
+  public LatencyHistogram getSendLatencyHistogram(TransportType transportType) {
+    return getSessionStorage("get send latency").getSendLatencyHistogram(transportType);
+  }
+
+  private SessionStorage getSessionStorage(String operation) {
+    if (!isStarted()) {
+      throw new IllegalStateException("Failed to " + operation + ": server isn't started");
+    }
+    return sessionStorage;
+  }
+
+  private Broadcaster getBroadcaster(ByteBuf message) {
+    if (!isStarted()) {
+      message.release();
+      throw new IllegalStateException("Failed to broadcast: server isn't started");
+    }
+    return broadcaster;
+  }
+
   /**
    * Socket.IO events listener.
    */
@@ -223,8 +440,9 @@ public final class SocketIOServer {
   }
 
   /**
-   * Sets ServerBootstrap factory. If server already started new bootstrap factory will be applied only after
-   * server restart.
+   * Sets ServerBootstrap factory. Child event loop group of the bootstrap created by custom factory isn't shut down
+   * on server stop, since it may be shared with other servers or clients. If server already started new bootstrap
+   * factory will be applied only after server restart.
    */
   public void setServerBootstrapFactory(ServerBootstrapFactory serverBootstrapFactory) {
     this.serverBootstrapFactory = serverBootstrapFactory;
@@ -0,0 +1,30 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio;
+
+import io.netty.channel.ChannelPipeline;
+
+/**
+ * Pipeline modifier which is also invoked when channel is upgraded to WebSocket or Flash socket transport.
+ * Socket handler is added to the pipeline only on upgrade, replacing the request router, so handlers which are
+ * placed relative to {@link io.scalecube.socketio.pipeline.SocketIOChannelInitializer#SOCKETIO_WEBSOCKET_HANDLER}
+ * or {@link io.scalecube.socketio.pipeline.SocketIOChannelInitializer#SOCKETIO_FLASHSOCKET_HANDLER} are added here.
+ */
+public interface UpgradePipelineModifier extends PipelineModifier {
+
+  /**
+   * Allows modification of pipeline after upgrade handshake was accepted. At this point HTTP decoder and aggregator
+   * are already replaced by WebSocket frame decoder and socket handler is present in the pipeline.
+   */
+  void modifyUpgradedPipeline(final ChannelPipeline pipeline, final TransportType transportType);
+}
@@ -0,0 +1,260 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import io.scalecube.socketio.TransportType;
+import io.scalecube.socketio.packets.PacketType;
+
+/**
+ * Implementation of {@link SocketIOMetrics} which accumulates metrics in striped counters. Metrics may be read by
+ * getters or exposed via JMX with {@link #registerMBean(String)}.
+ */
+public class DefaultSocketIOMetrics implements SocketIOMetrics, SocketIOMetricsMXBean {
+
+  private static final TransportType[] TRANSPORT_TYPES = TransportType.values();
+  private static final PacketType[] PACKET_TYPES = PacketType.values();
+
+  private final StripedLongCounter[] connects = newCounters(TRANSPORT_TYPES.length);
+  private final StripedLongCounter[] disconnects = newCounters(TRANSPORT_TYPES.length);
+  private final StripedLongCounter handshakes = new StripedLongCounter();
+  private final StripedLongCounter upgrades = new StripedLongCounter();
+  private final StripedLongCounter[] inboundPackets = newCounters(PACKET_TYPES.length);
+  private final StripedLongCounter[] inboundBytes = newCounters(PACKET_TYPES.length);
+  private final StripedLongCounter[] outboundPackets = newCounters(PACKET_TYPES.length);
+  private final StripedLongCounter[] outboundBytes = newCounters(PACKET_TYPES.length);
+  private final StripedLongCounter pollingQueuedPackets = new StripedLongCounter();
+  private final StripedLongCounter pollingQueuedBytes = new StripedLongCounter();
+  private final StripedLongCounter pollingDroppedPackets = new StripedLongCounter();
+  private final StripedLongCounter heartbeatTimeouts = new StripedLongCounter();
+  private final LatencyHistogram dispatchLatency = new LatencyHistogram();
+
+  @Override
+  public void onHandshake() {
+    handshakes.increment();
+  }
+
+  @Override
+  public void onSessionConnected(TransportType transportType) {
+    connects[transportType.ordinal()].increment();
+  }
+
+  @Override
+  public void onSessionUpgraded(TransportType fromTransportType, TransportType toTransportType) {
+    upgrades.increment();
+  }
+
+  @Override
+  public void onSessionDisconnected(TransportType transportType) {
+    disconnects[transportType.ordinal()].increment();
+  }
+
+  @Override
+  public void onInboundPacket(PacketType packetType, int bytes) {
+    inboundPackets[packetType.ordinal()].increment();
+    if (bytes > 0) {
+      inboundBytes[packetType.ordinal()].add(bytes);
+    }
+  }
+
+  @Override
+  public void onOutboundPacket(PacketType packetType, int bytes) {
+    outboundPackets[packetType.ordinal()].increment();
+    if (bytes > 0) {
+      outboundBytes[packetType.ordinal()].add(bytes);
+    }
+  }
+
+  @Override
+  public void onPollingQueueChanged(int packetsDelta, long bytesDelta) {
+    pollingQueuedPackets.add(packetsDelta);
+    pollingQueuedBytes.add(bytesDelta);
+  }
+
+  @Override
+  public void onPollingPacketDropped() {
+    pollingDroppedPackets.increment();
+  }
+
+  @Override
+  public void onHeartbeatTimeout() {
+    heartbeatTimeouts.increment();
+  }
+
+  @Override
+  public void onPacketDispatched(long latencyNanos) {
+    dispatchLatency.record(latencyNanos);
+  }
+
+  /**
+   * Returns number of active sessions of the given transport type.
+   */
+  public long getActiveSessions(TransportType transportType) {
+    int i = transportType.ordinal();
+    return connects[i].value() - disconnects[i].value();
+  }
+
+  /**
+   * Returns number of received packets of the given type.
+   */
+  public long getInboundPackets(PacketType packetType) {
+    return inboundPackets[packetType.ordinal()].value();
+  }
+
+  /**
+   * Returns total size of data of received packets of the given type.
+   */
+  public long getInboundBytes(PacketType packetType) {
+    return inboundBytes[packetType.ordinal()].value();
+  }
+
+  /**
+   * Returns number of sent packets of the given type.
+   */
+  public long getOutboundPackets(PacketType packetType) {
+    return outboundPackets[packetType.ordinal()].value();
+  }
+
+  /**
+   * Returns total size of data of sent packets of the given type.
+   */
+  public long getOutboundBytes(PacketType packetType) {
+    return outboundBytes[packetType.ordinal()].value();
+  }
+
+  /**
+   * Returns histogram of packet dispatch latency in nanoseconds.
+   */
+  public LatencyHistogram getDispatchLatency() {
+    return dispatchLatency;
+  }
+
+  @Override
+  public Map<String, Long> getActiveSessions() {
+    Map<String, Long> result = new LinkedHashMap<>();
+    for (TransportType transportType : TRANSPORT_TYPES) {
+      result.put(transportType.getName(), getActiveSessions(transportType));
+    }
+    return result;
+  }
+
+  @Override
+  public long getHandshakesCount() {
+    return handshakes.value();
+  }
+
+  @Override
+  public long getConnectsCount() {
+    return sum(connects);
+  }
+
+  @Override
+  public long getUpgradesCount() {
+    return upgrades.value();
+  }
+
+  @Override
+  public Map<String, Long> getInboundPackets() {
+    return byPacketType(inboundPackets);
+  }
+
+  @Override
+  public Map<String, Long> getInboundBytes() {
+    return byPacketType(inboundBytes);
+  }
+
+  @Override
+  public Map<String, Long> getOutboundPackets() {
+    return byPacketType(outboundPackets);
+  }
+
+  @Override
+  public Map<String, Long> getOutboundBytes() {
+    return byPacketType(outboundBytes);
+  }
+
+  @Override
+  public long getPollingQueuedPackets() {
+    return pollingQueuedPackets.value();
+  }
+
+  @Override
+  public long getPollingQueuedBytes() {
+    return pollingQueuedBytes.value();
+  }
+
+  @Override
+  public long getPollingDroppedPackets() {
+    return pollingDroppedPackets.value();
+  }
+
+  @Override
+  public long getHeartbeatTimeoutsCount() {
+    return heartbeatTimeouts.value();
+  }
+
+  @Override
+  public long getDispatchLatencyMean() {
+    return dispatchLatency.getMean();
+  }
+
+  @Override
+  public long getDispatchLatency99thPercentile() {
+    return dispatchLatency.getPercentile(99);
+  }
+
+  /**
+   * Registers these metrics in the platform MBean server with the given object name,
+   * e.g. {@code "io.scalecube.socketio:type=Metrics,port=8080"}.
+   *
+   * @throws IllegalStateException if registration failed
+   */
+  public void registerMBean(String objectName) {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(objectName));
+    } catch (JMException e) {
+      throw new IllegalStateException("Failed to register metrics MBean: " + objectName, e);
+    }
+  }
+
+  private static Map<String, Long> byPacketType(StripedLongCounter[] counters) {
+    Map<String, Long> result = new LinkedHashMap<>();
+    for (PacketType packetType : PACKET_TYPES) {
+      result.put(packetType.name(), counters[packetType.ordinal()].value());
+    }
+    return result;
+  }
+
+  private static long sum(StripedLongCounter[] counters) {
+    long sum = 0;
+    for (StripedLongCounter counter : counters) {
+      sum += counter.value();
+    }
+    return sum;
+  }
+
+  private static StripedLongCounter[] newCounters(int size) {
+    StripedLongCounter[] counters = new StripedLongCounter[size];
+    for (int i = 0; i < size; i++) {
+      counters[i] = new StripedLongCounter();
+    }
+    return counters;
+  }
+
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.metrics;
+
+
+/**
+ * Histogram of latencies in nanoseconds with power of two buckets. Bucket {@code i} counts values in range
+ * [2^(i-1), 2^i), so percentiles are reported with precision of factor of two. Recording is lock-free and
+ * is striped across threads.
+ */
+public final class LatencyHistogram {
+
+  public static final int BUCKETS_COUNT = 64;
+
+  private final StripedLongCounter[] buckets = new StripedLongCounter[BUCKETS_COUNT];
+  private final StripedLongCounter totalNanos = new StripedLongCounter();
+
+  public LatencyHistogram() {
+    for (int i = 0; i < BUCKETS_COUNT; i++) {
+      buckets[i] = new StripedLongCounter();
+    }
+  }
+
+  /**
+   * Records the given latency in nanoseconds. Negative values are recorded as 0.
+   */
+  public void record(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+    buckets[bucketIndex(nanos)].increment();
+    totalNanos.add(nanos);
+  }
+
+  /**
+   * Returns number of recorded values.
+   */
+  public long getCount() {
+    long count = 0;
+    for (StripedLongCounter bucket : buckets) {
+      count += bucket.value();
+    }
+    return count;
+  }
+
+  /**
+   * Returns mean of recorded values in nanoseconds or 0 if there are no recorded values.
+   */
+  public long getMean() {
+    long count = getCount();
+    return count > 0 ? totalNanos.value() / count : 0;
+  }
+
+  /**
+   * Returns number of recorded values in the given bucket.
+   */
+  public long getBucketCount(int bucket) {
+    return buckets[bucket].value();
+  }
+
+  /**
+   * Returns exclusive upper bound in nanoseconds of values in the given bucket.
+   */
+  public static long getBucketUpperBound(int bucket) {
+    return bucket >= BUCKETS_COUNT - 1 ? Long.MAX_VALUE : 1L << bucket;
+  }
+
+  /**
+   * Returns upper bound in nanoseconds of the bucket which contains the given percentile of recorded values
+   * or 0 if there are no recorded values.
+   *
+   * @param percentile percentile in range (0, 100]
+   */
+  public long getPercentile(double percentile) {
+    if (percentile <= 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile must be in range (0, 100]: " + percentile);
+    }
+    long[] counts = new long[BUCKETS_COUNT];
+    long total = 0;
+    for (int i = 0; i < BUCKETS_COUNT; i++) {
+      counts[i] = buckets[i].value();
+      total += counts[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(total * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS_COUNT; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return getBucketUpperBound(i);
+      }
+    }
+    return Long.MAX_VALUE;
+  }
+
+  private static int bucketIndex(long nanos) {
+    return Math.min(BUCKETS_COUNT - Long.numberOfLeadingZeros(nanos), BUCKETS_COUNT - 1);
+  }
+
+  @Override
+  public String toString() {
+    return "LatencyHistogram{count=" + getCount() + ", mean=" + getMean() + "}";
+  }
+
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.metrics;
+
+import io.scalecube.socketio.TransportType;
+import io.scalecube.socketio.packets.PacketType;
+
+/**
+ * Metrics SPI which is notified about server events. Callbacks are invoked on hot paths by I/O and event executor
+ * threads concurrently, so implementations should be thread safe, non blocking and cheap (e.g. use striped
+ * counters). If metrics aren't set in server configuration callbacks aren't invoked at all.
+ *
+ * @see DefaultSocketIOMetrics
+ * @see SocketIOMetricsAdapter
+ */
+public interface SocketIOMetrics {
+
+  /**
+   * Invoked when handshake request is handled and new session id is generated.
+   */
+  void onHandshake();
+
+  /**
+   * Invoked when new session of the given transport type is connected.
+   */
+  void onSessionConnected(TransportType transportType);
+
+  /**
+   * Invoked when session is upgraded from one transport type to another. It is invoked in addition to disconnect
+   * of the old session and connect of the new one.
+   */
+  void onSessionUpgraded(TransportType fromTransportType, TransportType toTransportType);
+
+  /**
+   * Invoked when session of the given transport type is disconnected.
+   */
+  void onSessionDisconnected(TransportType transportType);
+
+  /**
+   * Invoked when packet is received from client.
+   *
+   * @param bytes size of packet data
+   */
+  void onInboundPacket(PacketType packetType, int bytes);
+
+  /**
+   * Invoked when packet is encoded to be sent to client.
+   *
+   * @param bytes size of packet data
+   */
+  void onOutboundPacket(PacketType packetType, int bytes);
+
+  /**
+   * Invoked when packets are added to or removed from polling queues.
+   */
+  void onPollingQueueChanged(int packetsDelta, long bytesDelta);
+
+  /**
+   * Invoked when packet is dropped from polling queue due to overflow or disconnect.
+   */
+  void onPollingPacketDropped();
+
+  /**
+   * Invoked when session is disconnected due to heartbeat timeout.
+   */
+  void onHeartbeatTimeout();
+
+  /**
+   * Invoked when received packet is dispatched to listener.
+   *
+   * @param latencyNanos time in nanoseconds from receiving packet by dispatcher handler till completion of its
+   *                     dispatching, including time spent in executor queue and in listener
+   */
+  void onPacketDispatched(long latencyNanos);
+
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.metrics;
+
+import io.scalecube.socketio.TransportType;
+import io.scalecube.socketio.packets.PacketType;
+
+/**
+ * Empty implementation of {@link SocketIOMetrics} which may be extended to handle only required events.
+ */
+public class SocketIOMetricsAdapter implements SocketIOMetrics {
+
+  @Override
+  public void onHandshake() {
+    // Do nothing
+  }
+
+  @Override
+  public void onSessionConnected(TransportType transportType) {
+    // Do nothing
+  }
+
+  @Override
+  public void onSessionUpgraded(TransportType fromTransportType, TransportType toTransportType) {
+    // Do nothing
+  }
+
+  @Override
+  public void onSessionDisconnected(TransportType transportType) {
+    // Do nothing
+  }
+
+  @Override
+  public void onInboundPacket(PacketType packetType, int bytes) {
+    // Do nothing
+  }
+
+  @Override
+  public void onOutboundPacket(PacketType packetType, int bytes) {
+    // Do nothing
+  }
+
+  @Override
+  public void onPollingQueueChanged(int packetsDelta, long bytesDelta) {
+    // Do nothing
+  }
+
+  @Override
+  public void onPollingPacketDropped() {
+    // Do nothing
+  }
+
+  @Override
+  public void onHeartbeatTimeout() {
+    // Do nothing
+  }
+
+  @Override
+  public void onPacketDispatched(long latencyNanos) {
+    // Do nothing
+  }
+
+}
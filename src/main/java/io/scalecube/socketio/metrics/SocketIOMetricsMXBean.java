@@ -0,0 +1,51 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link DefaultSocketIOMetrics}. Metrics registries which are able to import JMX attributes may
+ * collect server metrics through it.
+ */
+public interface SocketIOMetricsMXBean {
+
+  Map<String, Long> getActiveSessions();
+
+  long getHandshakesCount();
+
+  long getConnectsCount();
+
+  long getUpgradesCount();
+
+  Map<String, Long> getInboundPackets();
+
+  Map<String, Long> getInboundBytes();
+
+  Map<String, Long> getOutboundPackets();
+
+  Map<String, Long> getOutboundBytes();
+
+  long getPollingQueuedPackets();
+
+  long getPollingQueuedBytes();
+
+  long getPollingDroppedPackets();
+
+  long getHeartbeatTimeoutsCount();
+
+  long getDispatchLatencyMean();
+
+  long getDispatchLatency99thPercentile();
+
+}
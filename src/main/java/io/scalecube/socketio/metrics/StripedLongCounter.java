@@ -0,0 +1,76 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter which is updated by many threads and read rarely. Updates are striped across cells selected by thread id,
+ * cells are padded to separate cache lines, so concurrent updates don't contend. Value is the sum of all cells, it
+ * isn't an atomic snapshot under concurrent updates. It is used by internals of the server, so it doesn't depend
+ * on Netty's internal counters which have no compatibility guarantees.
+ */
+public final class StripedLongCounter {
+
+  // Cells are spaced by 8 longs (64 bytes) to avoid false sharing
+  private static final int CELL_SPACING = 8;
+  private static final int STRIPES = stripesCount(Runtime.getRuntime().availableProcessors());
+
+  private final AtomicLongArray cells = new AtomicLongArray(STRIPES * CELL_SPACING);
+
+  public void increment() {
+    add(1);
+  }
+
+  public void decrement() {
+    add(-1);
+  }
+
+  public void add(long delta) {
+    cells.getAndAdd(cellIndex(), delta);
+  }
+
+  /**
+   * Returns sum of all updates.
+   */
+  public long value() {
+    long sum = 0;
+    for (int i = 0; i < STRIPES; i++) {
+      sum += cells.get(i * CELL_SPACING);
+    }
+    return sum;
+  }
+
+  private static int cellIndex() {
+    long id = Thread.currentThread().getId();
+    int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+    return ((hash >>> 16) & (STRIPES - 1)) * CELL_SPACING;
+  }
+
+  /**
+   * Returns power of two which is not less than twice the number of processors, but not larger than 64.
+   */
+  static int stripesCount(int processors) {
+    int stripes = 1;
+    while (stripes < 2 * processors && stripes < 64) {
+      stripes <<= 1;
+    }
+    return stripes;
+  }
+
+  @Override
+  public String toString() {
+    return String.valueOf(value());
+  }
+
+}
@@ -13,6 +13,7 @@
 package io.scalecube.socketio.packets;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.Promise;
 
 public class Packet extends AbstractPacket {
 
@@ -20,6 +21,8 @@ public class Packet extends AbstractPacket {
 
   private ByteBuf data;
   private int sequenceNumber = 0;
+  private Promise<Void> sendPromise;
+  private long enqueueTime;
 
   public Packet(final PacketType type) {
     super(type);
@@ -49,6 +52,29 @@ public class Packet extends AbstractPacket {
     this.sequenceNumber = sequenceNumber;
   }
 
+  /**
+   * Promise which is completed when outbound packet is written to the client or failed if packet was dropped.
+   * It is null if sender doesn't wait for completion.
+   */
+  public Promise<Void> getSendPromise() {
+    return sendPromise;
+  }
+
+  public void setSendPromise(Promise<Void> sendPromise) {
+    this.sendPromise = sendPromise;
+  }
+
+  /**
+   * The {@link System#nanoTime()} when outbound packet was sent by session or 0 if send latency isn't tracked.
+   */
+  public long getEnqueueTime() {
+    return enqueueTime;
+  }
+
+  public void setEnqueueTime(long enqueueTime) {
+    this.enqueueTime = enqueueTime;
+  }
+
   @Override
   public String toString() {
     return "Packet [" + super.toString() + ", data=" + data + "]";
@@ -12,13 +12,24 @@
  */
 package io.scalecube.socketio.packets;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 
 public class PacketsFrame extends AbstractPacket {
 
-  private List<Packet> packets = new LinkedList<>();
+  private final List<Packet> packets;
+
+  public PacketsFrame() {
+    packets = new ArrayList<>();
+  }
+
+  /**
+   * Creates frame which is presized for the given number of packets.
+   */
+  public PacketsFrame(int expectedSize) {
+    packets = new ArrayList<>(expectedSize);
+  }
 
   public List<Packet> getPackets() {
     return packets;
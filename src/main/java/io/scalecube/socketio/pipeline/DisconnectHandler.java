@@ -18,9 +18,7 @@ import org.slf4j.LoggerFactory;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
-import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpRequest;
-import io.netty.handler.codec.http.QueryStringDecoder;
 import io.netty.util.ReferenceCountUtil;
 import io.scalecube.socketio.packets.Packet;
 import io.scalecube.socketio.packets.PacketType;
@@ -47,29 +45,34 @@ public class DisconnectHandler extends ChannelInboundHandlerAdapter {
 
   private final Logger log = LoggerFactory.getLogger(getClass());
 
-  private static final String DISCONNECT = "disconnect";
-
   @Override
   public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
     if (msg instanceof HttpRequest) {
       final HttpRequest req = (HttpRequest) msg;
-      final HttpMethod requestMethod = req.method();
-      final QueryStringDecoder queryDecoder = new QueryStringDecoder(req.uri());
-      final String requestPath = queryDecoder.path();
-
-      boolean disconnect = queryDecoder.parameters().containsKey(DISCONNECT);
-      if (disconnect) {
-        if (log.isDebugEnabled())
-          log.debug("Received HTTP disconnect request: {} {} from channel: {}", requestMethod, requestPath, ctx.channel());
-
-        final String sessionId = PipelineUtils.getSessionId(requestPath);
-        final Packet disconnectPacket = new Packet(PacketType.DISCONNECT, sessionId);
-        disconnectPacket.setOrigin(PipelineUtils.getOrigin(req));
-        ctx.fireChannelRead(disconnectPacket);
-        ReferenceCountUtil.release(msg);
+      if (handleRequest(ctx, req, SocketIORequest.parse(req.uri()))) {
         return;
       }
     }
     ctx.fireChannelRead(msg);
   }
+
+  /**
+   * Fires disconnect packet if it is forced disconnect request.
+   *
+   * @return true if request was handled and released; false otherwise
+   */
+  boolean handleRequest(final ChannelHandlerContext ctx, final HttpRequest req, final SocketIORequest request) {
+    if (!request.isDisconnect()) {
+      return false;
+    }
+    if (log.isDebugEnabled())
+      log.debug("Received HTTP disconnect request: {} {} from channel: {}", req.method(), request.getPath(),
+          ctx.channel());
+
+    final Packet disconnectPacket = new Packet(PacketType.DISCONNECT, request.getSessionId());
+    disconnectPacket.setOrigin(PipelineUtils.getOrigin(req));
+    ctx.fireChannelRead(disconnectPacket);
+    ReferenceCountUtil.release(req);
+    return true;
+  }
 }
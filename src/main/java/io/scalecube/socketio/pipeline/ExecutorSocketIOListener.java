@@ -0,0 +1,202 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.pipeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.netty.buffer.ByteBuf;
+import io.scalecube.socketio.Session;
+import io.scalecube.socketio.SocketIOListener;
+
+/**
+ * Listener which runs callbacks of the delegate listener on the given executor, so blocking listener doesn't block
+ * I/O threads. If ordering is enabled callbacks of the same session are executed one by one in the order they were
+ * received, otherwise they may be executed concurrently.
+ */
+final class ExecutorSocketIOListener implements SocketIOListener {
+
+  private static final Logger log = LoggerFactory.getLogger(ExecutorSocketIOListener.class);
+
+  private final SocketIOListener delegate;
+  private final Executor executor;
+  private final ConcurrentMap<String, SerialExecutor> sessionExecutors;
+
+  ExecutorSocketIOListener(SocketIOListener delegate, Executor executor, boolean ordered) {
+    this.delegate = delegate;
+    this.executor = executor;
+    this.sessionExecutors = ordered ? new ConcurrentHashMap<String, SerialExecutor>() : null;
+  }
+
+  @Override
+  public void onConnect(final Session session) {
+    execute(session, new Runnable() {
+      @Override
+      public void run() {
+        delegate.onConnect(session);
+      }
+    }, false);
+  }
+
+  @Override
+  public void onMessage(final Session session, final ByteBuf message) {
+    boolean accepted;
+    try {
+      accepted = execute(session, new Runnable() {
+        @Override
+        public void run() {
+          delegate.onMessage(session, message);
+        }
+      }, false);
+    } catch (RejectedExecutionException e) {
+      message.release();
+      throw e;
+    }
+    if (!accepted) {
+      message.release();
+    }
+  }
+
+  @Override
+  public void onDisconnect(final Session session) {
+    execute(session, new Runnable() {
+      @Override
+      public void run() {
+        delegate.onDisconnect(session);
+      }
+    }, true);
+  }
+
+  /**
+   * Executes callback of the given session.
+   *
+   * @return false if callback was dropped since it was received after disconnect of the session
+   */
+  private boolean execute(Session session, Runnable task, boolean disconnect) {
+    if (sessionExecutors == null) {
+      executor.execute(task);
+      return true;
+    }
+    SerialExecutor sessionExecutor = getSessionExecutor(session, disconnect);
+    if (sessionExecutor == null || !sessionExecutor.execute(task, disconnect)) {
+      if (log.isDebugEnabled())
+        log.debug("Dropped listener callback received after disconnect of session: {}", session.getSessionId());
+      return false;
+    }
+    return true;
+  }
+
+  private SerialExecutor getSessionExecutor(Session session, boolean disconnect) {
+    String sessionId = session.getSessionId();
+    SerialExecutor sessionExecutor = sessionExecutors.get(sessionId);
+    if (sessionExecutor == null) {
+      // Executor is removed once disconnect callback is executed, so callbacks received later aren't executed
+      if (!disconnect && session.getState() == Session.State.DISCONNECTED) {
+        return null;
+      }
+      sessionExecutor = new SerialExecutor(sessionId);
+      SerialExecutor fasterExecutor = sessionExecutors.putIfAbsent(sessionId, sessionExecutor);
+      if (fasterExecutor != null) {
+        sessionExecutor = fasterExecutor;
+      }
+    }
+    return sessionExecutor;
+  }
+
+  /**
+   * Executes callbacks of the session one by one on the underlying executor. Disconnect callback is the last one,
+   * callbacks submitted after it are rejected and executor is removed once all its callbacks are executed.
+   */
+  private final class SerialExecutor implements Runnable {
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final String sessionId;
+    private volatile boolean disconnected;
+
+    SerialExecutor(String sessionId) {
+      this.sessionId = sessionId;
+    }
+
+    /**
+     * Submits callback for execution.
+     *
+     * @return false if session is already disconnected and callback is rejected
+     */
+    boolean execute(Runnable task, boolean disconnect) {
+      synchronized (this) {
+        if (disconnected) {
+          return false;
+        }
+        tasks.add(task);
+        // Flag is set after disconnect callback is added, so executor isn't removed before it is executed
+        disconnected = disconnect;
+      }
+      try {
+        schedule();
+      } catch (RejectedExecutionException e) {
+        synchronized (this) {
+          // Callback may be already taken by concurrently scheduled run, then it will be executed
+          if (!tasks.remove(task)) {
+            return true;
+          }
+          if (disconnect) {
+            disconnected = false;
+          }
+        }
+        throw e;
+      }
+      return true;
+    }
+
+    private void schedule() {
+      if (scheduled.compareAndSet(false, true)) {
+        try {
+          executor.execute(this);
+        } catch (RejectedExecutionException e) {
+          scheduled.set(false);
+          throw e;
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      Runnable task;
+      while ((task = tasks.poll()) != null) {
+        try {
+          task.run();
+        } catch (Exception e) {
+          log.error("Failed to execute listener callback", e);
+        }
+      }
+      scheduled.set(false);
+      boolean done = disconnected;
+      // Task might be added after the last poll but before scheduled flag is cleared
+      if (!tasks.isEmpty()) {
+        schedule();
+      } else if (done) {
+        sessionExecutors.remove(sessionId, this);
+      }
+    }
+  }
+
+}
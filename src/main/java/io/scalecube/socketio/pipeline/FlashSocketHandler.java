@@ -28,9 +28,34 @@ public class FlashSocketHandler extends WebSocketHandler {
     super(handshakePath, secure, maxWebSocketFrameSize, remoteAddressHeader);
   }
 
+  public FlashSocketHandler(final String handshakePath, final boolean secure, final int maxWebSocketFrameSize,
+                            final String remoteAddressHeader, final boolean zeroCopyDecoding) {
+    super(handshakePath, secure, maxWebSocketFrameSize, remoteAddressHeader, zeroCopyDecoding);
+  }
+
+  public FlashSocketHandler(final String handshakePath, final boolean secure, final int maxWebSocketFrameSize,
+                            final String remoteAddressHeader, final boolean zeroCopyDecoding,
+                            final int flushCoalescingMaxMessages, final int flushCoalescingMaxBytes) {
+    super(handshakePath, secure, maxWebSocketFrameSize, remoteAddressHeader, zeroCopyDecoding,
+        flushCoalescingMaxMessages, flushCoalescingMaxBytes);
+  }
+
+  public FlashSocketHandler(final String handshakePath, final boolean secure, final int maxWebSocketFrameSize,
+                            final String remoteAddressHeader, final boolean zeroCopyDecoding,
+                            final int flushCoalescingMaxMessages, final int flushCoalescingMaxBytes,
+                            final boolean binaryModeEnabled) {
+    super(handshakePath, secure, maxWebSocketFrameSize, remoteAddressHeader, zeroCopyDecoding,
+        flushCoalescingMaxMessages, flushCoalescingMaxBytes, binaryModeEnabled);
+  }
+
   @Override
   protected TransportType getTransportType() {
     return TransportType.FLASHSOCKET;
   }
 
+  @Override
+  protected String getHandlerName() {
+    return SocketIOChannelInitializer.SOCKETIO_FLASHSOCKET_HANDLER;
+  }
+
 }
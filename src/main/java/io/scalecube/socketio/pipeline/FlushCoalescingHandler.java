@@ -0,0 +1,122 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.pipeline;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * Outbound handler which defers flushes of written messages. Flush is issued once per event loop tick,
+ * so all messages written by tasks which are already queued to the channel's event loop are sent with single
+ * syscall (and single SSL record), or immediately when number or total size of not flushed messages reaches
+ * configured thresholds.
+ */
+public class FlushCoalescingHandler extends ChannelDuplexHandler {
+
+  private final int maxMessages;
+  private final int maxBytes;
+
+  private int pendingMessages;
+  private long pendingBytes;
+  private boolean flushScheduled;
+  private ChannelHandlerContext ctx;
+
+  private final Runnable flushTask = new Runnable() {
+    @Override
+    public void run() {
+      flushScheduled = false;
+      if (pendingMessages > 0) {
+        flushNow(ctx);
+      }
+    }
+  };
+
+  /**
+   * @param maxMessages max number of messages which are written before flush
+   * @param maxBytes max total size in bytes of messages which are written before flush
+   */
+  public FlushCoalescingHandler(int maxMessages, int maxBytes) {
+    if (maxMessages <= 0) {
+      throw new IllegalArgumentException("Max messages must be positive: " + maxMessages);
+    }
+    if (maxBytes <= 0) {
+      throw new IllegalArgumentException("Max bytes must be positive: " + maxBytes);
+    }
+    this.maxMessages = maxMessages;
+    this.maxBytes = maxBytes;
+  }
+
+  @Override
+  public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+    this.ctx = ctx;
+  }
+
+  @Override
+  public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+    pendingMessages++;
+    pendingBytes += sizeOf(msg);
+    ctx.write(msg, promise);
+  }
+
+  @Override
+  public void flush(ChannelHandlerContext ctx) throws Exception {
+    if (pendingMessages >= maxMessages || pendingBytes >= maxBytes) {
+      flushNow(ctx);
+    } else if (!flushScheduled) {
+      flushScheduled = true;
+      ctx.channel().eventLoop().execute(flushTask);
+    }
+  }
+
+  @Override
+  public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+    flushPending(ctx);
+    ctx.close(promise);
+  }
+
+  @Override
+  public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+    flushPending(ctx);
+    ctx.disconnect(promise);
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+    flushPending(ctx);
+  }
+
+  private void flushPending(ChannelHandlerContext ctx) {
+    if (pendingMessages > 0) {
+      flushNow(ctx);
+    }
+  }
+
+  private void flushNow(ChannelHandlerContext ctx) {
+    pendingMessages = 0;
+    pendingBytes = 0;
+    ctx.flush();
+  }
+
+  private static int sizeOf(Object msg) {
+    if (msg instanceof ByteBuf) {
+      return ((ByteBuf) msg).readableBytes();
+    } else if (msg instanceof ByteBufHolder) {
+      return ((ByteBufHolder) msg).content().readableBytes();
+    }
+    return 0;
+  }
+
+}
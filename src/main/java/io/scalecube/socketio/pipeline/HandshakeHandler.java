@@ -29,8 +29,8 @@ import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
-import io.netty.handler.codec.http.QueryStringDecoder;
 import io.netty.util.ReferenceCountUtil;
+import io.scalecube.socketio.metrics.SocketIOMetrics;
 
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
@@ -115,43 +115,64 @@ public class HandshakeHandler extends ChannelInboundHandlerAdapter {
   private final String handshakePath;
   private final String commonHandshakeParameters;
 
+  // Null if metrics are disabled
+  private final SocketIOMetrics metrics;
+
   public HandshakeHandler(final String handshakePath, final int heartbeatTimeout, final int closeTimeout, final String transports) {
+    this(handshakePath, heartbeatTimeout, closeTimeout, transports, null);
+  }
+
+  public HandshakeHandler(final String handshakePath, final int heartbeatTimeout, final int closeTimeout,
+                          final String transports, final SocketIOMetrics metrics) {
     this.handshakePath = handshakePath;
     commonHandshakeParameters = ":" + heartbeatTimeout + ":" + closeTimeout + ":" + transports;
+    this.metrics = metrics;
   }
 
   @Override
   public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
     if (msg instanceof HttpRequest) {
       final HttpRequest req = (HttpRequest) msg;
-      final HttpMethod requestMethod = req.method();
-      final QueryStringDecoder queryDecoder = new QueryStringDecoder(req.uri());
-      final String requestPath = queryDecoder.path();
-
-      if (!requestPath.startsWith(handshakePath)) {
-        log.warn("Received HTTP bad request: {} {} from channel: {}", requestMethod, requestPath, ctx.channel());
-
-        HttpResponse res = new DefaultHttpResponse(HTTP_1_1, HttpResponseStatus.BAD_REQUEST);
-        ChannelFuture f = ctx.channel().writeAndFlush(res);
-        f.addListener(ChannelFutureListener.CLOSE);
-        ReferenceCountUtil.release(req);
+      if (handleRequest(ctx, req, SocketIORequest.parse(req.uri()))) {
         return;
       }
+    }
 
-      if (HttpMethod.GET.equals(requestMethod) && requestPath.equals(handshakePath)) {
-        if (log.isDebugEnabled())
-          log.debug("Received HTTP handshake request: {} {} from channel: {}", requestMethod, requestPath, ctx.channel());
+    super.channelRead(ctx, msg);
+  }
 
-        handshake(ctx, req, queryDecoder);
-        ReferenceCountUtil.release(req);
-        return;
-      }
+  /**
+   * Responds to handshake request or rejects request which path isn't under handshake path.
+   *
+   * @return true if request was handled and released; false otherwise
+   */
+  boolean handleRequest(final ChannelHandlerContext ctx, final HttpRequest req, final SocketIORequest request)
+      throws IOException {
+    final HttpMethod requestMethod = req.method();
+    final String requestPath = request.getPath();
+
+    if (!requestPath.startsWith(handshakePath)) {
+      log.warn("Received HTTP bad request: {} {} from channel: {}", requestMethod, requestPath, ctx.channel());
+
+      HttpResponse res = new DefaultHttpResponse(HTTP_1_1, HttpResponseStatus.BAD_REQUEST);
+      ChannelFuture f = ctx.channel().writeAndFlush(res);
+      f.addListener(ChannelFutureListener.CLOSE);
+      ReferenceCountUtil.release(req);
+      return true;
     }
 
-    super.channelRead(ctx, msg);
+    if (HttpMethod.GET.equals(requestMethod) && requestPath.equals(handshakePath)) {
+      if (log.isDebugEnabled())
+        log.debug("Received HTTP handshake request: {} {} from channel: {}", requestMethod, requestPath, ctx.channel());
+
+      handshake(ctx, req, request);
+      ReferenceCountUtil.release(req);
+      return true;
+    }
+    return false;
   }
 
-  private void handshake(final ChannelHandlerContext ctx, final HttpRequest req, final QueryStringDecoder queryDecoder)
+  private void handshake(final ChannelHandlerContext ctx, final HttpRequest req, final SocketIORequest request)
       throws IOException {
     // Generate session ID
     final String sessionId = UUID.randomUUID().toString();
@@ -159,7 +180,7 @@ public class HandshakeHandler extends ChannelInboundHandlerAdapter {
       log.debug("New sessionId: {} generated", sessionId);
 
     // Send handshake response
-    final String handshakeMessage = getHandshakeMessage(sessionId, queryDecoder);
+    final String handshakeMessage = getHandshakeMessage(sessionId, request);
 
     ByteBuf content = PipelineUtils.copiedBuffer(ctx.alloc(), handshakeMessage);
     HttpResponse res = PipelineUtils.createHttpResponse(PipelineUtils.getOrigin(req), content, false);
@@ -167,10 +188,13 @@ public class HandshakeHandler extends ChannelInboundHandlerAdapter {
     f.addListener(ChannelFutureListener.CLOSE);
     if (log.isDebugEnabled())
       log.debug("Sent handshake response: {} to channel: {}", handshakeMessage, ctx.channel());
+    if (metrics != null) {
+      metrics.onHandshake();
+    }
   }
 
-  private String getHandshakeMessage(final String sessionId, final QueryStringDecoder queryDecoder) throws IOException {
-    String jsonpParam = PipelineUtils.extractParameter(queryDecoder, "jsonp");
+  private String getHandshakeMessage(final String sessionId, final SocketIORequest request) throws IOException {
+    String jsonpParam = request.getParameter("jsonp");
     String handshakeParameters = sessionId + commonHandshakeParameters;
     if (jsonpParam != null) {
       return "io.j[" + jsonpParam + "](\"" + handshakeParameters + "\");";
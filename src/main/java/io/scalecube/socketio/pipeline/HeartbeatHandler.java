@@ -35,7 +35,7 @@ public class HeartbeatHandler extends ChannelInboundHandlerAdapter {
       final Packet packet = (Packet) msg;
       if (packet.getType() == PacketType.HEARTBEAT) {
         final String sessionId = packet.getSessionId();
-        final ManagedSession session = sessionFactory.getSessionIfExist(sessionId);
+        final ManagedSession session = sessionFactory.getSessionIfExist(ctx.channel(), sessionId);
         if (session != null) {
           session.acceptPacket(ctx.channel(), packet);
           session.acceptHeartbeat();
@@ -16,7 +16,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.SocketAddress;
-import java.util.List;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandler;
@@ -31,6 +30,7 @@ import io.scalecube.socketio.TransportType;
 import io.scalecube.socketio.packets.ConnectPacket;
 import io.scalecube.socketio.packets.Packet;
 import io.scalecube.socketio.serialization.PacketFramer;
+import io.scalecube.socketio.serialization.PacketSink;
 
 @ChannelHandler.Sharable
 public class JsonpPollingHandler extends ChannelInboundHandlerAdapter {
@@ -39,67 +39,90 @@ public class JsonpPollingHandler extends ChannelInboundHandlerAdapter {
 
   private final String connectPath;
   private final String remoteAddressHeader;
+  private final boolean zeroCopyDecoding;
 
   public JsonpPollingHandler(final String handshakePath, final String remoteAddressHeader) {
+    this(handshakePath, remoteAddressHeader, false);
+  }
+
+  public JsonpPollingHandler(final String handshakePath, final String remoteAddressHeader, final boolean zeroCopyDecoding) {
     this.connectPath = handshakePath + TransportType.JSONP_POLLING.getName();
     this.remoteAddressHeader = remoteAddressHeader;
+    this.zeroCopyDecoding = zeroCopyDecoding;
   }
 
   @Override
-  public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+  public void channelRead(final ChannelHandlerContext ctx, Object msg) throws Exception {
     if (msg instanceof FullHttpRequest) {
       final FullHttpRequest req = (FullHttpRequest) msg;
-      final HttpMethod requestMethod = req.method();
-      final QueryStringDecoder queryDecoder = new QueryStringDecoder(req.uri());
-      final String requestPath = queryDecoder.path();
-
-      if (requestPath.startsWith(connectPath)) {
-        if (log.isDebugEnabled())
-          log.debug("Received HTTP JSONP-Polling request: {} {} from channel: {}", requestMethod, requestPath, ctx.channel());
-
-        final String sessionId = PipelineUtils.getSessionId(requestPath);
-        final String origin = PipelineUtils.getOrigin(req);
-
-        if (HttpMethod.GET.equals(requestMethod)) {
-          // Process polling request from client
-          SocketAddress clientIp = PipelineUtils.resolveClientIpByRemoteAddressHeader(req, remoteAddressHeader);
-
-          String jsonpIndexParam = PipelineUtils.extractParameter(queryDecoder, "i");
-          final ConnectPacket packet = new ConnectPacket(sessionId, origin);
-          packet.setTransportType(TransportType.JSONP_POLLING);
-          packet.setJsonpIndexParam(jsonpIndexParam);
-          packet.setRemoteAddress(clientIp);
-
-          ctx.fireChannelRead(packet);
-        } else if (HttpMethod.POST.equals(requestMethod)) {
-          // Process message request from client
-          ByteBuf buffer = req.content();
-          String content = buffer.toString(CharsetUtil.UTF_8);
-          if (content.startsWith("d=")) {
-            QueryStringDecoder queryStringDecoder = new QueryStringDecoder(content, CharsetUtil.UTF_8, false);
-            content = PipelineUtils.extractParameter(queryStringDecoder, "d");
-            content = prepareJsonpContent(content);
-            ByteBuf buf = PipelineUtils.copiedBuffer(ctx.alloc(), content);
-            List<Packet> packets = PacketFramer.decodePacketsFrame(buf);
+      if (handleRequest(ctx, req, SocketIORequest.parse(req.uri()))) {
+        return;
+      }
+    }
+    super.channelRead(ctx, msg);
+  }
+
+  /**
+   * Handles polling or message request of JSONP-Polling transport.
+   *
+   * @return true if request was handled and released; false otherwise
+   */
+  boolean handleRequest(final ChannelHandlerContext ctx, final FullHttpRequest req, final SocketIORequest request)
+      throws Exception {
+    final HttpMethod requestMethod = req.method();
+    final String requestPath = request.getPath();
+
+    if (requestPath.startsWith(connectPath)) {
+      if (log.isDebugEnabled())
+        log.debug("Received HTTP JSONP-Polling request: {} {} from channel: {}", requestMethod, requestPath, ctx.channel());
+
+      final String sessionId = request.getSessionId();
+      final String origin = PipelineUtils.getOrigin(req);
+
+      if (HttpMethod.GET.equals(requestMethod)) {
+        // Process polling request from client
+        SocketAddress clientIp = PipelineUtils.resolveClientIpByRemoteAddressHeader(req, remoteAddressHeader);
+
+        String jsonpIndexParam = request.getParameter("i");
+        final ConnectPacket packet = new ConnectPacket(sessionId, origin);
+        packet.setTransportType(TransportType.JSONP_POLLING);
+        packet.setJsonpIndexParam(jsonpIndexParam);
+        packet.setRemoteAddress(clientIp);
+
+        ctx.fireChannelRead(packet);
+      } else if (HttpMethod.POST.equals(requestMethod)) {
+        // Process message request from client
+        ByteBuf buffer = req.content();
+        String content = buffer.toString(CharsetUtil.UTF_8);
+        if (content.startsWith("d=")) {
+          QueryStringDecoder queryStringDecoder = new QueryStringDecoder(content, CharsetUtil.UTF_8, false);
+          content = PipelineUtils.extractParameter(queryStringDecoder, "d");
+          content = prepareJsonpContent(content);
+          ByteBuf buf = PipelineUtils.copiedBuffer(ctx.alloc(), content);
+          try {
+            PacketFramer.decodePacketsFrame(buf, zeroCopyDecoding, new PacketSink() {
+              @Override
+              public void accept(Packet packet) {
+                packet.setSessionId(sessionId);
+                packet.setOrigin(origin);
+                ctx.fireChannelRead(packet);
+              }
+            });
+          } finally {
             buf.release();
-            for (Packet packet : packets) {
-              packet.setSessionId(sessionId);
-              packet.setOrigin(origin);
-              ctx.fireChannelRead(packet);
-            }
-          } else {
-            log.warn("Can't process HTTP JSONP-Polling message. Incorrect content format: {} from channel: {}", content,
-                ctx.channel());
           }
         } else {
-          log.warn("Can't process HTTP JSONP-Polling request. Unknown request method: {} from channel: {}", requestMethod,
+          log.warn("Can't process HTTP JSONP-Polling message. Incorrect content format: {} from channel: {}", content,
               ctx.channel());
         }
-        ReferenceCountUtil.release(msg);
-        return;
+      } else {
+        log.warn("Can't process HTTP JSONP-Polling request. Unknown request method: {} from channel: {}", requestMethod,
+            ctx.channel());
       }
+      ReferenceCountUtil.release(req);
+      return true;
     }
-    super.channelRead(ctx, msg);
+    return false;
   }
 
   private String prepareJsonpContent(String content) {
@@ -16,13 +16,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
 import io.scalecube.socketio.Session;
 import io.scalecube.socketio.SocketIOListener;
+import io.scalecube.socketio.metrics.SocketIOMetrics;
 import io.scalecube.socketio.packets.ConnectPacket;
 import io.scalecube.socketio.packets.IPacket;
 import io.scalecube.socketio.packets.Packet;
@@ -40,9 +45,35 @@ public class PacketDispatcherHandler extends ChannelInboundHandlerAdapter implem
 
   private final SocketIOListener listener;
 
+  // Null if metrics are disabled
+  private final SocketIOMetrics metrics;
+
+  // Executors to which packets are dispatched by session id or null if packets are dispatched in the caller thread
+  private final EventExecutor[] sessionExecutors;
+
   public PacketDispatcherHandler(SessionStorage sessionStorage, SocketIOListener listener) {
+    this(sessionStorage, listener, null);
+  }
+
+  /**
+   * Creates dispatcher which dispatches all packets and events of the same session on the same executor of
+   * the given group, so they are processed sequentially even if they are received by different channels.
+   * If group is null packets are dispatched in the thread which received them.
+   */
+  public PacketDispatcherHandler(SessionStorage sessionStorage, SocketIOListener listener,
+                                 EventExecutorGroup sessionExecutorGroup) {
     this.sessionStorage = sessionStorage;
     this.listener = listener;
+    this.metrics = sessionStorage.getMetrics();
+    if (sessionExecutorGroup != null) {
+      List<EventExecutor> executors = new ArrayList<>();
+      for (EventExecutor executor : sessionExecutorGroup) {
+        executors.add(executor);
+      }
+      this.sessionExecutors = executors.toArray(new EventExecutor[executors.size()]);
+    } else {
+      this.sessionExecutors = null;
+    }
   }
 
   @Override
@@ -73,18 +104,40 @@ public class PacketDispatcherHandler extends ChannelInboundHandlerAdapter implem
     final Channel channel = ctx.channel();
     if (message instanceof IPacket) {
       final IPacket packet = (IPacket) message;
-      try {
-        if (log.isDebugEnabled())
-          log.debug("Dispatching packet: {} from channel: {}", packet, channel);
-        dispatchPacket(channel, packet);
-      } catch (Exception e) {
-        log.error("Failed to dispatch packet: {}", packet, e);
+      final long receivedTime = metrics != null ? System.nanoTime() : 0;
+      if (sessionExecutors != null) {
+        getSessionExecutor(packet.getSessionId()).execute(new Runnable() {
+          @Override
+          public void run() {
+            dispatch(channel, packet, receivedTime);
+          }
+        });
+      } else {
+        dispatch(channel, packet, receivedTime);
       }
     } else {
       log.warn("Received unknown message: {} from channel {}", message, channel);
     }
   }
 
+  private void dispatch(final Channel channel, final IPacket packet, final long receivedTime) {
+    try {
+      if (log.isDebugEnabled())
+        log.debug("Dispatching packet: {} from channel: {}", packet, channel);
+      dispatchPacket(channel, packet);
+    } catch (Exception e) {
+      log.error("Failed to dispatch packet: {}", packet, e);
+    }
+    if (metrics != null) {
+      metrics.onPacketDispatched(System.nanoTime() - receivedTime);
+    }
+  }
+
+  private EventExecutor getSessionExecutor(final String sessionId) {
+    int hash = sessionId != null ? sessionId.hashCode() : 0;
+    return sessionExecutors[(hash & Integer.MAX_VALUE) % sessionExecutors.length];
+  }
+
   private void dispatchPacket(final Channel channel, final IPacket packet) throws Exception {
     if (packet instanceof ConnectPacket) {
       ConnectPacket connectPacket = (ConnectPacket) packet;
@@ -92,8 +145,11 @@ public class PacketDispatcherHandler extends ChannelInboundHandlerAdapter implem
       onConnectPacket(channel, session);
     } else if (packet instanceof Packet) {
       Packet message = (Packet) packet;
+      if (metrics != null && message.getType() != null) {
+        metrics.onInboundPacket(message.getType(), message.getData() != null ? message.getData().readableBytes() : 0);
+      }
       final String sessionId = packet.getSessionId();
-      final ManagedSession session = sessionStorage.getSessionIfExist(sessionId);
+      final ManagedSession session = sessionStorage.getSessionIfExist(channel, sessionId);
       if (session != null) {
         onPacket(channel, session, message);
       } else {
@@ -108,7 +164,8 @@ public class PacketDispatcherHandler extends ChannelInboundHandlerAdapter implem
 
   private void onConnectPacket(final Channel channel, final ManagedSession session) {
     boolean initialConnect = session.connect(channel);
-    if (initialConnect && listener != null) {
+    // Upgraded session is the same logical session for listener, so it isn't notified again
+    if (initialConnect && listener != null && !session.isUpgradedSession()) {
       listener.onConnect(session);
     }
   }
@@ -122,12 +179,30 @@ public class PacketDispatcherHandler extends ChannelInboundHandlerAdapter implem
       session.acceptPacket(channel, packet);
       if (listener != null && (packet.getType() == PacketType.MESSAGE || packet.getType() == PacketType.JSON)) {
         listener.onMessage(session, packet.getData());
+      } else if (packet.getData() != null) {
+        packet.getData().release();
       }
     }
   }
 
   @Override
-  public void onSessionDisconnect(Session session) {
+  public void onSessionDisconnect(final Session session) {
+    if (sessionExecutors != null) {
+      EventExecutor executor = getSessionExecutor(session.getSessionId());
+      if (!executor.inEventLoop()) {
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            handleSessionDisconnect(session);
+          }
+        });
+        return;
+      }
+    }
+    handleSessionDisconnect(session);
+  }
+
+  private void handleSessionDisconnect(final Session session) {
     if (sessionStorage.containSession(session.getSessionId())) {
       if (log.isDebugEnabled())
         log.debug("Client with sessionId: {} disconnected", session.getSessionId());
@@ -22,13 +22,16 @@ import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageEncoder;
 import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import io.netty.util.CharsetUtil;
 import io.netty.util.ReferenceCounted;
 import io.scalecube.socketio.TransportType;
+import io.scalecube.socketio.metrics.SocketIOMetrics;
 import io.scalecube.socketio.packets.IPacket;
 import io.scalecube.socketio.packets.Packet;
 import io.scalecube.socketio.packets.PacketsFrame;
+import io.scalecube.socketio.serialization.BinaryPacketEncoding;
 import io.scalecube.socketio.serialization.PacketEncoder;
 import io.scalecube.socketio.serialization.PacketFramer;
 
@@ -61,6 +64,24 @@ public class PacketEncoderHandler extends MessageToMessageEncoder<Object> {
 
   private final Logger log = LoggerFactory.getLogger(getClass());
 
+  private final int compositeThreshold;
+
+  // Null if metrics are disabled
+  private final SocketIOMetrics metrics;
+
+  public PacketEncoderHandler() {
+    this(PacketEncoder.DEFAULT_COMPOSITE_THRESHOLD);
+  }
+
+  public PacketEncoderHandler(final int compositeThreshold) {
+    this(compositeThreshold, null);
+  }
+
+  public PacketEncoderHandler(final int compositeThreshold, final SocketIOMetrics metrics) {
+    this.compositeThreshold = compositeThreshold;
+    this.metrics = metrics;
+  }
+
   @Override
   protected void encode(ChannelHandlerContext ctx, Object msg, List<Object> out) throws Exception {
     if (msg instanceof IPacket) {
@@ -68,12 +89,21 @@ public class PacketEncoderHandler extends MessageToMessageEncoder<Object> {
 
       if (log.isDebugEnabled())
         log.debug("Sending packet: {} to channel: {}", msg, ctx.channel());
+      if (metrics != null) {
+        // Packets data is released by encoding
+        recordOutboundPackets(packet);
+      }
+      TransportType transportType = packet.getTransportType();
+      boolean socketTransport = transportType == TransportType.WEBSOCKET || transportType == TransportType.FLASHSOCKET;
+      if (socketTransport && WebSocketHandler.isBinaryMode(ctx.channel())) {
+        out.add(new BinaryWebSocketFrame(encodeBinaryPacket(packet)));
+        return;
+      }
       ByteBuf encodedPacket = encodePacket(packet);
       if (log.isDebugEnabled())
         log.debug("Encoded packet: {}", encodedPacket);
 
-      TransportType transportType = packet.getTransportType();
-      if (transportType == TransportType.WEBSOCKET || transportType == TransportType.FLASHSOCKET) {
+      if (socketTransport) {
         out.add(new TextWebSocketFrame(encodedPacket));
       } else if (transportType == TransportType.XHR_POLLING) {
         out.add(PipelineUtils.createHttpResponse(packet.getOrigin(), encodedPacket, false));
@@ -96,11 +126,37 @@ public class PacketEncoderHandler extends MessageToMessageEncoder<Object> {
     }
   }
 
+  private void recordOutboundPackets(final IPacket msg) {
+    if (msg instanceof PacketsFrame) {
+      for (Packet packet : ((PacketsFrame) msg).getPackets()) {
+        recordOutboundPacket(packet);
+      }
+    } else if (msg instanceof Packet) {
+      recordOutboundPacket((Packet) msg);
+    }
+  }
+
+  private void recordOutboundPacket(final Packet packet) {
+    if (packet.getType() != null) {
+      metrics.onOutboundPacket(packet.getType(), packet.getData() != null ? packet.getData().readableBytes() : 0);
+    }
+  }
+
+  private ByteBuf encodeBinaryPacket(final IPacket msg) throws Exception {
+    if (msg instanceof PacketsFrame) {
+      return BinaryPacketEncoding.encodePackets(((PacketsFrame) msg).getPackets(), compositeThreshold);
+    } else if (msg instanceof Packet) {
+      return BinaryPacketEncoding.encodePacket((Packet) msg, compositeThreshold);
+    } else {
+      throw new UnsupportedPacketTypeException(msg);
+    }
+  }
+
   private ByteBuf encodePacket(final IPacket msg) throws Exception {
     if (msg instanceof PacketsFrame) {
-      return PacketFramer.encodePacketsFrame((PacketsFrame) msg);
+      return PacketFramer.encodePacketsFrame((PacketsFrame) msg, compositeThreshold);
     } else if (msg instanceof Packet) {
-      return PacketEncoder.encodePacket((Packet) msg);
+      return PacketEncoder.encodePacket((Packet) msg, compositeThreshold);
     } else {
       throw new UnsupportedPacketTypeException(msg);
     }
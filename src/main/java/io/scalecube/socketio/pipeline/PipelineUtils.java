@@ -51,22 +51,6 @@ final class PipelineUtils {
   private PipelineUtils() {
   }
 
-  public static String getSessionId(final String requestPath) {
-    String[] parts = requestPath.split("[/]");
-
-    if (parts.length > 4 && !parts[4].isEmpty()) {
-      String[] idsplit = parts[4].split("[?]");
-
-      if (idsplit[0] != null && idsplit[0].length() > 0) {
-        return idsplit[0];
-      }
-
-      return parts[4];
-    }
-
-    return null;
-  }
-
   public static String getOrigin(final HttpRequest req) {
     return req.headers().get(HttpHeaderNames.ORIGIN);
   }
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.pipeline;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpRequest;
+import io.scalecube.socketio.TransportType;
+
+/**
+ * Routes HTTP requests to Socket.IO handlers. Request URI is parsed only once and request is passed directly to
+ * the handler of its transport instead of passing it through the chain of handlers each of which parses URI again.
+ * WebSocket frames and other messages are passed to the next handler as is.
+ */
+@ChannelHandler.Sharable
+public class RequestRouterHandler extends ChannelInboundHandlerAdapter {
+
+  private final HandshakeHandler handshakeHandler;
+  private final DisconnectHandler disconnectHandler;
+  private final WebSocketHandler webSocketHandler;
+  private final FlashSocketHandler flashSocketHandler;
+  private final XHRPollingHandler xhrPollingHandler;
+  private final JsonpPollingHandler jsonpPollingHandler;
+
+  /**
+   * Creates router for the given handlers. Flash socket and JSONP-Polling handlers may be null if these
+   * transports aren't supported.
+   */
+  public RequestRouterHandler(final HandshakeHandler handshakeHandler, final DisconnectHandler disconnectHandler,
+                              final WebSocketHandler webSocketHandler, final FlashSocketHandler flashSocketHandler,
+                              final XHRPollingHandler xhrPollingHandler, final JsonpPollingHandler jsonpPollingHandler) {
+    this.handshakeHandler = handshakeHandler;
+    this.disconnectHandler = disconnectHandler;
+    this.webSocketHandler = webSocketHandler;
+    this.flashSocketHandler = flashSocketHandler;
+    this.xhrPollingHandler = xhrPollingHandler;
+    this.jsonpPollingHandler = jsonpPollingHandler;
+  }
+
+  @Override
+  public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+    if (msg instanceof HttpRequest) {
+      final HttpRequest req = (HttpRequest) msg;
+      if (route(ctx, req, SocketIORequest.parse(req.uri()))) {
+        return;
+      }
+    }
+    ctx.fireChannelRead(msg);
+  }
+
+  private boolean route(final ChannelHandlerContext ctx, final HttpRequest req, final SocketIORequest request)
+      throws Exception {
+    if (handshakeHandler.handleRequest(ctx, req, request) || disconnectHandler.handleRequest(ctx, req, request)) {
+      return true;
+    }
+    TransportType transportType = request.getTransportType();
+    if (transportType == null || !(req instanceof FullHttpRequest)) {
+      return false;
+    }
+    FullHttpRequest fullReq = (FullHttpRequest) req;
+    switch (transportType) {
+      case WEBSOCKET:
+        return webSocketHandler.handleRequest(ctx, fullReq, request);
+      case FLASHSOCKET:
+        return flashSocketHandler != null && flashSocketHandler.handleRequest(ctx, fullReq, request);
+      case XHR_POLLING:
+        return xhrPollingHandler.handleRequest(ctx, fullReq, request);
+      case JSONP_POLLING:
+        return jsonpPollingHandler != null && jsonpPollingHandler.handleRequest(ctx, fullReq, request);
+      default:
+        return false;
+    }
+  }
+
+}
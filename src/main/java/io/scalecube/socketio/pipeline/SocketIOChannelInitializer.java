@@ -24,6 +24,7 @@ import io.netty.handler.ssl.SslContext;
 import io.netty.util.concurrent.DefaultEventExecutorGroup;
 import io.netty.util.concurrent.EventExecutorGroup;
 import io.scalecube.socketio.PipelineModifier;
+import io.scalecube.socketio.UpgradePipelineModifier;
 import io.scalecube.socketio.SocketIOListener;
 import io.scalecube.socketio.ServerConfiguration;
 import io.scalecube.socketio.TransportType;
@@ -40,13 +41,33 @@ public class SocketIOChannelInitializer extends ChannelInitializer {
   public static final String HTTP_COMPRESSION = "http-compression";
   public static final String WEBSOCKET_COMPRESSION = "websocket-compression";
   public static final String WEBSOCKET_FRAME_AGGREGATOR = "websocket-frame-aggregator";
+  public static final String FLUSH_COALESCING_HANDLER = "flush-coalescing-handler";
   public static final String FLASH_RESOURCE_HANDLER = "flash-resource-handler";
   public static final String SOCKETIO_PACKET_ENCODER = "socketio-packet-encoder";
+  /**
+   * Name of {@link RequestRouterHandler} which handles handshake, disconnect and transport requests. Name is kept
+   * from former handshake handler, so it remains an anchor for handlers added in front of Socket.IO handlers.
+   */
   public static final String SOCKETIO_HANDSHAKE_HANDLER = "socketio-handshake-handler";
+  /**
+   * @deprecated disconnect requests are handled by router named {@link #SOCKETIO_HANDSHAKE_HANDLER}, there is no
+   *             handler with this name in the pipeline
+   */
+  @Deprecated
   public static final String SOCKETIO_DISCONNECT_HANDLER = "socketio-disconnect-handler";
   public static final String SOCKETIO_WEBSOCKET_HANDLER = "socketio-websocket-handler";
   public static final String SOCKETIO_FLASHSOCKET_HANDLER = "socketio-flashsocket-handler";
+  /**
+   * @deprecated XHR-Polling requests are handled by router named {@link #SOCKETIO_HANDSHAKE_HANDLER}, there is no
+   *             handler with this name in the pipeline
+   */
+  @Deprecated
   public static final String SOCKETIO_XHR_POLLING_HANDLER = "socketio-xhr-polling-handler";
+  /**
+   * @deprecated JSONP-Polling requests are handled by router named {@link #SOCKETIO_HANDSHAKE_HANDLER}, there is no
+   *             handler with this name in the pipeline
+   */
+  @Deprecated
   public static final String SOCKETIO_JSONP_POLLING_HANDLER = "socketio-jsonp-polling-handler";
   public static final String SOCKETIO_HEARTBEAT_HANDLER = "socketio-heartbeat-handler";
   public static final String SOCKETIO_PACKET_DISPATCHER = "socketio-packet-dispatcher";
@@ -70,8 +91,11 @@ public class SocketIOChannelInitializer extends ChannelInitializer {
   private final XHRPollingHandler xhrPollingHandler;
   private final JsonpPollingHandler jsonpPollingHandler;
   private final HeartbeatHandler heartbeatHandler;
+  private final RequestRouterHandler requestRouterHandler;
   private final EventExecutorGroup eventExecutorGroup;
   private final PacketDispatcherHandler packetDispatcherHandler;
+  // Executor group created by this initializer for packet dispatching, it is shut down together with server
+  private final EventExecutorGroup dispatcherExecutorGroup;
 
   private final SslContext sslContext;
   private final boolean isFlashSupported;
@@ -82,11 +106,15 @@ public class SocketIOChannelInitializer extends ChannelInitializer {
   private final PipelineModifier pipelineModifier;
 
   public SocketIOChannelInitializer(final ServerConfiguration serverConfiguration, final SocketIOListener listener, final PipelineModifier pipelineModifier) {
+    this(serverConfiguration, listener, pipelineModifier, new SessionStorage(serverConfiguration));
+  }
+
+  public SocketIOChannelInitializer(final ServerConfiguration serverConfiguration, final SocketIOListener listener,
+                                    final PipelineModifier pipelineModifier, final SessionStorage sessionFactory) {
     // Initialize state variables
     this.sslContext = serverConfiguration.getSslContext();
     final String remoteAddressHeader = serverConfiguration.getRemoteAddressHeader();
 
-    final SessionStorage sessionFactory = new SessionStorage(serverConfiguration.getPort());
     isFlashSupported = serverConfiguration.getTransports().contains(TransportType.FLASHSOCKET.getName());
     isJsonpSupported = serverConfiguration.getTransports().contains(TransportType.JSONP_POLLING.getName());
 
@@ -100,30 +128,72 @@ public class SocketIOChannelInitializer extends ChannelInitializer {
     flashResourceHandler.addResource(CONTEXT_PATH + FLASH_SOCKET_RESOURCE_PATH, FLASH_SOCKET_RESOURCE_PATH);
     flashResourceHandler.addResource(CONTEXT_PATH + FLASH_SOCKET_INSECURE_RESOURCE_PATH, FLASH_SOCKET_INSECURE_RESOURCE_PATH);
 
-    packetEncoderHandler = new PacketEncoderHandler();
+    packetEncoderHandler = new PacketEncoderHandler(serverConfiguration.getCompositeBufferThreshold(),
+        sessionFactory.getMetrics());
 
-    handshakeHandler = new HandshakeHandler(HANDSHAKE_PATH, serverConfiguration.getHeartbeatTimeout(), serverConfiguration.getCloseTimeout(), serverConfiguration.getTransports());
+    handshakeHandler = new HandshakeHandler(HANDSHAKE_PATH, serverConfiguration.getHeartbeatTimeout(),
+        serverConfiguration.getCloseTimeout(), serverConfiguration.getTransports(), sessionFactory.getMetrics());
     disconnectHandler = new DisconnectHandler();
     heartbeatHandler = new HeartbeatHandler(sessionFactory);
 
     final boolean secure = (sslContext != null) || serverConfiguration.isAlwaysSecureWebSocketLocation();
     final int maxWebSocketFrameSize = serverConfiguration.getMaxWebSocketFrameSize();
-    webSocketHandler = new WebSocketHandler(HANDSHAKE_PATH, secure, maxWebSocketFrameSize, remoteAddressHeader);
-    flashSocketHandler = new FlashSocketHandler(HANDSHAKE_PATH, secure, maxWebSocketFrameSize, remoteAddressHeader);
-
-    xhrPollingHandler = new XHRPollingHandler(HANDSHAKE_PATH, remoteAddressHeader);
-    jsonpPollingHandler = new JsonpPollingHandler(HANDSHAKE_PATH, remoteAddressHeader);
-
-    packetDispatcherHandler = new PacketDispatcherHandler(sessionFactory, listener);
-    if (serverConfiguration.isEventExecutorEnabled()) {
+    final boolean zeroCopyDecoding = serverConfiguration.isZeroCopyDecodingEnabled();
+    final int flushCoalescingMaxMessages = serverConfiguration.isFlushCoalescingEnabled()
+        ? serverConfiguration.getFlushCoalescingMaxMessages() : 0;
+    final int flushCoalescingMaxBytes = serverConfiguration.isFlushCoalescingEnabled()
+        ? serverConfiguration.getFlushCoalescingMaxBytes() : 0;
+    final boolean binaryWebSocketEnabled = serverConfiguration.isBinaryWebSocketEnabled();
+    webSocketHandler = new WebSocketHandler(HANDSHAKE_PATH, secure, maxWebSocketFrameSize, remoteAddressHeader,
+        zeroCopyDecoding, flushCoalescingMaxMessages, flushCoalescingMaxBytes, binaryWebSocketEnabled);
+    flashSocketHandler = new FlashSocketHandler(HANDSHAKE_PATH, secure, maxWebSocketFrameSize, remoteAddressHeader,
+        zeroCopyDecoding, flushCoalescingMaxMessages, flushCoalescingMaxBytes, binaryWebSocketEnabled);
+
+    xhrPollingHandler = new XHRPollingHandler(HANDSHAKE_PATH, remoteAddressHeader, zeroCopyDecoding);
+    jsonpPollingHandler = new JsonpPollingHandler(HANDSHAKE_PATH, remoteAddressHeader, zeroCopyDecoding);
+    requestRouterHandler = new RequestRouterHandler(handshakeHandler, disconnectHandler, webSocketHandler,
+        isFlashSupported ? flashSocketHandler : null, xhrPollingHandler, isJsonpSupported ? jsonpPollingHandler : null);
+
+    if (listener != null && serverConfiguration.getListenerExecutor() != null) {
+      // Only listener callbacks are offloaded, dispatching itself doesn't block I/O threads
+      SocketIOListener executorListener = new ExecutorSocketIOListener(listener,
+          serverConfiguration.getListenerExecutor(), serverConfiguration.isListenerOrderingEnabled());
+      packetDispatcherHandler = new PacketDispatcherHandler(sessionFactory, executorListener);
+      eventExecutorGroup = null;
+      dispatcherExecutorGroup = null;
+    } else if (serverConfiguration.isEventExecutorEnabled()) {
       int nThreads = serverConfiguration.getEventExecutorThreadNumber() > 0
           ? serverConfiguration.getEventExecutorThreadNumber()
           : Runtime.getRuntime().availableProcessors() * 2;
-      eventExecutorGroup = new DefaultEventExecutorGroup(nThreads);
+      DefaultEventExecutorGroup executorGroup = new DefaultEventExecutorGroup(nThreads);
+      dispatcherExecutorGroup = executorGroup;
+      if (serverConfiguration.isSessionAffinityEnabled()) {
+        // Dispatcher itself selects executor by session id instead of channel
+        packetDispatcherHandler = new PacketDispatcherHandler(sessionFactory, listener, executorGroup);
+        eventExecutorGroup = null;
+      } else {
+        packetDispatcherHandler = new PacketDispatcherHandler(sessionFactory, listener);
+        eventExecutorGroup = executorGroup;
+      }
     } else {
+      packetDispatcherHandler = new PacketDispatcherHandler(sessionFactory, listener);
       eventExecutorGroup = null;
+      dispatcherExecutorGroup = null;
     }
     this.pipelineModifier = pipelineModifier;
+    if (pipelineModifier instanceof UpgradePipelineModifier) {
+      webSocketHandler.setUpgradePipelineModifier((UpgradePipelineModifier) pipelineModifier);
+      flashSocketHandler.setUpgradePipelineModifier((UpgradePipelineModifier) pipelineModifier);
+    }
+  }
+
+  /**
+   * Shuts down executor group which is used for packet dispatching if it was created by this initializer.
+   */
+  public void shutdownGracefully() {
+    if (dispatcherExecutorGroup != null) {
+      dispatcherExecutorGroup.shutdownGracefully().syncUninterruptibly();
+    }
   }
 
   @Override
@@ -153,19 +223,12 @@ public class SocketIOChannelInitializer extends ChannelInitializer {
 
     // Socket.IO
     pipeline.addLast(SOCKETIO_PACKET_ENCODER, packetEncoderHandler);
-    pipeline.addLast(SOCKETIO_HANDSHAKE_HANDLER, handshakeHandler);
-    pipeline.addLast(SOCKETIO_DISCONNECT_HANDLER, disconnectHandler);
     if (isWebsocketCompressionEnabled) {
       pipeline.addLast(WEBSOCKET_COMPRESSION, new WebSocketServerCompressionHandler());
     }
-    pipeline.addLast(SOCKETIO_WEBSOCKET_HANDLER, webSocketHandler);
-    if (isFlashSupported) {
-      pipeline.addLast(SOCKETIO_FLASHSOCKET_HANDLER, flashSocketHandler);
-    }
-    pipeline.addLast(SOCKETIO_XHR_POLLING_HANDLER, xhrPollingHandler);
-    if (isJsonpSupported) {
-      pipeline.addLast(SOCKETIO_JSONP_POLLING_HANDLER, jsonpPollingHandler);
-    }
+    // Router handles handshake, disconnect and polling requests. On WebSocket upgrade it is replaced by
+    // the socket handler and HTTP handlers are removed, so upgraded channel has only frame handlers.
+    pipeline.addLast(SOCKETIO_HANDSHAKE_HANDLER, requestRouterHandler);
     pipeline.addLast(SOCKETIO_HEARTBEAT_HANDLER, heartbeatHandler);
     pipeline.addLast(eventExecutorGroup, SOCKETIO_PACKET_DISPATCHER, packetDispatcherHandler);
 
@@ -0,0 +1,175 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.pipeline;
+
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.util.CharsetUtil;
+import io.scalecube.socketio.TransportType;
+
+/**
+ * Socket.IO request URI parsed once for all handlers. Request path has the following structure:
+ *
+ * <p>
+ * {@code '/' [context] '/' [protocol] '/' [transport] '/' [session id] ('?' [query])}
+ * </p>
+ *
+ * <p>
+ * Path is split without regular expressions and decoded only if it contains escaped characters. Query parameters
+ * are decoded lazily on first access.
+ * </p>
+ */
+final class SocketIORequest {
+
+  private static final String DISCONNECT = "disconnect";
+  private static final TransportType[] TRANSPORT_TYPES = TransportType.values();
+
+  private final String path;
+  private final String protocol;
+  private final String transport;
+  private final TransportType transportType;
+  private final String sessionId;
+  private final String query;
+  private final boolean disconnect;
+
+  private QueryStringDecoder queryDecoder;
+
+  private SocketIORequest(String path, String protocol, String transport, String sessionId, String query) {
+    this.path = path;
+    this.protocol = protocol;
+    this.transport = transport;
+    this.transportType = findTransportType(transport);
+    this.sessionId = sessionId;
+    this.query = query;
+    this.disconnect = hasParameter(query, DISCONNECT);
+  }
+
+  /**
+   * Parses the given request URI.
+   */
+  static SocketIORequest parse(final String uri) {
+    int queryIndex = uri.indexOf('?');
+    String path = queryIndex < 0 ? uri : uri.substring(0, queryIndex);
+    String query = queryIndex < 0 ? null : uri.substring(queryIndex + 1);
+    if (path.indexOf('%') >= 0 || path.indexOf('+') >= 0) {
+      path = QueryStringDecoder.decodeComponent(path, CharsetUtil.UTF_8);
+    }
+
+    // Segments after leading slash: context, protocol, transport and session id
+    String[] segments = new String[4];
+    int start = path.startsWith("/") ? 1 : 0;
+    for (int i = 0; i < segments.length && start <= path.length(); i++) {
+      int end = path.indexOf('/', start);
+      if (end < 0) {
+        end = path.length();
+      }
+      segments[i] = path.substring(start, end);
+      start = end + 1;
+    }
+    String sessionId = segments[3] != null && !segments[3].isEmpty() ? segments[3] : null;
+    return new SocketIORequest(path, segments[1], segments[2], sessionId, query);
+  }
+
+  /**
+   * Returns decoded path of the request without query.
+   */
+  String getPath() {
+    return path;
+  }
+
+  /**
+   * Returns protocol version segment of the path or null if there is no such segment.
+   */
+  String getProtocol() {
+    return protocol;
+  }
+
+  /**
+   * Returns transport segment of the path or null if there is no such segment.
+   */
+  String getTransport() {
+    return transport;
+  }
+
+  /**
+   * Returns transport type by the transport segment of the path or null if it is unknown transport.
+   */
+  TransportType getTransportType() {
+    return transportType;
+  }
+
+  /**
+   * Returns session id segment of the path or null if there is no such segment.
+   */
+  String getSessionId() {
+    return sessionId;
+  }
+
+  /**
+   * Returns true if request has "disconnect" query parameter, i.e. it is forced disconnect request.
+   */
+  boolean isDisconnect() {
+    return disconnect;
+  }
+
+  /**
+   * Returns first value of the given query parameter or null if there is no such parameter.
+   */
+  String getParameter(final String name) {
+    if (query == null) {
+      return null;
+    }
+    if (queryDecoder == null) {
+      queryDecoder = new QueryStringDecoder(query, CharsetUtil.UTF_8, false);
+    }
+    return PipelineUtils.extractParameter(queryDecoder, name);
+  }
+
+  private static TransportType findTransportType(final String transport) {
+    if (transport != null) {
+      for (TransportType transportType : TRANSPORT_TYPES) {
+        if (transportType.getName().equals(transport)) {
+          return transportType;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static boolean hasParameter(final String query, final String name) {
+    if (query == null) {
+      return false;
+    }
+    int start = 0;
+    while (start <= query.length()) {
+      int end = query.indexOf('&', start);
+      if (end < 0) {
+        end = query.length();
+      }
+      int nameEnd = query.indexOf('=', start);
+      if (nameEnd < 0 || nameEnd > end) {
+        nameEnd = end;
+      }
+      if (nameEnd - start == name.length() && query.startsWith(name, start)) {
+        return true;
+      }
+      start = end + 1;
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return "SocketIORequest{path=" + path + ", query=" + query + '}';
+  }
+
+}
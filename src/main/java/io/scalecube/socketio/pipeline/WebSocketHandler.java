@@ -12,16 +12,18 @@
  */
 package io.scalecube.socketio.pipeline;
 
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpRequest;
-import io.netty.handler.codec.http.QueryStringDecoder;
 import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
@@ -31,17 +33,19 @@ import io.netty.handler.codec.http.websocketx.WebSocketFrame;
 import io.netty.handler.codec.http.websocketx.WebSocketFrameAggregator;
 import io.netty.handler.codec.http.websocketx.WebSocketServerHandshaker;
 import io.netty.handler.codec.http.websocketx.WebSocketServerHandshakerFactory;
+import io.netty.util.AttributeKey;
 import io.netty.util.ReferenceCountUtil;
 import io.scalecube.socketio.TransportType;
+import io.scalecube.socketio.UpgradePipelineModifier;
 import io.scalecube.socketio.packets.ConnectPacket;
 import io.scalecube.socketio.packets.Packet;
+import io.scalecube.socketio.serialization.BinaryPacketEncoding;
 import io.scalecube.socketio.serialization.PacketDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.SocketAddress;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
 
 /**
  *
@@ -51,81 +55,199 @@ import java.util.concurrent.ConcurrentHashMap;
 @ChannelHandler.Sharable
 public class WebSocketHandler extends ChannelInboundHandlerAdapter {
 
+  /**
+   * Query parameter of the handshake request which enables binary frames mode if its value is "1" or "true".
+   */
+  public static final String BINARY_MODE_PARAMETER = "binary";
+
+  /**
+   * WebSocket subprotocol which enables binary frames mode.
+   */
+  public static final String BINARY_SUBPROTOCOL = "socketio-binary";
+
+  /**
+   * Attribute which is set for channels which negotiated binary frames mode. Packets of such channels are sent
+   * and received in binary frames encoded by {@link BinaryPacketEncoding}.
+   */
+  public static final AttributeKey<Boolean> BINARY_MODE = AttributeKey.valueOf(WebSocketHandler.class, "binary-mode");
+
   private final Logger log = LoggerFactory.getLogger(getClass());
 
-  private final Map<Object, String> sessionIdByChannel = new ConcurrentHashMap<>();
+  // Id of the session connected by this handler, key is per transport type since channel is handled only by
+  // the handler of its transport
+  private final AttributeKey<String> sessionIdKey;
   private final String connectPath;
   private final boolean secure;
   private final String remoteAddressHeader;
   private final int maxWebSocketFrameSize;
+  private final boolean zeroCopyDecoding;
+  private final int flushCoalescingMaxMessages;
+  private final int flushCoalescingMaxBytes;
+  private final boolean binaryModeEnabled;
+  // Factory for handshakes of WebSocket versions 07+ which don't send location in handshake response
+  private final WebSocketServerHandshakerFactory handshakerFactory;
+
+  // Invoked once pipeline of the channel is upgraded, null if there is no such modifier
+  private volatile UpgradePipelineModifier upgradePipelineModifier;
 
   public WebSocketHandler(final String handshakePath, final boolean secure, final int maxWebSocketFrameSize,
                           final String remoteAddressHeader) {
+    this(handshakePath, secure, maxWebSocketFrameSize, remoteAddressHeader, false);
+  }
+
+  public WebSocketHandler(final String handshakePath, final boolean secure, final int maxWebSocketFrameSize,
+                          final String remoteAddressHeader, final boolean zeroCopyDecoding) {
+    this(handshakePath, secure, maxWebSocketFrameSize, remoteAddressHeader, zeroCopyDecoding, 0, 0);
+  }
+
+  /**
+   * Creates handler which adds {@link FlushCoalescingHandler} with the given thresholds to the pipeline of
+   * handshaked channels. If thresholds aren't positive flushes aren't coalesced.
+   */
+  public WebSocketHandler(final String handshakePath, final boolean secure, final int maxWebSocketFrameSize,
+                          final String remoteAddressHeader, final boolean zeroCopyDecoding,
+                          final int flushCoalescingMaxMessages, final int flushCoalescingMaxBytes) {
+    this(handshakePath, secure, maxWebSocketFrameSize, remoteAddressHeader, zeroCopyDecoding,
+        flushCoalescingMaxMessages, flushCoalescingMaxBytes, false);
+  }
+
+  /**
+   * Creates handler which also allows clients to negotiate binary frames mode by {@link #BINARY_MODE_PARAMETER}
+   * query parameter or {@link #BINARY_SUBPROTOCOL} subprotocol if binary mode is enabled.
+   */
+  public WebSocketHandler(final String handshakePath, final boolean secure, final int maxWebSocketFrameSize,
+                          final String remoteAddressHeader, final boolean zeroCopyDecoding,
+                          final int flushCoalescingMaxMessages, final int flushCoalescingMaxBytes,
+                          final boolean binaryModeEnabled) {
     this.connectPath = handshakePath + getTransportType().getName();
+    this.sessionIdKey = AttributeKey.valueOf(WebSocketHandler.class, getTransportType().getName() + "-session-id");
     this.secure = secure;
     this.remoteAddressHeader = remoteAddressHeader;
     this.maxWebSocketFrameSize = maxWebSocketFrameSize;
+    this.zeroCopyDecoding = zeroCopyDecoding;
+    this.flushCoalescingMaxMessages = flushCoalescingMaxMessages;
+    this.flushCoalescingMaxBytes = flushCoalescingMaxBytes;
+    this.binaryModeEnabled = binaryModeEnabled;
+    this.handshakerFactory = newHandshakerFactory((secure ? "wss://" : "ws://") + "localhost" + connectPath);
+  }
+
+  /**
+   * Returns true if the given channel negotiated binary frames mode.
+   */
+  public static boolean isBinaryMode(Channel channel) {
+    return channel.hasAttr(BINARY_MODE) && Boolean.TRUE.equals(channel.attr(BINARY_MODE).get());
   }
 
   protected TransportType getTransportType() {
     return TransportType.WEBSOCKET;
   }
 
+  /**
+   * Sets modifier which is invoked once pipeline of the channel is upgraded.
+   */
+  void setUpgradePipelineModifier(UpgradePipelineModifier upgradePipelineModifier) {
+    this.upgradePipelineModifier = upgradePipelineModifier;
+  }
+
+  /**
+   * Returns name of this handler in the pipeline of upgraded channel.
+   */
+  protected String getHandlerName() {
+    return SocketIOChannelInitializer.SOCKETIO_WEBSOCKET_HANDLER;
+  }
+
   @Override
   public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
     if (msg instanceof FullHttpRequest) {
       FullHttpRequest req = (FullHttpRequest) msg;
-      if (req.method() == HttpMethod.GET && req.uri().startsWith(connectPath)) {
-        final QueryStringDecoder queryDecoder = new QueryStringDecoder(req.uri());
-        final String requestPath = queryDecoder.path();
-
-        if (log.isDebugEnabled())
-          log.debug("Received HTTP {} handshake request: {} from channel: {}", getTransportType().getName(), req, ctx.channel());
-
-        try {
-          handshake(ctx, req, requestPath);
-        } catch (Exception e) {
-          log.error("Error during {} handshake : {}", getTransportType().getName(), e);
-        } finally {
-          ReferenceCountUtil.release(msg);
-        }
+      if (req.uri().startsWith(connectPath) && handleRequest(ctx, req, SocketIORequest.parse(req.uri()))) {
+        return;
+      }
+    } else if (msg instanceof WebSocketFrame) {
+      String sessionId = getSessionId(ctx);
+      if (sessionId != null) {
+        handleWebSocketFrame(ctx, (WebSocketFrame) msg, sessionId);
         return;
       }
-    } else if (msg instanceof WebSocketFrame && isCurrentHandlerSession(ctx)) {
-      handleWebSocketFrame(ctx, (WebSocketFrame) msg);
-      return;
     }
     ctx.fireChannelRead(msg);
   }
 
-  @Override
-  public void channelInactive(ChannelHandlerContext ctx) throws Exception {
-    sessionIdByChannel.remove(ctx.channel());
-    super.channelInactive(ctx);
+  /**
+   * Handles WebSocket upgrade request of this handler's transport.
+   *
+   * @return true if request was handled and released; false otherwise
+   */
+  boolean handleRequest(final ChannelHandlerContext ctx, final FullHttpRequest req, final SocketIORequest request) {
+    if (req.method() != HttpMethod.GET || !request.getPath().startsWith(connectPath)) {
+      return false;
+    }
+    if (log.isDebugEnabled())
+      log.debug("Received HTTP {} handshake request: {} from channel: {}", getTransportType().getName(), req, ctx.channel());
+
+    try {
+      handshake(ctx, req, request.getSessionId(), isBinaryModeRequested(request));
+    } catch (Exception e) {
+      log.error("Error during {} handshake : {}", getTransportType().getName(), e);
+    } finally {
+      ReferenceCountUtil.release(req);
+    }
+    return true;
+  }
+
+  private String getSessionId(ChannelHandlerContext ctx) {
+    return ctx.channel().hasAttr(sessionIdKey) ? ctx.channel().attr(sessionIdKey).get() : null;
+  }
+
+  private boolean isBinaryModeRequested(final SocketIORequest request) {
+    if (!binaryModeEnabled) {
+      return false;
+    }
+    String binaryMode = request.getParameter(BINARY_MODE_PARAMETER);
+    return "1".equals(binaryMode) || "true".equalsIgnoreCase(binaryMode);
+  }
+
+  private WebSocketServerHandshakerFactory newHandshakerFactory(final String webSocketLocation) {
+    return new WebSocketServerHandshakerFactory(webSocketLocation, binaryModeEnabled ? BINARY_SUBPROTOCOL : null,
+        true, maxWebSocketFrameSize);
   }
 
-  private boolean isCurrentHandlerSession(ChannelHandlerContext ctx) {
-    return sessionIdByChannel.containsKey(ctx.channel());
+  private WebSocketServerHandshaker newHandshaker(final HttpRequest req) {
+    HttpHeaders headers = req.headers();
+    if (headers.contains(HttpHeaderNames.SEC_WEBSOCKET_VERSION)) {
+      return handshakerFactory.newHandshaker(req);
+    }
+    // Hixie-76 handshake response contains location, so factory is created per request
+    return newHandshakerFactory(getWebSocketLocation(req)).newHandshaker(req);
   }
 
-  private void handshake(final ChannelHandlerContext ctx, final FullHttpRequest req, final String requestPath) {
-    WebSocketServerHandshakerFactory wsFactory =
-        new WebSocketServerHandshakerFactory(getWebSocketLocation(req), null, true, maxWebSocketFrameSize);
-    WebSocketServerHandshaker handshaker = wsFactory.newHandshaker(req);
+  private void handshake(final ChannelHandlerContext ctx, final FullHttpRequest req, final String sessionId,
+                         final boolean binaryModeRequested) {
+    final WebSocketServerHandshaker handshaker = newHandshaker(req);
     if (handshaker != null) {
-      handshaker.handshake(ctx.channel(), req).addListener(
+      ChannelFuture handshakeFuture = handshaker.handshake(ctx.channel(), req);
+      final ChannelHandlerContext handlerCtx = upgradePipeline(ctx);
+      handshakeFuture.addListener(
           new ChannelFutureListener() {
             @Override
             public void operationComplete(ChannelFuture future) throws Exception {
-              final String sessionId = PipelineUtils.getSessionId(requestPath);
               if (future.isSuccess()) {
-                ctx.channel().pipeline().addBefore(
-                    SocketIOChannelInitializer.SOCKETIO_WEBSOCKET_HANDLER,
-                    SocketIOChannelInitializer.WEBSOCKET_FRAME_AGGREGATOR,
-                    new WebSocketFrameAggregator(maxWebSocketFrameSize));
-                connect(ctx, req, sessionId);
+                // Frame aggregator is added on demand when first fragmented frame is received
+                if (flushCoalescingMaxMessages > 0 && flushCoalescingMaxBytes > 0) {
+                  // Placed before packet encoder in order to account size of encoded frames
+                  handlerCtx.pipeline().addBefore(
+                      SocketIOChannelInitializer.SOCKETIO_PACKET_ENCODER,
+                      SocketIOChannelInitializer.FLUSH_COALESCING_HANDLER,
+                      new FlushCoalescingHandler(flushCoalescingMaxMessages, flushCoalescingMaxBytes));
+                }
+                if (binaryModeRequested || BINARY_SUBPROTOCOL.equals(handshaker.selectedSubprotocol())) {
+                  handlerCtx.channel().attr(BINARY_MODE).set(Boolean.TRUE);
+                }
+                connect(handlerCtx, req, sessionId);
               } else {
+                // Pipeline is already upgraded, so channel can't serve HTTP requests anymore
                 log.error("Can't handshake: {}", sessionId, future.cause());
+                future.channel().close();
               }
             }
           });
@@ -134,6 +256,32 @@ public class WebSocketHandler extends ChannelInboundHandlerAdapter {
     }
   }
 
+  /**
+   * Leaves in the pipeline of upgraded channel only handlers which are needed for frames. HTTP decoder, aggregator
+   * and compressor are removed by handshaker and HTTP encoder is removed by it once handshake response is written.
+   * If request was routed to this handler by {@link RequestRouterHandler} this handler takes place of the router.
+   * Pipeline is upgraded as soon as handshake response is sent, since handshaker has already replaced HTTP decoder,
+   * and channel is closed if handshake fails.
+   *
+   * @return context of this handler
+   */
+  private ChannelHandlerContext upgradePipeline(final ChannelHandlerContext ctx) {
+    ChannelPipeline pipeline = ctx.pipeline();
+    if (pipeline.get(SocketIOChannelInitializer.FLASH_RESOURCE_HANDLER) != null) {
+      pipeline.remove(SocketIOChannelInitializer.FLASH_RESOURCE_HANDLER);
+    }
+    ChannelHandlerContext handlerCtx = ctx;
+    if (ctx.handler() != this) {
+      pipeline.replace(ctx.name(), getHandlerName(), this);
+      handlerCtx = pipeline.context(this);
+    }
+    UpgradePipelineModifier modifier = upgradePipelineModifier;
+    if (modifier != null) {
+      modifier.modifyUpgradedPipeline(pipeline, getTransportType());
+    }
+    return handlerCtx;
+  }
+
   private String getWebSocketLocation(HttpRequest req) {
     String protocol = secure ? "wss://" : "ws://";
     String webSocketLocation = protocol + req.headers().get(HttpHeaderNames.HOST) + req.uri();
@@ -143,7 +291,7 @@ public class WebSocketHandler extends ChannelInboundHandlerAdapter {
   }
 
   private void connect(ChannelHandlerContext ctx, HttpRequest req, String sessionId) throws Exception {
-    sessionIdByChannel.put(ctx.channel(), sessionId);
+    ctx.channel().attr(sessionIdKey).set(sessionId);
 
     SocketAddress clientIp = PipelineUtils.resolveClientIpByRemoteAddressHeader(req, remoteAddressHeader);
 
@@ -154,20 +302,40 @@ public class WebSocketHandler extends ChannelInboundHandlerAdapter {
     ctx.fireChannelRead(packet);
   }
 
-  private void handleWebSocketFrame(ChannelHandlerContext ctx, WebSocketFrame msg) throws Exception {
+  private void handleWebSocketFrame(ChannelHandlerContext ctx, WebSocketFrame msg, String sessionId)
+      throws Exception {
     if (log.isDebugEnabled())
       log.debug("Received {} WebSocketFrame: {} from channel: {}", getTransportType().getName(), msg, ctx.channel());
 
+    if (!msg.isFinalFragment() && ctx.pipeline().get(SocketIOChannelInitializer.WEBSOCKET_FRAME_AGGREGATOR) == null) {
+      // Most clients don't fragment messages, so pipeline of the channel is modified only if it is needed
+      WebSocketFrameAggregator aggregator = new WebSocketFrameAggregator(maxWebSocketFrameSize);
+      ctx.pipeline().addBefore(ctx.name(), SocketIOChannelInitializer.WEBSOCKET_FRAME_AGGREGATOR, aggregator);
+      aggregator.channelRead(ctx.pipeline().context(aggregator), msg);
+      return;
+    }
+
     if (msg instanceof CloseWebSocketFrame) {
-      sessionIdByChannel.remove(ctx.channel());
+      ctx.channel().attr(sessionIdKey).set(null);
       ChannelFuture f = ctx.writeAndFlush(msg);
       f.addListener(ChannelFutureListener.CLOSE);
     } else if (msg instanceof PingWebSocketFrame) {
       ctx.writeAndFlush(new PongWebSocketFrame(msg.content()));
+    } else if (msg instanceof BinaryWebSocketFrame && isBinaryMode(ctx.channel())) {
+      List<Packet> packets;
+      try {
+        packets = BinaryPacketEncoding.decodePackets(msg.content());
+      } finally {
+        msg.release();
+      }
+      for (Packet packet : packets) {
+        packet.setTransportType(getTransportType());
+        packet.setSessionId(sessionId);
+        ctx.fireChannelRead(packet);
+      }
     } else if (msg instanceof TextWebSocketFrame || msg instanceof BinaryWebSocketFrame){
-      Packet packet = PacketDecoder.decodePacket(msg.content());
+      Packet packet = PacketDecoder.decodePacket(msg.content(), zeroCopyDecoding);
       packet.setTransportType(getTransportType());
-      String sessionId = sessionIdByChannel.get(ctx.channel());
       packet.setSessionId(sessionId);
       msg.release();
       ctx.fireChannelRead(packet);
@@ -16,19 +16,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.SocketAddress;
-import java.util.List;
 
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpMethod;
-import io.netty.handler.codec.http.QueryStringDecoder;
 import io.netty.util.ReferenceCountUtil;
 import io.scalecube.socketio.TransportType;
 import io.scalecube.socketio.packets.ConnectPacket;
 import io.scalecube.socketio.packets.Packet;
 import io.scalecube.socketio.serialization.PacketFramer;
+import io.scalecube.socketio.serialization.PacketSink;
 
 @ChannelHandler.Sharable
 public class XHRPollingHandler extends ChannelInboundHandlerAdapter {
@@ -37,54 +36,74 @@ public class XHRPollingHandler extends ChannelInboundHandlerAdapter {
 
   private final String connectPath;
   private final String remoteAddressHeader;
+  private final boolean zeroCopyDecoding;
 
   public XHRPollingHandler(final String handshakePath, final String remoteAddressHeader) {
+    this(handshakePath, remoteAddressHeader, false);
+  }
+
+  public XHRPollingHandler(final String handshakePath, final String remoteAddressHeader, final boolean zeroCopyDecoding) {
     this.connectPath = handshakePath + TransportType.XHR_POLLING.getName();
     this.remoteAddressHeader = remoteAddressHeader;
+    this.zeroCopyDecoding = zeroCopyDecoding;
   }
 
   @Override
-  public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+  public void channelRead(final ChannelHandlerContext ctx, Object msg) throws Exception {
     if (msg instanceof FullHttpRequest) {
       final FullHttpRequest req = (FullHttpRequest) msg;
-      final HttpMethod requestMethod = req.method();
-      final QueryStringDecoder queryDecoder = new QueryStringDecoder(req.uri());
-      final String requestPath = queryDecoder.path();
-
-      if (requestPath.startsWith(connectPath)) {
-        if (log.isDebugEnabled())
-          log.debug("Received HTTP XHR-Polling request: {} {} from channel: {}", requestMethod, requestPath, ctx.channel());
-
-        final String sessionId = PipelineUtils.getSessionId(requestPath);
-        final String origin = PipelineUtils.getOrigin(req);
-
-        if (HttpMethod.GET.equals(requestMethod)) {
-          SocketAddress clientIp = PipelineUtils.resolveClientIpByRemoteAddressHeader(req, remoteAddressHeader);
-
-          // Process polling request from client
-          final ConnectPacket packet = new ConnectPacket(sessionId, origin);
-          packet.setTransportType(TransportType.XHR_POLLING);
-          packet.setRemoteAddress(clientIp);
-
-          ctx.fireChannelRead(packet);
-        } else if (HttpMethod.POST.equals(requestMethod)) {
-          // Process message request from client
-          List<Packet> packets = PacketFramer.decodePacketsFrame(req.content());
-          for (Packet packet : packets) {
+      if (handleRequest(ctx, req, SocketIORequest.parse(req.uri()))) {
+        return;
+      }
+    }
+
+    ctx.fireChannelRead(msg);
+  }
+
+  /**
+   * Handles polling or message request of XHR-Polling transport.
+   *
+   * @return true if request was handled and released; false otherwise
+   */
+  boolean handleRequest(final ChannelHandlerContext ctx, final FullHttpRequest req, final SocketIORequest request)
+      throws Exception {
+    final HttpMethod requestMethod = req.method();
+    final String requestPath = request.getPath();
+
+    if (requestPath.startsWith(connectPath)) {
+      if (log.isDebugEnabled())
+        log.debug("Received HTTP XHR-Polling request: {} {} from channel: {}", requestMethod, requestPath, ctx.channel());
+
+      final String sessionId = request.getSessionId();
+      final String origin = PipelineUtils.getOrigin(req);
+
+      if (HttpMethod.GET.equals(requestMethod)) {
+        SocketAddress clientIp = PipelineUtils.resolveClientIpByRemoteAddressHeader(req, remoteAddressHeader);
+
+        // Process polling request from client
+        final ConnectPacket packet = new ConnectPacket(sessionId, origin);
+        packet.setTransportType(TransportType.XHR_POLLING);
+        packet.setRemoteAddress(clientIp);
+
+        ctx.fireChannelRead(packet);
+      } else if (HttpMethod.POST.equals(requestMethod)) {
+        // Process message request from client
+        PacketFramer.decodePacketsFrame(req.content(), zeroCopyDecoding, new PacketSink() {
+          @Override
+          public void accept(Packet packet) {
             packet.setSessionId(sessionId);
             packet.setOrigin(origin);
             ctx.fireChannelRead(packet);
           }
-        } else {
-          log.warn("Can't process HTTP XHR-Polling request. Unknown request method: {} from channel: {}", requestMethod,
-              ctx.channel());
-        }
-        ReferenceCountUtil.release(msg);
-        return;
+        });
+      } else {
+        log.warn("Can't process HTTP XHR-Polling request. Unknown request method: {} from channel: {}", requestMethod,
+            ctx.channel());
       }
+      ReferenceCountUtil.release(req);
+      return true;
     }
-
-    ctx.fireChannelRead(msg);
+    return false;
   }
 
 }
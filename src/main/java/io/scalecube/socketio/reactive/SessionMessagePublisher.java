@@ -0,0 +1,217 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.reactive;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.scalecube.socketio.Session;
+import io.scalecube.socketio.session.AbstractSession;
+import io.scalecube.socketio.session.AbstractSocketSession;
+
+/**
+ * Reactive Streams publisher of messages received from the session. Messages are supposed to be passed to
+ * {@link #onMessage(ByteBuf)} from {@link io.scalecube.socketio.SocketIOListener#onMessage(Session, ByteBuf)} and
+ * are buffered until subscriber requests them. When buffer is full reading from the session's channel is suspended
+ * until subscriber consumes half of the buffer. Reading of polling sessions can't be suspended, since each request
+ * uses new channel, so for them buffer isn't bounded. Channel is resolved each time reading is suspended, so
+ * backpressure is applied to the socket channel of polling session which was upgraded in place. Publisher supports single subscriber which is responsible for
+ * releasing received messages.
+ */
+public final class SessionMessagePublisher implements Publisher<ByteBuf> {
+
+  public static final int DEFAULT_BUFFER_SIZE = 256;
+
+  private final Session session;
+  private final int bufferSize;
+
+  private final Queue<ByteBuf> messages = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final AtomicLong requested = new AtomicLong();
+  private final AtomicInteger wip = new AtomicInteger();
+  private final AtomicReference<Subscriber<? super ByteBuf>> subscriberHolder = new AtomicReference<>();
+
+  private volatile boolean completed;
+  private volatile boolean cancelled;
+  // Error which is signalled to subscriber from drain loop, so it is serialized with other signals
+  private volatile Throwable error;
+  private boolean terminated;
+  // Reading state is changed only from drain loop, so it is serialized with consuming of messages
+  private boolean readingSuspended;
+  private Channel suspendedChannel;
+
+  public SessionMessagePublisher(Session session) {
+    this(session, DEFAULT_BUFFER_SIZE);
+  }
+
+  public SessionMessagePublisher(Session session, int bufferSize) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+    }
+    this.session = session;
+    this.bufferSize = bufferSize;
+  }
+
+  @Override
+  public void subscribe(final Subscriber<? super ByteBuf> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("Subscriber is null");
+    }
+    if (!subscriberHolder.compareAndSet(null, subscriber)) {
+      subscriber.onSubscribe(new Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+      });
+      subscriber.onError(new IllegalStateException("Publisher allows only one subscriber"));
+      return;
+    }
+    subscriber.onSubscribe(new Subscription() {
+      @Override
+      public void request(long n) {
+        if (n <= 0) {
+          error = new IllegalArgumentException("Requested number must be positive: " + n);
+          cancelled = true;
+          drain();
+          return;
+        }
+        addRequested(n);
+        drain();
+      }
+
+      @Override
+      public void cancel() {
+        cancelled = true;
+        drain();
+      }
+    });
+    drain();
+  }
+
+  /**
+   * Publishes message received from the session. Ownership of the message is transferred to the publisher.
+   */
+  public void onMessage(ByteBuf message) {
+    if (completed || cancelled) {
+      message.release();
+      return;
+    }
+    messages.add(message);
+    size.incrementAndGet();
+    drain();
+  }
+
+  /**
+   * Completes publisher after all buffered messages are delivered. It is supposed to be called from
+   * {@link io.scalecube.socketio.SocketIOListener#onDisconnect(Session)}.
+   */
+  public void onDisconnect() {
+    completed = true;
+    drain();
+  }
+
+  private void drain() {
+    if (wip.getAndIncrement() != 0) {
+      return;
+    }
+    int missed = 1;
+    do {
+      Subscriber<? super ByteBuf> subscriber = subscriberHolder.get();
+      if (cancelled) {
+        clear();
+        Throwable e = error;
+        if (e != null && subscriber != null && !terminated) {
+          terminated = true;
+          subscriber.onError(e);
+        }
+      } else if (subscriber != null && !terminated) {
+        long r = requested.get();
+        long emitted = 0;
+        ByteBuf message;
+        while (emitted != r && !cancelled && (message = messages.poll()) != null) {
+          size.decrementAndGet();
+          subscriber.onNext(message);
+          emitted++;
+        }
+        if (emitted != 0 && r != Long.MAX_VALUE) {
+          requested.addAndGet(-emitted);
+        }
+        if (completed && messages.isEmpty() && !cancelled) {
+          terminated = true;
+          subscriber.onComplete();
+        }
+      }
+      updateReading();
+      missed = wip.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  private void clear() {
+    ByteBuf message;
+    while ((message = messages.poll()) != null) {
+      size.decrementAndGet();
+      message.release();
+    }
+  }
+
+  private void addRequested(long n) {
+    for (;;) {
+      long current = requested.get();
+      long next = current + n;
+      if (next < 0) {
+        next = Long.MAX_VALUE;
+      }
+      if (requested.compareAndSet(current, next)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Suspends reading when buffer is full and resumes it when half of the buffer is consumed. If session channel
+   * changed while reading was suspended, reading of the previous channel is resumed and of the new one is suspended.
+   */
+  private void updateReading() {
+    int currentSize = size.get();
+    readingSuspended = readingSuspended ? currentSize > bufferSize / 2 : currentSize >= bufferSize;
+    Channel channel = readingSuspended ? getSocketChannel() : null;
+    if (channel != suspendedChannel) {
+      if (suspendedChannel != null) {
+        suspendedChannel.config().setAutoRead(true);
+      }
+      if (channel != null) {
+        channel.config().setAutoRead(false);
+      }
+      suspendedChannel = channel;
+    }
+  }
+
+  private Channel getSocketChannel() {
+    Session current = session instanceof AbstractSession ? ((AbstractSession) session).getCurrentSession() : session;
+    return current instanceof AbstractSocketSession ? ((AbstractSocketSession) current).getChannel() : null;
+  }
+
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.reactive;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.netty.buffer.ByteBuf;
+import io.scalecube.socketio.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reactive Streams subscriber which sends received messages to the session. It requests up to prefetch messages
+ * while session is writable and stops requesting when session isn't writable (e.g. client reads slower than
+ * messages are produced) until session becomes writable again. Subscription is cancelled when session is
+ * disconnected. If publisher fails the error is logged and, if subscriber is created with disconnectOnError
+ * flag, the session is disconnected.
+ */
+public final class SessionSubscriber implements Subscriber<ByteBuf> {
+
+  public static final int DEFAULT_PREFETCH = 16;
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  private final Session session;
+  private final int prefetch;
+  private final boolean disconnectOnError;
+
+  private final AtomicLong outstanding = new AtomicLong();
+  private final AtomicBoolean waitingForWritability = new AtomicBoolean();
+  private final Runnable onWritable = new Runnable() {
+    @Override
+    public void run() {
+      waitingForWritability.set(false);
+      requestMore();
+    }
+  };
+
+  private Subscription subscription;
+  private volatile boolean cancelled;
+
+  public SessionSubscriber(Session session) {
+    this(session, DEFAULT_PREFETCH);
+  }
+
+  public SessionSubscriber(Session session, int prefetch) {
+    this(session, prefetch, false);
+  }
+
+  /**
+   * Creates subscriber which disconnects the session if publisher fails and the given flag is set. Otherwise
+   * session stays open and only the error is logged.
+   */
+  public SessionSubscriber(Session session, int prefetch, boolean disconnectOnError) {
+    if (prefetch <= 0) {
+      throw new IllegalArgumentException("Prefetch must be positive: " + prefetch);
+    }
+    this.session = session;
+    this.prefetch = prefetch;
+    this.disconnectOnError = disconnectOnError;
+  }
+
+  @Override
+  public void onSubscribe(Subscription subscription) {
+    if (subscription == null) {
+      throw new NullPointerException("Subscription is null");
+    }
+    synchronized (this) {
+      if (this.subscription != null) {
+        subscription.cancel();
+        return;
+      }
+      this.subscription = subscription;
+    }
+    requestMore();
+  }
+
+  @Override
+  public void onNext(ByteBuf message) {
+    if (message == null) {
+      throw new NullPointerException("Message is null");
+    }
+    if (cancelled) {
+      message.release();
+      return;
+    }
+    outstanding.decrementAndGet();
+    session.send(message);
+    requestMore();
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    if (throwable == null) {
+      throw new NullPointerException("Throwable is null");
+    }
+    // Subscription is terminated, so nothing is requested anymore
+    cancelled = true;
+    log.warn("Publisher of messages to session {} failed", session.getSessionId(), throwable);
+    if (disconnectOnError) {
+      session.disconnect();
+    }
+  }
+
+  @Override
+  public void onComplete() {
+    // Subscription is terminated, so nothing is requested anymore
+    cancelled = true;
+  }
+
+  private synchronized void requestMore() {
+    if (cancelled) {
+      return;
+    }
+    if (session.getState() == Session.State.DISCONNECTED) {
+      cancelled = true;
+      subscription.cancel();
+      return;
+    }
+    if (!session.isWritable()) {
+      if (waitingForWritability.compareAndSet(false, true)) {
+        session.runWhenWritable(onWritable);
+      }
+      return;
+    }
+    // Request in batches of at least half of prefetch
+    long current = outstanding.get();
+    long n = prefetch - current;
+    if (n > 0 && (current == 0 || n >= prefetch / 2)) {
+      outstanding.addAndGet(n);
+      subscription.request(n);
+    }
+  }
+
+}
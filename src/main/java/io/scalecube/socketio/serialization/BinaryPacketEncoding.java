@@ -0,0 +1,169 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.serialization;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.scalecube.socketio.packets.Packet;
+import io.scalecube.socketio.packets.PacketType;
+
+/**
+ * <p>
+ * Encodes and decodes packets of binary WebSocket frames. Binary frame contains one or more length-prefixed
+ * packets:
+ * </p>
+ *
+ * <p>
+ * {@code [packet type (1 byte)] [message id (varint)] [data length (varint)] [data]}
+ * </p>
+ *
+ * <p>
+ * Varints are unsigned LEB128 integers of up to 5 bytes. Message id 0 means that message has no id. Data is passed
+ * as is without any text encoding, so it may contain arbitrary bytes (e.g. protobuf messages).
+ * </p>
+ */
+public final class BinaryPacketEncoding {
+
+  private static final int MAX_VARINT_SIZE = 5;
+  private static final int MAX_HEADER_SIZE = 1 + 2 * MAX_VARINT_SIZE;
+
+  // Pre-encoded heartbeat packet without id and data
+  private static final ByteBuf HEARTBEAT_PACKET = Unpooled.unreleasableBuffer(Unpooled.directBuffer(3, 3)
+      .writeByte(PacketType.HEARTBEAT.getValue()).writeByte(0).writeByte(0));
+
+  /**
+   * Don't let anyone instantiate this class.
+   */
+  private BinaryPacketEncoding() {
+  }
+
+  /**
+   * Encodes given packet. Data which size doesn't exceed composite threshold is copied to a single pooled buffer
+   * after the header, otherwise header and data are composed without copying. In both cases ownership of the
+   * packet's data is transferred to the encoded buffer.
+   */
+  public static ByteBuf encodePacket(final Packet packet, final int compositeThreshold) {
+    ByteBuf data = packet.getData();
+    int dataLength = data != null ? data.readableBytes() : 0;
+    if (dataLength <= compositeThreshold) {
+      ByteBuf byteBuf = PooledByteBufAllocator.DEFAULT.buffer(MAX_HEADER_SIZE + dataLength);
+      writeHeader(packet, dataLength, byteBuf);
+      if (data != null) {
+        byteBuf.writeBytes(data, data.readerIndex(), dataLength);
+        data.release();
+      }
+      return byteBuf;
+    }
+
+    ByteBuf header = PooledByteBufAllocator.DEFAULT.buffer(MAX_HEADER_SIZE);
+    writeHeader(packet, dataLength, header);
+    CompositeByteBuf compositeByteBuf = PooledByteBufAllocator.DEFAULT.compositeBuffer(2);
+    compositeByteBuf.addComponent(true, header);
+    compositeByteBuf.addComponent(true, data);
+    return compositeByteBuf;
+  }
+
+  /**
+   * Encodes given packets to the single buffer. Ownership of the packets data is transferred to the encoded buffer.
+   */
+  public static ByteBuf encodePackets(final Collection<Packet> packets, final int compositeThreshold) {
+    CompositeByteBuf compositeByteBuf = PooledByteBufAllocator.DEFAULT.compositeBuffer(packets.size());
+    for (Packet packet : packets) {
+      compositeByteBuf.addComponent(true, encodePacket(packet, compositeThreshold));
+    }
+    return compositeByteBuf;
+  }
+
+  /**
+   * Returns duplicate of shared pre-encoded heartbeat packet. Returned buffer can't be released, so it may be passed
+   * to any number of writes without retaining.
+   */
+  public static ByteBuf encodeHeartbeatPacket() {
+    return HEARTBEAT_PACKET.duplicate();
+  }
+
+  /**
+   * Decodes packets from the given payload. Data of packets is a retained slice of the payload instead of its copy,
+   * so payload's memory is held until packets data is released. Payload itself isn't released.
+   *
+   * @throws IOException if payload is malformed, in this case data of already decoded packets is released
+   */
+  public static List<Packet> decodePackets(final ByteBuf payload) throws IOException {
+    List<Packet> packets = new ArrayList<>(1);
+    int readerIndex = payload.readerIndex();
+    try {
+      while (payload.isReadable()) {
+        PacketType type = PacketType.valueOf(payload.readUnsignedByte());
+        readVarint(payload); // Message id isn't used
+        int dataLength = readVarint(payload);
+        if (type == null || dataLength > payload.readableBytes()) {
+          throw new IOException("Malformed binary packet at index: " + readerIndex);
+        }
+        Packet packet = new Packet(type);
+        if (dataLength > 0) {
+          packet.setData(payload.readRetainedSlice(dataLength));
+        }
+        packets.add(packet);
+        readerIndex = payload.readerIndex();
+      }
+    } catch (IOException | RuntimeException e) {
+      for (Packet packet : packets) {
+        if (packet.getData() != null) {
+          packet.getData().release();
+        }
+      }
+      if (e instanceof IOException) {
+        throw (IOException) e;
+      }
+      throw new IOException("Malformed binary packet at index: " + readerIndex, e);
+    }
+    return packets;
+  }
+
+  private static void writeHeader(final Packet packet, final int dataLength, final ByteBuf out) {
+    out.writeByte(packet.getType().getValue());
+    writeVarint(0, out);
+    writeVarint(dataLength, out);
+  }
+
+  static void writeVarint(int value, final ByteBuf out) {
+    while ((value & ~0x7F) != 0) {
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  static int readVarint(final ByteBuf in) throws IOException {
+    int value = 0;
+    for (int i = 0; i < MAX_VARINT_SIZE; i++) {
+      byte b = in.readByte();
+      value |= (b & 0x7F) << (7 * i);
+      if (b >= 0) {
+        if (value < 0) {
+          throw new IOException("Varint is out of range: " + (value & 0xFFFFFFFFL));
+        }
+        return value;
+      }
+    }
+    throw new IOException("Varint is too long");
+  }
+
+}
@@ -37,6 +37,14 @@ public final class PacketDecoder {
   }
 
   public static Packet decodePacket(final ByteBuf payload) throws IOException {
+    return decodePacket(payload, false);
+  }
+
+  /**
+   * Decodes packet from the given payload. If zero copy is enabled data of the message packet is a retained slice
+   * of the payload instead of its copy, so payload's memory is held until packet's data is released.
+   */
+  public static Packet decodePacket(final ByteBuf payload, final boolean zeroCopy) throws IOException {
     int payloadSize = payload.readableBytes();
 
     // Decode packet type
@@ -66,7 +74,9 @@ public final class PacketDecoder {
     if (endpointDelimiterIndex != -1 && messagingType) {
       int dataLength = payloadSize - endpointDelimiterIndex - 1;
       if (dataLength > 0) {
-        ByteBuf data = payload.copy(endpointDelimiterIndex + 1, dataLength);
+        ByteBuf data = zeroCopy
+            ? payload.retainedSlice(endpointDelimiterIndex + 1, dataLength)
+            : payload.copy(endpointDelimiterIndex + 1, dataLength);
         packet.setData(data);
       }
     }
@@ -17,8 +17,10 @@ import java.io.IOException;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import io.netty.util.CharsetUtil;
 import io.scalecube.socketio.packets.Packet;
+import io.scalecube.socketio.packets.PacketType;
 
 /**
  * Class that provides encoding Socket.IO packets according to specification
@@ -47,10 +49,39 @@ import io.scalecube.socketio.packets.Packet;
  */
 public final class PacketEncoder {
 
+  /**
+   * Default max size of packet data in bytes which is copied to the same buffer with packet header.
+   */
+  public static final int DEFAULT_COMPOSITE_THRESHOLD = 4096;
+
   private static final String DELIMITER = ":";
   private static final byte[] DELIMITER_BYTES = DELIMITER.getBytes(CharsetUtil.UTF_8);
   private static final int DELIMITER_LENGTH = DELIMITER_BYTES.length;
 
+  private static final PacketType[] PACKET_TYPES = PacketType.values();
+
+  // Headers of packets with data, e.g. "3:::"
+  private static final byte[][] HEADERS = new byte[PACKET_TYPES.length][];
+
+  // Pre-encoded packets without data, e.g. "2::"
+  private static final ByteBuf[] PACKETS_WITHOUT_DATA = new ByteBuf[PACKET_TYPES.length];
+
+  static {
+    for (PacketType type : PACKET_TYPES) {
+      byte[] typeBytes = type.getValueAsBytes();
+      byte[] header = new byte[typeBytes.length + 3 * DELIMITER_LENGTH];
+      System.arraycopy(typeBytes, 0, header, 0, typeBytes.length);
+      for (int i = 0; i < 3; i++) {
+        System.arraycopy(DELIMITER_BYTES, 0, header, typeBytes.length + i * DELIMITER_LENGTH, DELIMITER_LENGTH);
+      }
+      HEADERS[type.ordinal()] = header;
+
+      int length = header.length - DELIMITER_LENGTH;
+      PACKETS_WITHOUT_DATA[type.ordinal()] = Unpooled.unreleasableBuffer(
+          Unpooled.directBuffer(length, length).writeBytes(header, 0, length));
+    }
+  }
+
   /**
    * Don't let anyone instantiate this class.
    */
@@ -58,29 +89,69 @@ public final class PacketEncoder {
   }
 
   public static ByteBuf encodePacket(final Packet packet) throws IOException {
+    return encodePacket(packet, DEFAULT_COMPOSITE_THRESHOLD);
+  }
+
+  /**
+   * Encodes given packet. Packet without data is encoded as duplicate of shared pre-encoded buffer. Data which size
+   * doesn't exceed composite threshold is copied to a single pooled buffer after the header, otherwise header and
+   * data are composed without copying. In both cases ownership of the packet's data is transferred to the encoded
+   * buffer.
+   */
+  public static ByteBuf encodePacket(final Packet packet, final int compositeThreshold) throws IOException {
     ByteBuf dataBytes = packet.getData();
-    boolean hasData = dataBytes != null;
-
-    CompositeByteBuf compositeByteBuf = PooledByteBufAllocator.DEFAULT.compositeBuffer(hasData ? 1 : 2);
-
-    byte[] typeBytes = packet.getType().getValueAsBytes();
-    int headerCapacity = typeBytes.length + DELIMITER_LENGTH + DELIMITER_LENGTH + (hasData ? DELIMITER_LENGTH : 0);
-    ByteBuf headerByteBuf = PooledByteBufAllocator.DEFAULT.buffer(headerCapacity, headerCapacity);
-    headerByteBuf.writeBytes(typeBytes);
-    headerByteBuf.writeBytes(DELIMITER_BYTES);
-    headerByteBuf.writeBytes(DELIMITER_BYTES);
-    if (hasData) {
-      headerByteBuf.writeBytes(DELIMITER_BYTES);
+    if (dataBytes == null) {
+      return PACKETS_WITHOUT_DATA[packet.getType().ordinal()].duplicate();
     }
-    compositeByteBuf.addComponent(headerByteBuf);
-    int compositeReadableBytes = headerByteBuf.readableBytes();
 
-    if (hasData) {
-      compositeByteBuf.addComponent(dataBytes);
-      compositeReadableBytes += dataBytes.readableBytes();
+    byte[] header = HEADERS[packet.getType().ordinal()];
+    int dataLength = dataBytes.readableBytes();
+    if (dataLength <= compositeThreshold) {
+      int capacity = header.length + dataLength;
+      ByteBuf byteBuf = PooledByteBufAllocator.DEFAULT.buffer(capacity, capacity);
+      byteBuf.writeBytes(header);
+      byteBuf.writeBytes(dataBytes, dataBytes.readerIndex(), dataLength);
+      dataBytes.release();
+      return byteBuf;
     }
 
-    compositeByteBuf.writerIndex(compositeReadableBytes);
+    ByteBuf headerByteBuf = PooledByteBufAllocator.DEFAULT.buffer(header.length, header.length);
+    headerByteBuf.writeBytes(header);
+    CompositeByteBuf compositeByteBuf = PooledByteBufAllocator.DEFAULT.compositeBuffer(2);
+    compositeByteBuf.addComponent(headerByteBuf);
+    compositeByteBuf.addComponent(dataBytes);
+    compositeByteBuf.writerIndex(header.length + dataLength);
     return compositeByteBuf;
   }
+
+  /**
+   * Returns length in bytes of the encoded packet.
+   */
+  static int getEncodedLength(final Packet packet) {
+    ByteBuf dataBytes = packet.getData();
+    int headerLength = HEADERS[packet.getType().ordinal()].length;
+    return dataBytes != null ? headerLength + dataBytes.readableBytes() : headerLength - DELIMITER_LENGTH;
+  }
+
+  /**
+   * Writes encoded packet to the given buffer. Packet's data isn't released.
+   */
+  static void writePacket(final Packet packet, final ByteBuf out) {
+    ByteBuf dataBytes = packet.getData();
+    byte[] header = HEADERS[packet.getType().ordinal()];
+    if (dataBytes != null) {
+      out.writeBytes(header);
+      out.writeBytes(dataBytes, dataBytes.readerIndex(), dataBytes.readableBytes());
+    } else {
+      out.writeBytes(header, 0, header.length - DELIMITER_LENGTH);
+    }
+  }
+
+  /**
+   * Returns duplicate of shared pre-encoded heartbeat packet. Returned buffer can't be released, so it may be passed
+   * to any number of writes without retaining.
+   */
+  public static ByteBuf encodeHeartbeatPacket() {
+    return PACKETS_WITHOUT_DATA[PacketType.HEARTBEAT.ordinal()].duplicate();
+  }
 }
@@ -13,11 +13,10 @@
 package io.scalecube.socketio.serialization;
 
 import java.io.IOException;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.util.CharsetUtil;
 import io.scalecube.socketio.packets.Packet;
@@ -55,6 +54,8 @@ public final class PacketFramer {
 
   private static final int DELIMITER_BYTES_SIZE = DELIMITER_BYTES.length;
 
+  private static final int MAX_PACKET_LENGTH_PREFIX = (Integer.MAX_VALUE - 9) / 10;
+
   /**
    * Don't let anyone instantiate this class.
    */
@@ -62,157 +63,155 @@ public final class PacketFramer {
   }
 
   public static ByteBuf encodePacketsFrame(final PacketsFrame packetsFrame) throws IOException {
+    return encodePacketsFrame(packetsFrame, PacketEncoder.DEFAULT_COMPOSITE_THRESHOLD);
+  }
+
+  /**
+   * Encodes given packets frame.
+   *
+   * @see PacketEncoder#encodePacket(Packet, int)
+   */
+  public static ByteBuf encodePacketsFrame(final PacketsFrame packetsFrame, final int compositeThreshold)
+      throws IOException {
     List<Packet> packets = packetsFrame.getPackets();
     if (packets.size() == 1) {
       Packet packet = packets.get(0);
-      return PacketEncoder.encodePacket(packet);
+      return PacketEncoder.encodePacket(packet, compositeThreshold);
     } else {
-      CompositeByteBuf compositeByteBuf = PooledByteBufAllocator.DEFAULT.compositeBuffer(packets.size() * 2);
-      int compositeReadableBytes = 0;
-
+      // Compute lengths of packets and the whole frame to allocate buffer only once
+      int[] packetLengths = new int[packets.size()];
+      int frameCapacity = 0;
+      int i = 0;
       for (Packet packet : packets) {
-        // Decode packet
-        ByteBuf packetByteBuf = PacketEncoder.encodePacket(packet);
-
-        // Prepare length prepender
-        int packetLength = getUtf8CharCountByByteCount(packetByteBuf, 0, packetByteBuf.readableBytes());
-        byte[] packetLengthBytes = String.valueOf(packetLength).getBytes(CharsetUtil.UTF_8);
-        int packetLengthPrependerCapacity = packetLengthBytes.length + DELIMITER_BYTES_SIZE + DELIMITER_BYTES_SIZE;
-        ByteBuf packetLengthPrependerByteBuf = PooledByteBufAllocator.DEFAULT.buffer(packetLengthPrependerCapacity, packetLengthPrependerCapacity);
-        packetLengthPrependerByteBuf.writeBytes(DELIMITER_BYTES);
-        packetLengthPrependerByteBuf.writeBytes(packetLengthBytes);
-        packetLengthPrependerByteBuf.writeBytes(DELIMITER_BYTES);
-
-        // Update composite byte buffer
-        compositeByteBuf.addComponent(packetLengthPrependerByteBuf);
-        compositeByteBuf.addComponent(packetByteBuf);
-        compositeReadableBytes += packetLengthPrependerByteBuf.readableBytes() + packetByteBuf.readableBytes();
+        int packetLength = getUtf16Length(packet);
+        packetLengths[i++] = packetLength;
+        frameCapacity += DELIMITER_BYTES_SIZE + getDigitsCount(packetLength) + DELIMITER_BYTES_SIZE
+            + PacketEncoder.getEncodedLength(packet);
       }
 
-      compositeByteBuf.writerIndex(compositeReadableBytes);
-      return compositeByteBuf;
+      ByteBuf frameByteBuf = PooledByteBufAllocator.DEFAULT.buffer(frameCapacity, frameCapacity);
+      try {
+        i = 0;
+        for (Packet packet : packets) {
+          frameByteBuf.writeBytes(DELIMITER_BYTES);
+          writeDigits(frameByteBuf, packetLengths[i++]);
+          frameByteBuf.writeBytes(DELIMITER_BYTES);
+          PacketEncoder.writePacket(packet, frameByteBuf);
+        }
+      } finally {
+        for (Packet packet : packets) {
+          if (packet.getData() != null) {
+            packet.getData().release();
+          }
+        }
+      }
+      return frameByteBuf;
     }
   }
 
-  private static int getUtf8CharCountByByteCount(final ByteBuf buffer, final int startByteIndex, final int bytesCount) {
-    int charCount = 0;
-    int endByteIndex = startByteIndex + bytesCount;
-    int byteIndex = startByteIndex;
-    while (byteIndex < endByteIndex) {
-      charCount++;
-      // Define next char first byte
-      short charFirstByte = buffer.getUnsignedByte(byteIndex);
-
-      // Scan first byte of UTF-8 character according to:
-      // http://www.cl.cam.ac.uk/~mgk25/unicode.html#utf-8
-      if ((charFirstByte >= 0x20) && (charFirstByte <= 0x7F)) {
-        // characters U-00000000 - U-0000007F (same as ASCII)
-        byteIndex++;
-      } else if ((charFirstByte & 0xE0) == 0xC0) {
-        // characters U-00000080 - U-000007FF, mask 110XXXXX
-        byteIndex += 2;
-      } else if ((charFirstByte & 0xF0) == 0xE0) {
-        // characters U-00000800 - U-0000FFFF, mask 1110XXXX
-        byteIndex += 3;
-      } else if ((charFirstByte & 0xF8) == 0xF0) {
-        // characters U-00010000 - U-001FFFFF, mask 11110XXX
-        byteIndex += 4;
-      } else if ((charFirstByte & 0xFC) == 0xF8) {
-        // characters U-00200000 - U-03FFFFFF, mask 111110XX
-        byteIndex += 5;
-      } else if ((charFirstByte & 0xFE) == 0xFC) {
-        // characters U-04000000 - U-7FFFFFFF, mask 1111110X
-        byteIndex += 6;
-      } else {
-        byteIndex++;
-      }
+  private static int getUtf16Length(final Packet packet) {
+    // Packet header consists of ASCII characters only
+    int headerLength = PacketEncoder.getEncodedLength(packet);
+    ByteBuf dataBytes = packet.getData();
+    if (dataBytes == null) {
+      return headerLength;
     }
-    return charCount;
+    int dataLength = dataBytes.readableBytes();
+    return headerLength - dataLength + Utf8.utf16Length(dataBytes, dataBytes.readerIndex(), dataLength);
+  }
+
+  private static int getDigitsCount(final int value) {
+    int digits = 1;
+    for (int n = value; n >= 10; n /= 10) {
+      digits++;
+    }
+    return digits;
+  }
+
+  private static void writeDigits(final ByteBuf buffer, final int value) {
+    int digitsCount = getDigitsCount(value);
+    int index = buffer.writerIndex() + digitsCount;
+    for (int n = value; index > buffer.writerIndex(); n /= 10) {
+      buffer.setByte(--index, '0' + n % 10);
+    }
+    buffer.writerIndex(buffer.writerIndex() + digitsCount);
   }
 
   public static List<Packet> decodePacketsFrame(final ByteBuf buffer) throws IOException {
-    List<Packet> packets = new LinkedList<Packet>();
+    return decodePacketsFrame(buffer, false);
+  }
+
+  /**
+   * Decodes packets from the given frame. If zero copy is enabled data of message packets are retained slices
+   * of the buffer.
+   *
+   * @see PacketDecoder#decodePacket(ByteBuf, boolean)
+   */
+  public static List<Packet> decodePacketsFrame(final ByteBuf buffer, final boolean zeroCopy) throws IOException {
+    final List<Packet> packets = new ArrayList<Packet>();
+    decodePacketsFrame(buffer, zeroCopy, new PacketSink() {
+      @Override
+      public void accept(Packet packet) {
+        packets.add(packet);
+      }
+    });
+    return packets;
+  }
+
+  /**
+   * Decodes packets from the given frame and passes them to the sink one by one as soon as they are decoded
+   * without collecting them.
+   *
+   * @see PacketDecoder#decodePacket(ByteBuf, boolean)
+   */
+  public static void decodePacketsFrame(final ByteBuf buffer, final boolean zeroCopy, final PacketSink sink)
+      throws IOException {
     int sequenceNumber = 0;
     while (buffer.isReadable()) {
-      Packet packet = PacketFramer.decodeNextPacket(buffer);
+      Packet packet = PacketFramer.decodeNextPacket(buffer, zeroCopy);
       packet.setSequenceNumber(sequenceNumber);
       sequenceNumber++;
-      packets.add(packet);
+      sink.accept(packet);
     }
-    return packets;
   }
 
-  private static Packet decodeNextPacket(final ByteBuf buffer) throws IOException {
+  private static Packet decodeNextPacket(final ByteBuf buffer, final boolean zeroCopy) throws IOException {
     Packet packet;
-    if (isDelimiter(buffer, buffer.readerIndex())) {
-      CharSequence packetCharsCountString = decodePacketLength(buffer);
-      final Integer packetCharsCount = Integer.valueOf(packetCharsCountString.toString());
-      final int packetStartIndex = buffer.readerIndex()
-          + DELIMITER_BYTES_SIZE
-          + packetCharsCountString.length()
-          + DELIMITER_BYTES_SIZE;
-      final int packetBytesCount = getUtf8ByteCountByCharCount(buffer, packetStartIndex, packetCharsCount);
+    final int readerIndex = buffer.readerIndex();
+    final int writerIndex = buffer.writerIndex();
+    if (isDelimiter(buffer, readerIndex, writerIndex)) {
+      // Parse packet length digits until the next delimiter
+      int packetCharsCount = 0;
+      int index = readerIndex + DELIMITER_BYTES_SIZE;
+      while (!isDelimiter(buffer, index, writerIndex)) {
+        if (index >= writerIndex) {
+          throw new IOException("Packets frame is truncated");
+        }
+        byte digit = buffer.getByte(index);
+        if (digit < '0' || digit > '9' || packetCharsCount > MAX_PACKET_LENGTH_PREFIX) {
+          throw new IOException("Invalid packet length in packets frame");
+        }
+        packetCharsCount = packetCharsCount * 10 + (digit - '0');
+        index++;
+      }
+      final int packetStartIndex = index + DELIMITER_BYTES_SIZE;
+      final int packetBytesCount = Utf8.utf8Length(buffer, packetStartIndex, writerIndex, packetCharsCount);
 
       ByteBuf frame = buffer.slice(packetStartIndex, packetBytesCount);
 
-      packet = PacketDecoder.decodePacket(frame);
+      packet = PacketDecoder.decodePacket(frame, zeroCopy);
       buffer.readerIndex(packetStartIndex + packetBytesCount);
     } else {
-      packet = PacketDecoder.decodePacket(buffer);
-      buffer.readerIndex(buffer.readableBytes());
+      packet = PacketDecoder.decodePacket(buffer.slice(), zeroCopy);
+      buffer.readerIndex(writerIndex);
     }
     return packet;
   }
 
-  private static int getUtf8ByteCountByCharCount(final ByteBuf buffer, final int startIndex, final int charCount) {
-    int bytesCount = 0;
-    for (int charIndex = 0; charIndex < charCount; charIndex++) {
-      // Define next char first byte
-      int charFirstByteIndex = startIndex + bytesCount;
-      short charFirstByte = buffer.getUnsignedByte(charFirstByteIndex);
-
-      // Scan first byte of UTF-8 character according to:
-      // http://www.cl.cam.ac.uk/~mgk25/unicode.html#utf-8
-      if ((charFirstByte >= 0x20) && (charFirstByte <= 0x7F)) {
-        // characters U-00000000 - U-0000007F (same as ASCII)
-        bytesCount++;
-      } else if ((charFirstByte & 0xE0) == 0xC0) {
-        // characters U-00000080 - U-000007FF, mask 110XXXXX
-        bytesCount += 2;
-      } else if ((charFirstByte & 0xF0) == 0xE0) {
-        // characters U-00000800 - U-0000FFFF, mask 1110XXXX
-        bytesCount += 3;
-      } else if ((charFirstByte & 0xF8) == 0xF0) {
-        // characters U-00010000 - U-001FFFFF, mask 11110XXX
-        bytesCount += 4;
-      } else if ((charFirstByte & 0xFC) == 0xF8) {
-        // characters U-00200000 - U-03FFFFFF, mask 111110XX
-        bytesCount += 5;
-      } else if ((charFirstByte & 0xFE) == 0xFC) {
-        // characters U-04000000 - U-7FFFFFFF, mask 1111110X
-        bytesCount += 6;
-      } else {
-        bytesCount++;
-      }
-    }
-    return bytesCount;
-  }
-
-  private static CharSequence decodePacketLength(final ByteBuf buffer) {
-    StringBuilder length = new StringBuilder();
-    final int scanStartIndex = buffer.readerIndex() + DELIMITER_BYTES_SIZE;
-    final int scanEndIndex = buffer.readerIndex() + buffer.readableBytes();
-    for (int charIndex = scanStartIndex; charIndex < scanEndIndex; charIndex++) {
-      if (isDelimiter(buffer, charIndex)) {
-        break;
-      } else {
-        length.append((char) buffer.getUnsignedByte(charIndex));
-      }
+  private static boolean isDelimiter(final ByteBuf buffer, final int index, final int endIndex) {
+    if (endIndex - index < DELIMITER_BYTES_SIZE) {
+      return false;
     }
-    return length;
-  }
-
-  private static boolean isDelimiter(final ByteBuf buffer, final int index) {
     for (int i = 0; i < DELIMITER_BYTES_SIZE; i++) {
       if (buffer.getByte(index + i) != DELIMITER_BYTES[i]) {
         return false;
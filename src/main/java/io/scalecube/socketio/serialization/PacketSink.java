@@ -0,0 +1,31 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.serialization;
+
+import io.scalecube.socketio.packets.Packet;
+
+/**
+ * Receiver of packets which are decoded from the packets frame one by one.
+ *
+ * @see PacketFramer#decodePacketsFrame(io.netty.buffer.ByteBuf, boolean, PacketSink)
+ */
+public interface PacketSink {
+
+  /**
+   * Accepts next decoded packet.
+   *
+   * @param packet decoded packet
+   */
+  void accept(final Packet packet);
+
+}
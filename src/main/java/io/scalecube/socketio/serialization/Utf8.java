@@ -0,0 +1,92 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.serialization;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Utility methods which translate between UTF-8 encoded bytes and length of the same string in UTF-16 code units
+ * which is used by Socket.IO framing (as JavaScript's {@code String.length}). Runs of ASCII characters are skipped
+ * 8 bytes at a time.
+ */
+final class Utf8 {
+
+  private static final long NON_ASCII_MASK = 0x8080808080808080L;
+
+  /**
+   * Don't let anyone instantiate this class.
+   */
+  private Utf8() {
+  }
+
+  /**
+   * Returns length in UTF-16 code units of the UTF-8 encoded string in the given range of buffer.
+   */
+  static int utf16Length(final ByteBuf buffer, final int startIndex, final int bytesCount) {
+    final int endIndex = startIndex + bytesCount;
+    int index = startIndex;
+    int length = 0;
+    while (index < endIndex) {
+      if (endIndex - index >= 8 && (buffer.getLong(index) & NON_ASCII_MASK) == 0) {
+        index += 8;
+        length += 8;
+        continue;
+      }
+      int charBytes = charBytesCount(buffer.getByte(index));
+      index += charBytes;
+      length += charBytes == 4 ? 2 : 1;
+    }
+    return length;
+  }
+
+  /**
+   * Returns number of bytes which encode UTF-8 string with the given length in UTF-16 code units starting at the
+   * given index. Result doesn't exceed number of bytes between start and end indexes.
+   */
+  static int utf8Length(final ByteBuf buffer, final int startIndex, final int endIndex, final int utf16Length) {
+    int index = startIndex;
+    int remaining = utf16Length;
+    while (remaining > 0 && index < endIndex) {
+      if (remaining >= 8 && endIndex - index >= 8 && (buffer.getLong(index) & NON_ASCII_MASK) == 0) {
+        index += 8;
+        remaining -= 8;
+        continue;
+      }
+      int charBytes = charBytesCount(buffer.getByte(index));
+      index += charBytes;
+      remaining -= charBytes == 4 ? 2 : 1;
+    }
+    return Math.min(index, endIndex) - startIndex;
+  }
+
+  // Scans first byte of UTF-8 character according to: http://www.cl.cam.ac.uk/~mgk25/unicode.html#utf-8
+  private static int charBytesCount(final byte firstByte) {
+    if (firstByte >= 0) {
+      // characters U-00000000 - U-0000007F (same as ASCII)
+      return 1;
+    } else if ((firstByte & 0xE0) == 0xC0) {
+      // characters U-00000080 - U-000007FF, mask 110XXXXX
+      return 2;
+    } else if ((firstByte & 0xF0) == 0xE0) {
+      // characters U-00000800 - U-0000FFFF, mask 1110XXXX
+      return 3;
+    } else if ((firstByte & 0xF8) == 0xF0) {
+      // characters U-00010000 - U-0010FFFF (surrogate pair in UTF-16), mask 11110XXX
+      return 4;
+    } else {
+      // malformed byte
+      return 1;
+    }
+  }
+
+}
@@ -12,10 +12,15 @@
  */
 package io.scalecube.socketio.session;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.net.SocketAddress;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
 import io.scalecube.socketio.TransportType;
 import io.scalecube.socketio.packets.Packet;
 import io.scalecube.socketio.packets.PacketType;
@@ -23,14 +28,24 @@ import io.scalecube.socketio.packets.PacketsFrame;
 
 public abstract class AbstractPollingSession extends AbstractSession {
 
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
   private final Packet ackPacket = new Packet(PacketType.ACK);
-  private final PollingQueue messagesQueue = new PollingQueue();
+  private final PollingQueue messagesQueue;
   private final AtomicReference<Channel> outChannelHolder = new AtomicReference<Channel>();
 
   public AbstractPollingSession(final Channel channel, final String sessionId, final String origin,
                                 final SessionDisconnectHandler disconnectHandler, final TransportType upgradedFromTransportType, final int localPort,
                                 final SocketAddress remoteAddress) {
+    this(channel, sessionId, origin, disconnectHandler, upgradedFromTransportType, localPort, remoteAddress,
+        new PollingQueue());
+  }
+
+  public AbstractPollingSession(final Channel channel, final String sessionId, final String origin,
+                                final SessionDisconnectHandler disconnectHandler, final TransportType upgradedFromTransportType, final int localPort,
+                                final SocketAddress remoteAddress, final PollingQueue messagesQueue) {
     super(channel, sessionId, origin, disconnectHandler, upgradedFromTransportType, localPort, remoteAddress);
+    this.messagesQueue = messagesQueue;
   }
 
   @Override
@@ -51,14 +66,8 @@ public abstract class AbstractPollingSession extends AbstractSession {
   }
 
   private void flush(final Channel channel) {
-    synchronized (messagesQueue) {
-      if (messagesQueue.isEmpty()) {
-        outChannelHolder.set(channel);
-      } else {
-        PacketsFrame packetsFrame = messagesQueue.takeAll();
-        sendPacketToChannel(channel, packetsFrame);
-      }
-    }
+    outChannelHolder.set(channel);
+    drain();
   }
 
   @Override
@@ -67,18 +76,90 @@ public abstract class AbstractPollingSession extends AbstractSession {
       throw new IllegalArgumentException("Packet is null");
     }
 
-    Channel channel = outChannelHolder.getAndSet(null);
-    if (channel != null && channel.isActive()) {
-      sendPacketToChannel(channel, packet);
+    if (getState() == State.DISCONNECTED) {
+      // Session won't be polled anymore
+      if (packet.getData() != null) {
+        packet.getData().release();
+      }
+      PacketWriteListener.fail(packet, new PacketDroppedException("Session is disconnected"));
+      return;
+    }
+
+    if (messagesQueue.add(packet)) {
+      if (getUpgradedSession() != null) {
+        // Packet might be added concurrently with upgrade
+        forwardPendingPackets();
+      } else {
+        drain();
+      }
     } else {
-      synchronized (messagesQueue) {
-        messagesQueue.add(packet);
+      onQueueOverflow();
+    }
+  }
+
+  /**
+   * Sends all queued packets to the bound polling channel if there is any. The thread which takes the channel
+   * out of the holder becomes the only consumer of the queue, others just leave their packets in the queue.
+   * If the queue turned out to be drained already the channel is returned back to the holder and the queue is
+   * checked again, so packet added concurrently with returning of the channel isn't left behind.
+   */
+  private void drain() {
+    while (!messagesQueue.isEmpty()) {
+      Channel channel = outChannelHolder.getAndSet(null);
+      if (channel == null || !channel.isActive()) {
+        return;
+      }
+      PacketsFrame packetsFrame = messagesQueue.takeAll();
+      if (!packetsFrame.getPackets().isEmpty()) {
+        ChannelFuture future = sendPacketToChannel(channel, packetsFrame);
+        PacketWriteListener.track(future, packetsFrame.getPackets(), getSendLatencyHistogram());
+        fireWritable();
+        return;
+      }
+      if (!outChannelHolder.compareAndSet(null, channel)) {
+        return;
       }
     }
   }
 
+  @Override
+  public boolean isWritable() {
+    AbstractSession target = getUpgradedSession();
+    if (target != null) {
+      return target.isWritable();
+    }
+    return messagesQueue.isWritable();
+  }
+
+  @Override
+  protected List<Packet> takePendingPackets() {
+    return messagesQueue.takeAll().getPackets();
+  }
+
+  private void onQueueOverflow() {
+    messagesQueue.clear();
+    State state = getState();
+    if (state != State.DISCONNECTING && state != State.DISCONNECTED) {
+      if (log.isDebugEnabled())
+        log.debug("{} Session will be disconnected due to polling queue overflow", getSessionId());
+      disconnect();
+    }
+  }
+
+  @Override
+  public void disconnect(final Channel channel) {
+    super.disconnect(channel);
+    // Release packets which will never be polled
+    messagesQueue.clear();
+  }
+
   @Override
   public void disconnect() {
+    AbstractSession target = getUpgradedSession();
+    if (target != null) {
+      target.disconnect();
+      return;
+    }
     if (getState() == State.DISCONNECTED) {
       return;
     }
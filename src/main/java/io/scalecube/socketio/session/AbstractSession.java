@@ -16,10 +16,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.SocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicReference;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
+import io.scalecube.socketio.metrics.LatencyHistogram;
 import io.scalecube.socketio.TransportType;
 import io.scalecube.socketio.packets.IPacket;
 import io.scalecube.socketio.packets.Packet;
@@ -44,6 +53,18 @@ public abstract class AbstractSession implements ManagedSession {
 
   private final AtomicReference<State> stateHolder = new AtomicReference<>(State.CREATED);
   private volatile boolean upgraded = false;
+  private volatile boolean resumed = false;
+  private volatile long creationTime = System.currentTimeMillis();
+  private volatile long lastHeartbeatTime = creationTime;
+
+  private final Queue<Runnable> writabilityTasks = new ConcurrentLinkedQueue<>();
+
+  private volatile LatencyHistogram sendLatencyHistogram;
+
+  // Session which was upgraded to this session, it is kept until its pending packets are taken over on connect
+  private volatile AbstractSession previousSession;
+  // Session to which this session was upgraded, session methods called by users are forwarded to it
+  private volatile AbstractSession upgradedSession;
 
   public AbstractSession(
       final Channel channel,
@@ -78,6 +99,31 @@ public abstract class AbstractSession implements ManagedSession {
     return upgradedFromTransportType;
   }
 
+  @Override
+  public final boolean isResumedSession() {
+    return resumed;
+  }
+
+  @Override
+  public final long getCreationTime() {
+    return creationTime;
+  }
+
+  /**
+   * Returns time in milliseconds when session was connected or received heartbeat last time.
+   */
+  public final long getLastHeartbeatTime() {
+    return lastHeartbeatTime;
+  }
+
+  /**
+   * Marks this session as resumed one which was created by previous server run at the given time.
+   */
+  void resume(final long creationTime) {
+    this.creationTime = creationTime;
+    this.resumed = true;
+  }
+
   @Override
   public final SocketAddress getRemoteAddress() {
     return remoteAddress;
@@ -99,20 +145,89 @@ public abstract class AbstractSession implements ManagedSession {
 
   @Override
   public State getState() {
-    return stateHolder.get();
+    AbstractSession target = upgradedSession;
+    return target != null ? target.getState() : stateHolder.get();
   }
 
   @Override
   public boolean connect(final Channel channel) {
+    lastHeartbeatTime = System.currentTimeMillis();
     heartbeatScheduler.reschedule();
     State previousState = setState(State.CONNECTED);
     boolean initialConnect = previousState == State.CONNECTING;
     if (initialConnect) {
-      sendPacketToChannel(channel, connectPacket);
+      sendConnectPacket(channel);
+      takeOverPendingPackets();
     }
     return initialConnect;
   }
 
+  protected void sendConnectPacket(final Channel channel) {
+    sendPacketToChannel(channel, connectPacket);
+  }
+
+  /**
+   * Upgrades this session in place to the given session of another transport type. This session stops its
+   * heartbeats and forwards to the new session all calls made by users which keep reference to it, packets which
+   * are pending in this session are sent by the new session after it is connected.
+   */
+  void upgradeTo(final AbstractSession newSession) {
+    newSession.previousSession = this;
+    upgradedSession = newSession;
+    markAsUpgraded();
+    heartbeatScheduler.disableHeartbeat();
+  }
+
+  /**
+   * Returns session to which this session was upgraded or null if it wasn't upgraded.
+   */
+  protected final AbstractSession getUpgradedSession() {
+    return upgradedSession;
+  }
+
+  /**
+   * Returns session which currently serves this session, i.e. the last session to which it was upgraded in place
+   * or this session if it wasn't upgraded.
+   */
+  public final AbstractSession getCurrentSession() {
+    AbstractSession current = this;
+    AbstractSession target;
+    while ((target = current.upgradedSession) != null) {
+      current = target;
+    }
+    return current;
+  }
+
+  /**
+   * Removes and returns outbound packets which are queued by this session and weren't sent to client yet.
+   */
+  protected List<Packet> takePendingPackets() {
+    return Collections.emptyList();
+  }
+
+  /**
+   * Sends packets pending in this upgraded session by the session to which it was upgraded, if that session
+   * has already taken over packets on connect. Otherwise packets will be taken over by it later.
+   */
+  protected final void forwardPendingPackets() {
+    AbstractSession target = upgradedSession;
+    if (target != null && target.previousSession == null) {
+      for (Packet packet : takePendingPackets()) {
+        target.sendPacket(packet);
+      }
+    }
+  }
+
+  private void takeOverPendingPackets() {
+    AbstractSession previous = previousSession;
+    if (previous != null) {
+      previousSession = null;
+      for (Packet packet : previous.takePendingPackets()) {
+        sendPacket(packet);
+      }
+    }
+  }
+
   @Override
   public void disconnect(final Channel channel) {
     if (getState() == State.DISCONNECTED) {
@@ -126,6 +241,7 @@ public abstract class AbstractSession implements ManagedSession {
       disconnectHandler.onSessionDisconnect(this);
     }
     setState(State.DISCONNECTED);
+    fireWritable();
   }
 
   @Override
@@ -135,14 +251,87 @@ public abstract class AbstractSession implements ManagedSession {
 
   @Override
   public void send(final ByteBuf message) {
+    AbstractSession target = upgradedSession;
+    if (target != null) {
+      target.send(message);
+      return;
+    }
+    sendPacket(newMessagePacket(message));
+  }
+
+  @Override
+  public Future<Void> sendAsync(final ByteBuf message) {
+    AbstractSession target = upgradedSession;
+    if (target != null) {
+      return target.sendAsync(message);
+    }
+    // Promise is completed by the thread which completes write, so listeners shouldn't block
+    Promise<Void> promise = ImmediateEventExecutor.INSTANCE.newPromise();
+    Packet messagePacket = newMessagePacket(message);
+    messagePacket.setSendPromise(promise);
+    sendPacket(messagePacket);
+    return promise;
+  }
+
+  private Packet newMessagePacket(final ByteBuf message) {
     Packet messagePacket = new Packet(PacketType.MESSAGE);
     messagePacket.setData(message);
-    sendPacket(messagePacket);
+    if (sendLatencyHistogram != null) {
+      messagePacket.setEnqueueTime(System.nanoTime());
+    }
+    return messagePacket;
   }
 
-  protected void sendPacketToChannel(final Channel channel, IPacket packet) {
+  /**
+   * Sets histogram which records latency of sent messages from sending by session till writing to the client.
+   */
+  void setSendLatencyHistogram(LatencyHistogram sendLatencyHistogram) {
+    this.sendLatencyHistogram = sendLatencyHistogram;
+  }
+
+  protected LatencyHistogram getSendLatencyHistogram() {
+    return sendLatencyHistogram;
+  }
+
+  @Override
+  public void runWhenWritable(final Runnable task) {
+    AbstractSession target = upgradedSession;
+    if (target != null) {
+      target.runWhenWritable(task);
+      return;
+    }
+    writabilityTasks.add(task);
+    onWritabilityTaskAdded();
+    // Session might become writable before task was added
+    if (isWritable() || getState() == State.DISCONNECTED) {
+      fireWritable();
+    }
+  }
+
+  /**
+   * Invoked when task waiting for session writability is added.
+   */
+  protected void onWritabilityTaskAdded() {
+    // Do nothing (for override)
+  }
+
+  /**
+   * Runs tasks waiting for session writability.
+   */
+  protected void fireWritable() {
+    Runnable task;
+    while ((task = writabilityTasks.poll()) != null) {
+      try {
+        task.run();
+      } catch (Exception e) {
+        log.error("Failed to run writability task of session: {}", getSessionId(), e);
+      }
+    }
+  }
+
+  protected ChannelFuture sendPacketToChannel(final Channel channel, IPacket packet) {
     fillPacketHeaders(packet);
-    channel.writeAndFlush(packet);
+    return channel.writeAndFlush(packet);
   }
 
   @Override
@@ -156,6 +345,7 @@ public abstract class AbstractSession implements ManagedSession {
 
   @Override
   public void acceptHeartbeat() {
+    lastHeartbeatTime = System.currentTimeMillis();
     heartbeatScheduler.reschedule();
   }
 
@@ -173,6 +363,26 @@ public abstract class AbstractSession implements ManagedSession {
     return previousState;
   }
 
+  /**
+   * Sessions are equal if they have the same id, so session keeps its identity when it is upgraded
+   * to another transport type.
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof AbstractSession)) {
+      return false;
+    }
+    return sessionId.equals(((AbstractSession) o).sessionId);
+  }
+
+  @Override
+  public int hashCode() {
+    return sessionId.hashCode();
+  }
+
   @Override
   public String toString() {
     return "[id: " + getSessionId()
@@ -181,6 +391,7 @@ public abstract class AbstractSession implements ManagedSession {
         + ", bindPort: " + getLocalPort()
         + ", transport: " + getTransportType()
         + (isUpgradedSession() ? ", upgradedFrom: " + getUpgradedFromTransportType() : "")
+        + (isResumedSession() ? ", resumed" : "")
         + ']';
   }
 }
@@ -12,15 +12,46 @@
  */
 package io.scalecube.socketio.session;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.net.SocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.AttributeKey;
 import io.scalecube.socketio.TransportType;
 import io.scalecube.socketio.packets.Packet;
+import io.scalecube.socketio.packets.PacketType;
+import io.scalecube.socketio.pipeline.WebSocketHandler;
+import io.scalecube.socketio.serialization.BinaryPacketEncoding;
+import io.scalecube.socketio.serialization.PacketEncoder;
 
 public abstract class AbstractSocketSession extends AbstractSession {
 
-  private final Channel channel;
+  private static final String WRITABILITY_HANDLER = "socketio-writability-handler";
+
+  // Session bound to the channel, so inbound packets are routed to it without looking up session storage
+  static final AttributeKey<ManagedSession> SESSION = AttributeKey.valueOf(AbstractSocketSession.class, "session");
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  // Channel is rebound when client reconnects with the same session id
+  private volatile Channel channel;
+  private final AtomicBoolean writabilityHandlerAdded = new AtomicBoolean();
+
+  // Null if replay of messages on reconnect is disabled
+  private volatile ReplayBuffer replayBuffer;
 
   public AbstractSocketSession(final Channel channel, final String sessionId, final String origin, final SessionDisconnectHandler disconnectHandler,
                                final TransportType upgradedFromTransportType, final int localPort, final SocketAddress remoteAddress) {
@@ -28,14 +59,198 @@ public abstract class AbstractSocketSession extends AbstractSession {
     this.channel = channel;
   }
 
+  /**
+   * Returns channel to which this session is bound.
+   */
+  public Channel getChannel() {
+    return channel;
+  }
+
+  /**
+   * Sets buffer which keeps messages until they are written, so they are replayed to the new channel if client
+   * reconnects with the same session id.
+   */
+  void setReplayBuffer(ReplayBuffer replayBuffer) {
+    this.replayBuffer = replayBuffer;
+  }
+
+  /**
+   * Returns true if messages are stored in replay buffer, so they must be sent via {@link #sendPacket(Packet)}.
+   */
+  boolean isReplayEnabled() {
+    return replayBuffer != null;
+  }
+
+  @Override
+  public boolean connect(final Channel channel) {
+    Channel previousChannel = this.channel;
+    if (channel != previousChannel && getState() == State.CONNECTED) {
+      rebind(previousChannel, channel);
+    }
+    channel.attr(SESSION).set(this);
+    return super.connect(channel);
+  }
+
+  private void rebind(final Channel previousChannel, final Channel newChannel) {
+    if (log.isDebugEnabled())
+      log.debug("{} Session is reconnected from channel: {} to channel: {}", getSessionId(), previousChannel,
+          newChannel);
+    ReplayBuffer buffer = replayBuffer;
+    if (buffer != null) {
+      synchronized (buffer) {
+        this.channel = newChannel;
+        sendConnectPacket(newChannel);
+        for (ReplayBuffer.ReplayedMessage message : buffer.replay()) {
+          Packet packet = new Packet(message.type);
+          packet.setData(message.data);
+          packet.setSendPromise(message.sendPromise);
+          ChannelFuture future = sendPacketToChannel(newChannel, packet);
+          future.addListener(new AcknowledgeListener(buffer, message.sequenceNumber));
+          PacketWriteListener.track(future, packet, null);
+        }
+      }
+    } else {
+      this.channel = newChannel;
+      sendConnectPacket(newChannel);
+    }
+    // Writability handler is added to the new channel on demand
+    writabilityHandlerAdded.set(false);
+    if (newChannel.isWritable()) {
+      fireWritable();
+    }
+    if (previousChannel.isActive()) {
+      previousChannel.close();
+    }
+  }
+
+  @Override
+  public boolean isWritable() {
+    AbstractSession target = getUpgradedSession();
+    if (target != null) {
+      return target.isWritable();
+    }
+    return channel.isWritable();
+  }
+
+  @Override
+  protected void onWritabilityTaskAdded() {
+    // Writability events are tracked only for sessions which wait for them
+    if (writabilityHandlerAdded.compareAndSet(false, true)) {
+      channel.pipeline().addFirst(WRITABILITY_HANDLER, new ChannelInboundHandlerAdapter() {
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+          if (ctx.channel().isWritable()) {
+            fireWritable();
+          }
+          super.channelWritabilityChanged(ctx);
+        }
+      });
+    }
+  }
+
   @Override
   public void sendPacket(Packet packet) {
-    sendPacketToChannel(channel, packet);
+    ReplayBuffer buffer = replayBuffer;
+    if (buffer == null || !isReplayable(packet)) {
+      PacketWriteListener.track(sendPacketToChannel(channel, packet), packet, getSendLatencyHistogram());
+      return;
+    }
+    // Message is stored and written under the same lock, so it isn't missed by replay on reconnect
+    synchronized (buffer) {
+      Channel currentChannel = channel;
+      boolean active = currentChannel.isActive();
+      // Send promise of message which can't be written now is completed when message is replayed
+      long sequenceNumber = buffer.add(packet.getType(), packet.getData(), active ? null : packet.getSendPromise());
+      if (active) {
+        ChannelFuture future = sendPacketToChannel(currentChannel, packet);
+        if (sequenceNumber != 0) {
+          future.addListener(new AcknowledgeListener(buffer, sequenceNumber));
+        }
+        PacketWriteListener.track(future, packet, getSendLatencyHistogram());
+      } else {
+        // Message will be written only if client reconnects
+        packet.getData().release();
+        if (sequenceNumber == 0) {
+          PacketWriteListener.fail(packet, new ClosedChannelException());
+        }
+      }
+    }
+  }
+
+  @Override
+  protected List<Packet> takePendingPackets() {
+    ReplayBuffer buffer = replayBuffer;
+    if (buffer == null) {
+      return Collections.emptyList();
+    }
+    List<ReplayBuffer.ReplayedMessage> messages = buffer.takeAll();
+    List<Packet> packets = new ArrayList<>(messages.size());
+    for (ReplayBuffer.ReplayedMessage message : messages) {
+      Packet packet = new Packet(message.type);
+      packet.setData(message.data);
+      packet.setSendPromise(message.sendPromise);
+      packets.add(packet);
+    }
+    return packets;
+  }
+
+  @Override
+  public void disconnect(final Channel channel) {
+    super.disconnect(channel);
+    ReplayBuffer buffer = replayBuffer;
+    if (buffer != null) {
+      buffer.release();
+    }
+  }
+
+  private static boolean isReplayable(Packet packet) {
+    PacketType type = packet.getType();
+    return packet.getData() != null
+        && (type == PacketType.MESSAGE || type == PacketType.JSON || type == PacketType.EVENT);
+  }
+
+  @Override
+  public void sendHeartbeat() {
+    channel.writeAndFlush(newHeartbeatFrame());
+  }
+
+  /**
+   * Returns frame which wraps shared pre-encoded heartbeat packet.
+   */
+  Object newHeartbeatFrame() {
+    if (WebSocketHandler.isBinaryMode(channel)) {
+      return new BinaryWebSocketFrame(BinaryPacketEncoding.encodeHeartbeatPacket());
+    }
+    return new TextWebSocketFrame(PacketEncoder.encodeHeartbeatPacket());
   }
 
   @Override
   public void disconnect() {
+    AbstractSession target = getUpgradedSession();
+    if (target != null) {
+      target.disconnect();
+      return;
+    }
     disconnect(channel);
   }
 
+  private static final class AcknowledgeListener implements ChannelFutureListener {
+
+    private final ReplayBuffer buffer;
+    private final long sequenceNumber;
+
+    AcknowledgeListener(ReplayBuffer buffer, long sequenceNumber) {
+      this.buffer = buffer;
+      this.sequenceNumber = sequenceNumber;
+    }
+
+    @Override
+    public void operationComplete(ChannelFuture future) throws Exception {
+      if (future.isSuccess()) {
+        buffer.acknowledge(sequenceNumber);
+      }
+    }
+
+  }
+
 }
@@ -0,0 +1,144 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.session;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.scalecube.socketio.Session;
+import io.scalecube.socketio.metrics.SocketIOMetrics;
+import io.scalecube.socketio.packets.Packet;
+import io.scalecube.socketio.packets.PacketType;
+import io.scalecube.socketio.pipeline.WebSocketHandler;
+import io.scalecube.socketio.serialization.BinaryPacketEncoding;
+import io.scalecube.socketio.serialization.PacketEncoder;
+
+/**
+ * Sends the same message to many sessions. Message packet is encoded only once and shared between all
+ * WebSocket and Flash socket channels as a retained duplicate, writes are flushed once per event loop.
+ * Polling sessions and socket sessions which store messages for replay receive retained duplicate of the message
+ * payload. Pre-encoded frames bypass send path of the session, so they aren't recorded in send latency histograms.
+ */
+public final class Broadcaster {
+
+  private final SessionStorage sessionStorage;
+  private final SocketIOMetrics metrics;
+  private final int compositeBufferThreshold;
+
+  public Broadcaster(SessionStorage sessionStorage) {
+    this(sessionStorage, PacketEncoder.DEFAULT_COMPOSITE_THRESHOLD);
+  }
+
+  /**
+   * Creates broadcaster which encodes messages with the given threshold of composite buffers, see
+   * {@link io.scalecube.socketio.ServerConfiguration#getCompositeBufferThreshold()}.
+   */
+  public Broadcaster(SessionStorage sessionStorage, int compositeBufferThreshold) {
+    this.sessionStorage = sessionStorage;
+    this.metrics = sessionStorage.getMetrics();
+    this.compositeBufferThreshold = compositeBufferThreshold;
+  }
+
+  /**
+   * Sends message to all connected sessions. Passed ByteBuf will be released during sending operation.
+   */
+  public void broadcast(final ByteBuf message) {
+    broadcast(sessionStorage.getSessions(), message);
+  }
+
+  /**
+   * Sends message to all connected sessions which joined the given room. Passed ByteBuf will be released
+   * during sending operation.
+   */
+  public void broadcast(final String room, final ByteBuf message) {
+    Set<String> sessionIds = sessionStorage.getRoom(room);
+    List<ManagedSession> sessions = new ArrayList<>(sessionIds.size());
+    for (String sessionId : sessionIds) {
+      ManagedSession session = sessionStorage.getSessionIfExist(sessionId);
+      if (session != null) {
+        sessions.add(session);
+      }
+    }
+    broadcast(sessions, message);
+  }
+
+  private void broadcast(final Collection<ManagedSession> sessions, final ByteBuf message) {
+    EventLoopBatch batch = new EventLoopBatch();
+    ByteBuf encodedMessage = null;
+    ByteBuf binaryEncodedMessage = null;
+    try {
+      for (ManagedSession session : sessions) {
+        if (session.getState() != Session.State.CONNECTED) {
+          continue;
+        }
+        if (session instanceof AbstractSocketSession && !((AbstractSocketSession) session).isReplayEnabled()) {
+          Channel channel = ((AbstractSocketSession) session).getChannel();
+          WebSocketFrame frame;
+          if (WebSocketHandler.isBinaryMode(channel)) {
+            if (binaryEncodedMessage == null) {
+              binaryEncodedMessage = BinaryPacketEncoding.encodePacket(newMessagePacket(message.retain()),
+                  compositeBufferThreshold);
+            }
+            frame = new BinaryWebSocketFrame(binaryEncodedMessage.retainedDuplicate());
+          } else {
+            if (encodedMessage == null) {
+              encodedMessage = encodeMessage(message.retain());
+            }
+            frame = new TextWebSocketFrame(encodedMessage.retainedDuplicate());
+          }
+          if (metrics != null) {
+            // Pre-encoded frames bypass packet encoder handler
+            metrics.onOutboundPacket(PacketType.MESSAGE, message.readableBytes());
+          }
+          batch.add(channel, frame);
+        } else {
+          session.send(message.retainedDuplicate());
+        }
+      }
+    } finally {
+      batch.flush();
+      message.release();
+      if (encodedMessage != null) {
+        encodedMessage.release();
+      }
+      if (binaryEncodedMessage != null) {
+        binaryEncodedMessage.release();
+      }
+    }
+  }
+
+  private static Packet newMessagePacket(final ByteBuf message) {
+    Packet packet = new Packet(PacketType.MESSAGE);
+    packet.setData(message);
+    return packet;
+  }
+
+  private ByteBuf encodeMessage(final ByteBuf message) {
+    try {
+      return PacketEncoder.encodePacket(newMessagePacket(message), compositeBufferThreshold);
+    } catch (IOException e) {
+      message.release();
+      throw new EncoderException(e);
+    }
+  }
+
+}
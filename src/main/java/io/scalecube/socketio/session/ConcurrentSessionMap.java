@@ -0,0 +1,51 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.session;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Session map backed by {@link ConcurrentHashMap} with string keys.
+ */
+final class ConcurrentSessionMap implements SessionMap {
+
+  private final ConcurrentMap<String, ManagedSession> sessions = new ConcurrentHashMap<>();
+
+  @Override
+  public ManagedSession get(String sessionId) {
+    return sessions.get(sessionId);
+  }
+
+  @Override
+  public ManagedSession putIfAbsent(String sessionId, ManagedSession session) {
+    return sessions.putIfAbsent(sessionId, session);
+  }
+
+  @Override
+  public ManagedSession remove(String sessionId) {
+    return sessions.remove(sessionId);
+  }
+
+  @Override
+  public boolean replace(String sessionId, ManagedSession oldSession, ManagedSession newSession) {
+    return sessions.replace(sessionId, oldSession, newSession);
+  }
+
+  @Override
+  public Collection<ManagedSession> values() {
+    return sessions.values();
+  }
+
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.session;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * Collects messages for many channels and writes them with a single task per event loop, so each
+ * channel is flushed once after all of its messages are written instead of once per message.
+ * Instances are not thread safe and are supposed to be used once.
+ */
+final class EventLoopBatch {
+
+  private final Map<EventLoop, Writes> writesByEventLoop = new HashMap<>();
+
+  /**
+   * Adds message to be written to the given channel. Ownership of the message is transferred to the batch.
+   */
+  public void add(final Channel channel, final Object message) {
+    EventLoop eventLoop = channel.eventLoop();
+    Writes writes = writesByEventLoop.get(eventLoop);
+    if (writes == null) {
+      writes = new Writes();
+      writesByEventLoop.put(eventLoop, writes);
+    }
+    writes.channels.add(channel);
+    writes.messages.add(message);
+  }
+
+  /**
+   * Submits collected writes to corresponding event loops.
+   */
+  public void flush() {
+    for (Map.Entry<EventLoop, Writes> entry : writesByEventLoop.entrySet()) {
+      EventLoop eventLoop = entry.getKey();
+      Writes writes = entry.getValue();
+      if (eventLoop.inEventLoop()) {
+        writes.run();
+      } else {
+        try {
+          eventLoop.execute(writes);
+        } catch (RejectedExecutionException e) {
+          writes.release();
+        }
+      }
+    }
+    writesByEventLoop.clear();
+  }
+
+  private static final class Writes implements Runnable {
+
+    private final List<Channel> channels = new ArrayList<>();
+    private final List<Object> messages = new ArrayList<>();
+
+    @Override
+    public void run() {
+      int size = channels.size();
+      for (int i = 0; i < size; i++) {
+        Channel channel = channels.get(i);
+        if (channel.isActive()) {
+          channel.write(messages.get(i), channel.voidPromise());
+        } else {
+          ReferenceCountUtil.release(messages.get(i));
+        }
+      }
+      for (int i = 0; i < size; i++) {
+        channels.get(i).flush();
+      }
+    }
+
+    private void release() {
+      for (Object message : messages) {
+        ReferenceCountUtil.release(message);
+      }
+    }
+  }
+
+}
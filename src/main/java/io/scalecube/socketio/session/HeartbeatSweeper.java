@@ -0,0 +1,105 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+
+/**
+ * Liveness engine which replaces per session heartbeat and disconnect timeouts with a coarse time wheel. Session
+ * only records time of the last received heartbeat, while wheel buckets of sessions are swept one per tick. Each
+ * bucket is visited once per heartbeat interval, so on every visit server heartbeats are sent to sessions of the
+ * bucket and sessions which didn't send heartbeat within heartbeat timeout are disconnected. Heartbeats of a bucket
+ * are written in batches per event loop with single flush per channel. As a result heartbeat timeout is detected
+ * with precision of heartbeat interval.
+ */
+public final class HeartbeatSweeper implements TimerTask {
+
+  private static final long TICK_DURATION_SECONDS = 1;
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  private final Timer timer;
+  private final long heartbeatTimeoutNanos;
+  private final Set<SocketIOHeartbeatScheduler>[] buckets;
+
+  private volatile int currentBucket = 0;
+  private volatile boolean stopped = false;
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public HeartbeatSweeper(Timer timer, int heartbeatInterval, int heartbeatTimeout) {
+    this.timer = timer;
+    this.heartbeatTimeoutNanos = TimeUnit.SECONDS.toNanos(heartbeatTimeout);
+    int bucketsCount = (int) Math.max(1, heartbeatInterval / TICK_DURATION_SECONDS);
+    buckets = new Set[bucketsCount];
+    for (int i = 0; i < bucketsCount; i++) {
+      buckets[i] = Collections.newSetFromMap(new ConcurrentHashMap<SocketIOHeartbeatScheduler, Boolean>());
+    }
+  }
+
+  public void start() {
+    timer.newTimeout(this, TICK_DURATION_SECONDS, TimeUnit.SECONDS);
+  }
+
+  public void stop() {
+    stopped = true;
+  }
+
+  /**
+   * Adds session's scheduler to the bucket which will be swept in one heartbeat interval.
+   */
+  void register(SocketIOHeartbeatScheduler scheduler) {
+    int bucket = (currentBucket + buckets.length - 1) % buckets.length;
+    buckets[bucket].add(scheduler);
+  }
+
+  @Override
+  public void run(Timeout timeout) throws Exception {
+    if (stopped) {
+      return;
+    }
+    int bucket = currentBucket;
+    currentBucket = (bucket + 1) % buckets.length;
+    try {
+      sweep(buckets[bucket], System.nanoTime());
+    } finally {
+      timer.newTimeout(this, TICK_DURATION_SECONDS, TimeUnit.SECONDS);
+    }
+  }
+
+  private void sweep(Set<SocketIOHeartbeatScheduler> bucket, long now) {
+    EventLoopBatch heartbeatBatch = new EventLoopBatch();
+    for (Iterator<SocketIOHeartbeatScheduler> it = bucket.iterator(); it.hasNext(); ) {
+      SocketIOHeartbeatScheduler scheduler = it.next();
+      try {
+        if (!scheduler.sweep(now, heartbeatTimeoutNanos, heartbeatBatch)) {
+          it.remove();
+        }
+      } catch (Exception e) {
+        log.error("Failed to sweep heartbeat of session: {}", scheduler.getSession(), e);
+      }
+    }
+    heartbeatBatch.flush();
+  }
+
+}
@@ -28,6 +28,13 @@ public class JsonpPollingSession extends AbstractPollingSession {
     this.jsonpIndexParam = jsonpIndexParam;
   }
 
+  public JsonpPollingSession(final Channel channel, final String sessionId, final String origin, final SessionDisconnectHandler disconnectHandler,
+                             final TransportType upgradedFromTransportType, final int localPort, final String jsonpIndexParam, final SocketAddress remoteAddress,
+                             final PollingQueue messagesQueue) {
+    super(channel, sessionId, origin, disconnectHandler, upgradedFromTransportType, localPort, remoteAddress, messagesQueue);
+    this.jsonpIndexParam = jsonpIndexParam;
+  }
+
   @Override
   public TransportType getTransportType() {
     return TransportType.JSONP_POLLING;
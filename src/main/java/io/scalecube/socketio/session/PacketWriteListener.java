@@ -0,0 +1,92 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.session;
+
+import java.util.Collections;
+import java.util.List;
+
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.util.concurrent.Promise;
+import io.scalecube.socketio.metrics.LatencyHistogram;
+import io.scalecube.socketio.packets.Packet;
+
+/**
+ * Completes send promises of written packets and records their send latency.
+ */
+final class PacketWriteListener implements ChannelFutureListener {
+
+  private final List<Packet> packets;
+  private final LatencyHistogram latencyHistogram;
+
+  private PacketWriteListener(List<Packet> packets, LatencyHistogram latencyHistogram) {
+    this.packets = packets;
+    this.latencyHistogram = latencyHistogram;
+  }
+
+  /**
+   * Adds listener to the given write future if any of written packets is tracked.
+   */
+  static void track(ChannelFuture future, Packet packet, LatencyHistogram latencyHistogram) {
+    if (isTracked(packet)) {
+      future.addListener(new PacketWriteListener(Collections.singletonList(packet), latencyHistogram));
+    }
+  }
+
+  /**
+   * Adds listener to the given write future if any of written packets is tracked.
+   */
+  static void track(ChannelFuture future, List<Packet> packets, LatencyHistogram latencyHistogram) {
+    for (Packet packet : packets) {
+      if (isTracked(packet)) {
+        future.addListener(new PacketWriteListener(packets, latencyHistogram));
+        return;
+      }
+    }
+  }
+
+  /**
+   * Fails send promise of the packet which won't be written.
+   */
+  static void fail(Packet packet, Throwable cause) {
+    Promise<Void> promise = packet.getSendPromise();
+    if (promise != null) {
+      promise.tryFailure(cause);
+    }
+  }
+
+  @Override
+  public void operationComplete(ChannelFuture future) throws Exception {
+    if (future.isSuccess()) {
+      long now = System.nanoTime();
+      for (Packet packet : packets) {
+        if (latencyHistogram != null && packet.getEnqueueTime() != 0) {
+          latencyHistogram.record(now - packet.getEnqueueTime());
+        }
+        Promise<Void> promise = packet.getSendPromise();
+        if (promise != null) {
+          promise.trySuccess(null);
+        }
+      }
+    } else {
+      for (Packet packet : packets) {
+        fail(packet, future.cause());
+      }
+    }
+  }
+
+  private static boolean isTracked(Packet packet) {
+    return packet.getSendPromise() != null || packet.getEnqueueTime() != 0;
+  }
+
+}
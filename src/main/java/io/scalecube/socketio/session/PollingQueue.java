@@ -12,33 +12,218 @@
  */
 package io.scalecube.socketio.session;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import io.netty.buffer.ByteBuf;
+import io.scalecube.socketio.OverflowPolicy;
 import io.scalecube.socketio.packets.Packet;
 import io.scalecube.socketio.packets.PacketsFrame;
 
-
+/**
+ * Outbound queue of the polling session. Queue may be bounded by number of packets and by total size of packets
+ * data, in this case packets which don't fit are handled according to the {@link OverflowPolicy}. Limits are soft
+ * and may be slightly exceeded by concurrent producers.
+ */
 public class PollingQueue {
 
   private final ConcurrentLinkedQueue<Packet> packetQueue = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final AtomicLong bytes = new AtomicLong();
+
+  private final int maxSize;
+  private final long maxBytes;
+  private final OverflowPolicy overflowPolicy;
+  private final PollingQueueCounters counters;
+
+  /**
+   * Creates unbounded queue.
+   */
+  public PollingQueue() {
+    this(0, 0, OverflowPolicy.DROP_OLDEST, null);
+  }
+
+  /**
+   * Creates bounded queue.
+   *
+   * @param maxSize max number of queued packets, 0 means unlimited
+   * @param maxBytes max total size in bytes of queued packets data, 0 means unlimited
+   * @param overflowPolicy policy which is applied to packets which exceed limits
+   */
+  public PollingQueue(int maxSize, long maxBytes, OverflowPolicy overflowPolicy) {
+    this(maxSize, maxBytes, overflowPolicy, null);
+  }
+
+  PollingQueue(int maxSize, long maxBytes, OverflowPolicy overflowPolicy, PollingQueueCounters counters) {
+    this.maxSize = maxSize;
+    this.maxBytes = maxBytes;
+    this.overflowPolicy = overflowPolicy;
+    this.counters = counters;
+  }
 
   public PacketsFrame takeAll() {
-    PacketsFrame frame = new PacketsFrame();
+    PacketsFrame frame = new PacketsFrame(size.get());
     Packet packet;
-    while ((packet = packetQueue.poll()) != null) {
+    while ((packet = poll()) != null) {
       frame.getPackets().add(packet);
     }
     return frame;
   }
 
-  public void add(final Packet packet) {
-    if (packet != null) {
-      packetQueue.add(packet);
+  /**
+   * Adds packet to the queue.
+   *
+   * @return false if queue overflowed and session should be disconnected according to
+   * {@link OverflowPolicy#DISCONNECT} policy; true otherwise.
+   */
+  public boolean add(final Packet packet) {
+    if (packet == null) {
+      return true;
+    }
+    int packetBytes = getDataSize(packet);
+    if (isOverflowed(1, packetBytes)) {
+      switch (overflowPolicy) {
+        case DROP_NEWEST:
+          drop(packet);
+          return true;
+        case DISCONNECT:
+          drop(packet);
+          return false;
+        case COALESCE:
+          dropMessages();
+          break;
+        default:
+          dropOldest(packetBytes);
+          break;
+      }
     }
+    packetQueue.add(packet);
+    onAdded(packetBytes);
+    return true;
   }
 
   public boolean isEmpty() {
     return packetQueue.isEmpty();
   }
 
+  /**
+   * Returns true if queue is filled less than half of its limits or if it is unbounded.
+   */
+  public boolean isWritable() {
+    return (maxSize <= 0 || size.get() <= maxSize / 2)
+        && (maxBytes <= 0 || bytes.get() <= maxBytes / 2);
+  }
+
+  /**
+   * Returns number of queued packets.
+   */
+  public int size() {
+    return size.get();
+  }
+
+  /**
+   * Returns total size in bytes of queued packets data.
+   */
+  public long bytes() {
+    return bytes.get();
+  }
+
+  /**
+   * Removes all queued packets and releases their data.
+   */
+  public void clear() {
+    Packet packet;
+    while ((packet = poll()) != null) {
+      drop(packet);
+    }
+  }
+
+  private Packet poll() {
+    Packet packet = packetQueue.poll();
+    if (packet != null) {
+      onRemoved(getDataSize(packet));
+    }
+    return packet;
+  }
+
+  private boolean isOverflowed(int extraSize, long extraBytes) {
+    return (maxSize > 0 && size.get() + extraSize > maxSize)
+        || (maxBytes > 0 && bytes.get() + extraBytes > maxBytes);
+  }
+
+  private void dropOldest(int packetBytes) {
+    Packet oldest;
+    while (isOverflowed(1, packetBytes) && (oldest = poll()) != null) {
+      drop(oldest);
+    }
+  }
+
+  private void dropMessages() {
+    // Control packets (without data) are kept in the same order
+    List<Packet> controlPackets = null;
+    Packet queued;
+    while ((queued = poll()) != null) {
+      if (queued.getData() != null) {
+        drop(queued);
+      } else {
+        if (controlPackets == null) {
+          controlPackets = new ArrayList<>();
+        }
+        controlPackets.add(queued);
+      }
+    }
+    if (controlPackets != null) {
+      for (Packet controlPacket : controlPackets) {
+        packetQueue.add(controlPacket);
+        onAdded(0);
+      }
+    }
+  }
+
+  private void drop(Packet packet) {
+    ByteBuf data = packet.getData();
+    if (data != null) {
+      data.release();
+    }
+    PacketWriteListener.fail(packet, new PacketDroppedException("Packet was dropped from polling queue"));
+    if (counters != null) {
+      counters.droppedPackets.increment();
+      if (counters.metrics != null) {
+        counters.metrics.onPollingPacketDropped();
+      }
+    }
+  }
+
+  private void onAdded(int packetBytes) {
+    size.incrementAndGet();
+    bytes.addAndGet(packetBytes);
+    if (counters != null) {
+      counters.queuedPackets.increment();
+      counters.queuedBytes.add(packetBytes);
+      if (counters.metrics != null) {
+        counters.metrics.onPollingQueueChanged(1, packetBytes);
+      }
+    }
+  }
+
+  private void onRemoved(int packetBytes) {
+    size.decrementAndGet();
+    bytes.addAndGet(-packetBytes);
+    if (counters != null) {
+      counters.queuedPackets.decrement();
+      counters.queuedBytes.add(-packetBytes);
+      if (counters.metrics != null) {
+        counters.metrics.onPollingQueueChanged(-1, -packetBytes);
+      }
+    }
+  }
+
+  private static int getDataSize(Packet packet) {
+    ByteBuf data = packet.getData();
+    return data != null ? data.readableBytes() : 0;
+  }
+
 }
@@ -0,0 +1,34 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.session;
+
+import io.scalecube.socketio.metrics.SocketIOMetrics;
+import io.scalecube.socketio.metrics.StripedLongCounter;
+
+/**
+ * Counters which are shared between polling queues of all sessions of the server.
+ */
+final class PollingQueueCounters {
+
+  final StripedLongCounter queuedPackets = new StripedLongCounter();
+  final StripedLongCounter queuedBytes = new StripedLongCounter();
+  final StripedLongCounter droppedPackets = new StripedLongCounter();
+
+  // Null if metrics are disabled
+  final SocketIOMetrics metrics;
+
+  PollingQueueCounters(SocketIOMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+}
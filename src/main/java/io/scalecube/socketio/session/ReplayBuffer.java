@@ -0,0 +1,229 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.session;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.concurrent.Promise;
+import io.scalecube.socketio.packets.PacketType;
+
+/**
+ * Bounded ring buffer of outbound messages of the socket session which weren't written to the client yet.
+ * Messages are copied to single direct buffer of fixed size in bytes, which is allocated on first use, and
+ * numbered by sequence numbers. Message is kept in the buffer for the grace period after its write succeeds,
+ * since write to half-open connection succeeds locally until drop is detected, so messages written shortly before
+ * reconnect are replayed too (they may be delivered twice). When buffer is full oldest messages are evicted,
+ * messages which are larger than the whole buffer aren't stored. Send promise of message which is stored without
+ * being written is completed when message is replayed and failed when it is evicted. Methods are synchronized
+ * since buffer is accessed by senders and by write completion listeners.
+ */
+final class ReplayBuffer {
+
+  private final ByteBufAllocator allocator;
+  private final int capacity;
+  private final long gracePeriodNanos;
+  private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+
+  private ByteBuf ring;
+  private int writeIndex;
+  private int usedBytes;
+  private long lastSequenceNumber;
+  private long evictedCount;
+  private boolean released;
+
+  ReplayBuffer(ByteBufAllocator allocator, int capacity) {
+    this(allocator, capacity, 0);
+  }
+
+  ReplayBuffer(ByteBufAllocator allocator, int capacity, long gracePeriodNanos) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    this.allocator = allocator;
+    this.capacity = capacity;
+    this.gracePeriodNanos = gracePeriodNanos;
+  }
+
+  synchronized long add(PacketType type, ByteBuf message) {
+    return add(type, message, null);
+  }
+
+  /**
+   * Copies readable bytes of the given message to the buffer. Given send promise, if any, is kept until message is
+   * replayed or evicted.
+   *
+   * @return sequence number of stored message or 0 if message wasn't stored
+   */
+  synchronized long add(PacketType type, ByteBuf message, Promise<Void> sendPromise) {
+    int length = message.readableBytes();
+    if (released || length > capacity) {
+      return 0;
+    }
+    if (ring == null) {
+      ring = allocator.directBuffer(capacity, capacity);
+    }
+    while (capacity - usedBytes < length) {
+      Entry evicted = entries.removeFirst();
+      usedBytes -= evicted.length;
+      if (evicted.writtenTime == 0) {
+        evictedCount++;
+      }
+      failSendPromise(evicted);
+    }
+    int firstPart = Math.min(length, capacity - writeIndex);
+    ring.setBytes(writeIndex, message, message.readerIndex(), firstPart);
+    if (length > firstPart) {
+      ring.setBytes(0, message, message.readerIndex() + firstPart, length - firstPart);
+    }
+    Entry entry = new Entry(++lastSequenceNumber, type, writeIndex, length, sendPromise);
+    entries.addLast(entry);
+    writeIndex = (writeIndex + length) % capacity;
+    usedBytes += length;
+    return entry.sequenceNumber;
+  }
+
+  /**
+   * Marks all messages with sequence numbers up to the given one as written to the client and removes messages
+   * which were written earlier than the grace period ago.
+   */
+  synchronized void acknowledge(long sequenceNumber) {
+    long now = System.nanoTime();
+    for (Entry entry : entries) {
+      if (entry.sequenceNumber > sequenceNumber) {
+        break;
+      }
+      if (entry.writtenTime == 0) {
+        // Zero means not written, so time is shifted if clock is exactly at it
+        entry.writtenTime = now != 0 ? now : 1;
+      }
+    }
+    Entry entry;
+    while ((entry = entries.peekFirst()) != null && entry.writtenTime != 0
+        && now - entry.writtenTime >= gracePeriodNanos) {
+      entries.removeFirst();
+      usedBytes -= entry.length;
+    }
+  }
+
+  /**
+   * Returns copies of all stored messages in order of sequence numbers, including written ones which are still
+   * within the grace period. Messages are kept in the buffer until they are written again and their grace period
+   * expires. Send promises of returned messages are handed over to the caller.
+   */
+  synchronized List<ReplayedMessage> replay() {
+    List<ReplayedMessage> messages = new ArrayList<>(entries.size());
+    for (Entry entry : entries) {
+      ByteBuf copy = allocator.buffer(entry.length);
+      int firstPart = Math.min(entry.length, capacity - entry.offset);
+      copy.writeBytes(ring, entry.offset, firstPart);
+      if (entry.length > firstPart) {
+        copy.writeBytes(ring, 0, entry.length - firstPart);
+      }
+      messages.add(new ReplayedMessage(entry.sequenceNumber, entry.type, copy, entry.sendPromise));
+      entry.sendPromise = null;
+      entry.writtenTime = 0;
+    }
+    return messages;
+  }
+
+  /**
+   * Returns copies of all stored messages and clears the buffer.
+   */
+  synchronized List<ReplayedMessage> takeAll() {
+    List<ReplayedMessage> messages = replay();
+    entries.clear();
+    usedBytes = 0;
+    return messages;
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  synchronized int bytes() {
+    return usedBytes;
+  }
+
+  /**
+   * Returns number of messages which were evicted from full buffer before they were written.
+   */
+  synchronized long evictedCount() {
+    return evictedCount;
+  }
+
+  /**
+   * Releases memory of the buffer, messages aren't stored anymore after it.
+   */
+  synchronized void release() {
+    released = true;
+    for (Entry entry : entries) {
+      failSendPromise(entry);
+    }
+    entries.clear();
+    usedBytes = 0;
+    if (ring != null) {
+      ring.release();
+      ring = null;
+    }
+  }
+
+  private static void failSendPromise(Entry entry) {
+    if (entry.sendPromise != null) {
+      entry.sendPromise.tryFailure(new ClosedChannelException());
+      entry.sendPromise = null;
+    }
+  }
+
+  static final class ReplayedMessage {
+
+    final long sequenceNumber;
+    final PacketType type;
+    final ByteBuf data;
+    // Null if message was written before or nobody waits for it
+    final Promise<Void> sendPromise;
+
+    ReplayedMessage(long sequenceNumber, PacketType type, ByteBuf data, Promise<Void> sendPromise) {
+      this.sequenceNumber = sequenceNumber;
+      this.type = type;
+      this.data = data;
+      this.sendPromise = sendPromise;
+    }
+
+  }
+
+  private static final class Entry {
+
+    final long sequenceNumber;
+    final PacketType type;
+    final int offset;
+    final int length;
+    Promise<Void> sendPromise;
+    // Time in nanoseconds when write of message succeeded or 0 if it wasn't written yet
+    long writtenTime;
+
+    Entry(long sequenceNumber, PacketType type, int offset, int length, Promise<Void> sendPromise) {
+      this.sequenceNumber = sequenceNumber;
+      this.type = type;
+      this.offset = offset;
+      this.length = length;
+      this.sendPromise = sendPromise;
+    }
+
+  }
+
+}
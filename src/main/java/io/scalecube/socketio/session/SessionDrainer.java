@@ -0,0 +1,119 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import io.scalecube.socketio.Session;
+import io.scalecube.socketio.packets.ErrorAdvice;
+import io.scalecube.socketio.packets.Packet;
+import io.scalecube.socketio.packets.PacketType;
+
+/**
+ * Drains sessions before server shutdown. Every connected session receives error packet with reconnect advice
+ * ({@code 7:::+0}), so client disconnects and reconnects to another server. Sessions are advised in batches
+ * spread evenly across the drain window in order to avoid reconnect storm on neighbouring servers. After that
+ * drainer waits until packets queued by polling sessions are polled by clients.
+ */
+public final class SessionDrainer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SessionDrainer.class);
+
+  /**
+   * Interval in milliseconds between batches of advised sessions.
+   */
+  public static final long BATCH_INTERVAL_MILLIS = 100;
+
+  // Error packet data without reason and with reconnect advice, e.g. "+0"
+  private static final byte[] RECONNECT_ADVICE = ("+" + ErrorAdvice.RECONNECT.getValue()).getBytes(CharsetUtil.UTF_8);
+
+  private final SessionStorage sessionStorage;
+
+  public SessionDrainer(SessionStorage sessionStorage) {
+    this.sessionStorage = sessionStorage;
+  }
+
+  /**
+   * Sends reconnect advice to all connected sessions across the given window and waits up to the given timeout
+   * until polling queues are flushed. Both window and timeout are in milliseconds. Blocks calling thread until
+   * drain is completed.
+   *
+   * @return number of advised sessions
+   * @throws InterruptedException if calling thread was interrupted, in this case drain is aborted
+   */
+  public int drain(long windowMillis, long flushTimeoutMillis) throws InterruptedException {
+    List<ManagedSession> sessions = new ArrayList<>();
+    for (ManagedSession session : sessionStorage.getSessions()) {
+      if (session.getState() == Session.State.CONNECTED) {
+        sessions.add(session);
+      }
+    }
+
+    int batchSize = getBatchSize(sessions.size(), windowMillis);
+    LOGGER.info("Draining {} sessions in batches of {} sessions across {} ms", sessions.size(), batchSize,
+        windowMillis);
+
+    long startTime = System.nanoTime();
+    for (int i = 0, batch = 0; i < sessions.size(); batch++) {
+      long batchTime = startTime + TimeUnit.MILLISECONDS.toNanos(batch * BATCH_INTERVAL_MILLIS);
+      sleepUntil(batchTime);
+      for (int end = Math.min(i + batchSize, sessions.size()); i < end; i++) {
+        sendReconnectAdvice(sessions.get(i));
+      }
+    }
+
+    long flushDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushTimeoutMillis);
+    while (sessionStorage.getPollingQueuedPacketsCount() > 0 && System.nanoTime() < flushDeadline) {
+      Thread.sleep(Math.min(BATCH_INTERVAL_MILLIS,
+          Math.max(1, TimeUnit.NANOSECONDS.toMillis(flushDeadline - System.nanoTime()))));
+    }
+    long notFlushed = sessionStorage.getPollingQueuedPacketsCount();
+    if (notFlushed > 0) {
+      LOGGER.warn("Drain completed with {} packets which weren't polled by clients", notFlushed);
+    }
+    return sessions.size();
+  }
+
+  /**
+   * Returns number of sessions advised per batch in order to spread all sessions across the given window.
+   */
+  static int getBatchSize(int sessionsCount, long windowMillis) {
+    long batches = Math.max(1, windowMillis / BATCH_INTERVAL_MILLIS);
+    return (int) Math.max(1, (sessionsCount + batches - 1) / batches);
+  }
+
+  private static void sendReconnectAdvice(ManagedSession session) {
+    Packet packet = new Packet(PacketType.ERROR);
+    packet.setData(Unpooled.wrappedBuffer(RECONNECT_ADVICE));
+    try {
+      session.sendPacket(packet);
+    } catch (Exception e) {
+      LOGGER.warn("Failed to send reconnect advice to session {}", session.getSessionId(), e);
+    }
+  }
+
+  private static void sleepUntil(long nanoTime) throws InterruptedException {
+    long delayNanos = nanoTime - System.nanoTime();
+    if (delayNanos > 0) {
+      TimeUnit.NANOSECONDS.sleep(delayNanos);
+    }
+  }
+
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.session;
+
+import java.util.Collection;
+
+/**
+ * Storage of sessions by session id used by {@link SessionStorage}.
+ */
+interface SessionMap {
+
+  ManagedSession get(String sessionId);
+
+  /**
+   * Stores session if there is no session with the same id.
+   *
+   * @return previously stored session or null if the given session was stored
+   */
+  ManagedSession putIfAbsent(String sessionId, ManagedSession session);
+
+  /**
+   * @return removed session or null if there was no session with the given id
+   */
+  ManagedSession remove(String sessionId);
+
+  /**
+   * Replaces session with the given id only if it is currently mapped to the given old session.
+   *
+   * @return true if session was replaced
+   */
+  boolean replace(String sessionId, ManagedSession oldSession, ManagedSession newSession);
+
+  /**
+   * Returns all stored sessions. Returned collection may be either a view or a snapshot.
+   */
+  Collection<ManagedSession> values();
+
+}
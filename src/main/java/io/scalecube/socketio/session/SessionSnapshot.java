@@ -0,0 +1,240 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.session;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.netty.util.CharsetUtil;
+import io.scalecube.socketio.TransportType;
+
+/**
+ * Snapshot of sessions metadata which is saved to memory-mapped file on server stop and loaded on server start,
+ * so clients which reconnect with known session id may resume their sessions.
+ *
+ * <p>
+ * File format: magic number, version, save time and number of entries followed by entries. Each entry contains
+ * session id, origin, transport type, remote address, creation time, last heartbeat time and joined rooms.
+ * Strings are encoded as UTF-8 prefixed by length and null strings are encoded with length -1.
+ * </p>
+ */
+public final class SessionSnapshot {
+
+  private static final int MAGIC = 0x53494f53; // "SIOS"
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+  private static final Charset UTF_8 = CharsetUtil.UTF_8;
+  private static final TransportType[] TRANSPORT_TYPES = TransportType.values();
+
+  private final long saveTime;
+  private final Map<String, Entry> entries;
+
+  private SessionSnapshot(long saveTime, Map<String, Entry> entries) {
+    this.saveTime = saveTime;
+    this.entries = entries;
+  }
+
+  /**
+   * Returns time in milliseconds when snapshot was saved.
+   */
+  public long getSaveTime() {
+    return saveTime;
+  }
+
+  /**
+   * Returns snapshot entries by session id.
+   */
+  public Map<String, Entry> getEntries() {
+    return Collections.unmodifiableMap(entries);
+  }
+
+  /**
+   * Writes entries to the given file, file is overwritten if it exists.
+   */
+  public static void write(File file, long saveTime, Collection<Entry> entries) throws IOException {
+    List<byte[][]> encodedEntries = new ArrayList<>(entries.size());
+    long size = HEADER_SIZE;
+    for (Entry entry : entries) {
+      byte[][] strings = new byte[3 + entry.rooms.size()][];
+      strings[0] = encode(entry.sessionId);
+      strings[1] = encode(entry.origin);
+      strings[2] = encode(entry.remoteAddress);
+      for (int i = 0; i < entry.rooms.size(); i++) {
+        strings[3 + i] = encode(entry.rooms.get(i));
+      }
+      encodedEntries.add(strings);
+      // transport type + creation time + heartbeat time + rooms count + strings
+      size += 1 + 8 + 8 + 4;
+      for (byte[] string : strings) {
+        size += 4 + (string != null ? string.length : 0);
+      }
+    }
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("Session snapshot is too large: " + size);
+    }
+
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+      raf.setLength(size);
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      buffer.putInt(MAGIC);
+      buffer.putInt(VERSION);
+      buffer.putLong(saveTime);
+      buffer.putInt(entries.size());
+      int i = 0;
+      for (Entry entry : entries) {
+        byte[][] strings = encodedEntries.get(i++);
+        putString(buffer, strings[0]);
+        putString(buffer, strings[1]);
+        buffer.put((byte) entry.transportType.ordinal());
+        putString(buffer, strings[2]);
+        buffer.putLong(entry.creationTime);
+        buffer.putLong(entry.lastHeartbeatTime);
+        buffer.putInt(entry.rooms.size());
+        for (int j = 3; j < strings.length; j++) {
+          putString(buffer, strings[j]);
+        }
+      }
+      buffer.force();
+    }
+  }
+
+  /**
+   * Reads snapshot from the given file.
+   *
+   * @throws IOException if file can't be read or has invalid format
+   */
+  public static SessionSnapshot read(File file) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      try {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+          throw new IOException("Invalid session snapshot file: " + file);
+        }
+        long saveTime = buffer.getLong();
+        int count = buffer.getInt();
+        Map<String, Entry> entries = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+          String sessionId = getString(buffer);
+          String origin = getString(buffer);
+          int transportType = buffer.get();
+          if (transportType < 0 || transportType >= TRANSPORT_TYPES.length) {
+            throw new IOException("Invalid transport type in session snapshot: " + transportType);
+          }
+          String remoteAddress = getString(buffer);
+          long creationTime = buffer.getLong();
+          long lastHeartbeatTime = buffer.getLong();
+          int roomsCount = buffer.getInt();
+          List<String> rooms = new ArrayList<>(Math.max(0, Math.min(roomsCount, buffer.remaining() / 4)));
+          for (int j = 0; j < roomsCount; j++) {
+            rooms.add(getString(buffer));
+          }
+          entries.put(sessionId, new Entry(sessionId, origin, TRANSPORT_TYPES[transportType], remoteAddress,
+              creationTime, lastHeartbeatTime, rooms));
+        }
+        return new SessionSnapshot(saveTime, entries);
+      } catch (RuntimeException e) {
+        // E.g. BufferUnderflowException on truncated file
+        throw new IOException("Invalid session snapshot file: " + file, e);
+      }
+    }
+  }
+
+  private static byte[] encode(String string) {
+    return string != null ? string.getBytes(UTF_8) : null;
+  }
+
+  private static void putString(ByteBuffer buffer, byte[] string) {
+    if (string == null) {
+      buffer.putInt(-1);
+    } else {
+      buffer.putInt(string.length);
+      buffer.put(string);
+    }
+  }
+
+  private static String getString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  /**
+   * Metadata of the single session.
+   */
+  public static final class Entry {
+
+    private final String sessionId;
+    private final String origin;
+    private final TransportType transportType;
+    private final String remoteAddress;
+    private final long creationTime;
+    private final long lastHeartbeatTime;
+    private final List<String> rooms;
+
+    public Entry(String sessionId, String origin, TransportType transportType, String remoteAddress,
+                 long creationTime, long lastHeartbeatTime, List<String> rooms) {
+      this.sessionId = sessionId;
+      this.origin = origin;
+      this.transportType = transportType;
+      this.remoteAddress = remoteAddress;
+      this.creationTime = creationTime;
+      this.lastHeartbeatTime = lastHeartbeatTime;
+      this.rooms = rooms;
+    }
+
+    public String getSessionId() {
+      return sessionId;
+    }
+
+    public String getOrigin() {
+      return origin;
+    }
+
+    public TransportType getTransportType() {
+      return transportType;
+    }
+
+    public String getRemoteAddress() {
+      return remoteAddress;
+    }
+
+    public long getCreationTime() {
+      return creationTime;
+    }
+
+    public long getLastHeartbeatTime() {
+      return lastHeartbeatTime;
+    }
+
+    public List<String> getRooms() {
+      return rooms;
+    }
+
+  }
+
+}
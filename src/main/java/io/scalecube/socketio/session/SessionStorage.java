@@ -15,12 +15,28 @@ package io.scalecube.socketio.session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import io.netty.channel.Channel;
+import io.scalecube.socketio.OverflowPolicy;
+import io.scalecube.socketio.ServerConfiguration;
+import io.scalecube.socketio.Session;
 import io.scalecube.socketio.TransportType;
+import io.scalecube.socketio.metrics.LatencyHistogram;
+import io.scalecube.socketio.metrics.SocketIOMetrics;
+import io.scalecube.socketio.metrics.StripedLongCounter;
 import io.scalecube.socketio.packets.ConnectPacket;
 import io.scalecube.socketio.pipeline.UnsupportedTransportTypeException;
 
@@ -33,20 +49,282 @@ public class SessionStorage {
 
   private final Logger log = LoggerFactory.getLogger(getClass());
 
-  private final ConcurrentMap<String, ManagedSession> sessions = new ConcurrentHashMap<>();
+  // Number of sharded storage stripes per available processor, it is a multiple of Netty's default number of I/O
+  // threads in order to keep contention on stripe locks low
+  private static final int SHARDS_PER_PROCESSOR = 8;
+
+  private final SessionMap sessions;
+  private final StripedLongCounter connectsCounter = new StripedLongCounter();
+  private final StripedLongCounter disconnectsCounter = new StripedLongCounter();
+
+  // Session ids by room name and room names by session id
+  private final ConcurrentMap<String, Set<String>> rooms = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Set<String>> roomsBySession = new ConcurrentHashMap<>();
 
   private final int localPort;
+  private final int pollingQueueMaxSize;
+  private final long pollingQueueMaxBytes;
+  private final OverflowPolicy pollingQueueOverflowPolicy;
+  private final PollingQueueCounters pollingQueueCounters;
+  private final SocketIOMetrics metrics;
+  private final int replayBufferSize;
+  private final long replayGracePeriodNanos;
+  private final Map<TransportType, LatencyHistogram> sendLatencyHistograms;
+
+  // Sessions loaded from snapshot of previous server run which may be resumed by clients until deadline
+  private final ConcurrentMap<String, SessionSnapshot.Entry> resumableSessions = new ConcurrentHashMap<>();
+  private volatile long resumeDeadline;
 
   public SessionStorage(int localPort) {
-    this.localPort = localPort;
+    this(ServerConfiguration.builder().port(localPort).build());
+  }
+
+  public SessionStorage(ServerConfiguration configuration) {
+    this.localPort = configuration.getPort();
+    this.pollingQueueMaxSize = configuration.getPollingQueueMaxSize();
+    this.pollingQueueMaxBytes = configuration.getPollingQueueMaxBytes();
+    this.pollingQueueOverflowPolicy = configuration.getPollingQueueOverflowPolicy();
+    this.metrics = configuration.getMetrics();
+    this.replayBufferSize = configuration.getReplayBufferSize();
+    this.replayGracePeriodNanos = TimeUnit.SECONDS.toNanos(configuration.getReplayGracePeriod());
+    this.pollingQueueCounters = new PollingQueueCounters(metrics);
+    if (configuration.isSendLatencyTrackingEnabled()) {
+      sendLatencyHistograms = new EnumMap<>(TransportType.class);
+      for (TransportType transportType : TransportType.values()) {
+        sendLatencyHistograms.put(transportType, new LatencyHistogram());
+      }
+    } else {
+      sendLatencyHistograms = Collections.emptyMap();
+    }
+    this.sessions = configuration.isShardedSessionStorageEnabled()
+        ? new ShardedSessionMap(Runtime.getRuntime().availableProcessors() * SHARDS_PER_PROCESSOR)
+        : new ConcurrentSessionMap();
   }
 
   public boolean containSession(final String sessionId) {
-    return sessions.containsKey(sessionId);
+    return sessions.get(sessionId) != null;
   }
 
   public void removeSession(final String sessionId) {
-    sessions.remove(sessionId);
+    ManagedSession removedSession = sessions.remove(sessionId);
+    if (removedSession != null) {
+      disconnectsCounter.increment();
+      if (metrics != null) {
+        metrics.onSessionDisconnected(removedSession.getTransportType());
+      }
+    }
+    leaveAll(sessionId);
+  }
+
+  /**
+   * Returns number of currently stored sessions.
+   */
+  public long getSessionsCount() {
+    return getConnectsCount() - getDisconnectsCount();
+  }
+
+  /**
+   * Returns total number of sessions which were stored.
+   */
+  public long getConnectsCount() {
+    return connectsCounter.value();
+  }
+
+  /**
+   * Returns total number of sessions which were removed.
+   */
+  public long getDisconnectsCount() {
+    return disconnectsCounter.value();
+  }
+
+  /**
+   * Returns total number of packets queued by polling sessions.
+   */
+  public long getPollingQueuedPacketsCount() {
+    return pollingQueueCounters.queuedPackets.value();
+  }
+
+  /**
+   * Returns total size in bytes of packets queued by polling sessions.
+   */
+  public long getPollingQueuedBytes() {
+    return pollingQueueCounters.queuedBytes.value();
+  }
+
+  /**
+   * Returns total number of packets which were dropped by polling sessions due to queue overflow or disconnect.
+   */
+  public long getPollingDroppedPacketsCount() {
+    return pollingQueueCounters.droppedPackets.value();
+  }
+
+  /**
+   * Returns histogram of latency of messages sent by sessions of the given transport type or null if send latency
+   * tracking is disabled.
+   */
+  public LatencyHistogram getSendLatencyHistogram(TransportType transportType) {
+    return sendLatencyHistograms.get(transportType);
+  }
+
+  /**
+   * Returns metrics which are notified about server events or null if metrics are disabled.
+   */
+  public SocketIOMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Returns all currently stored sessions. Depending on storage mode it is either a view or a snapshot.
+   */
+  public Collection<ManagedSession> getSessions() {
+    return sessions.values();
+  }
+
+  /**
+   * Adds session to the given room. Room is created on first join and removed when last session leaves it.
+   * If there is no such session or it is removed concurrently it doesn't stay in the room.
+   */
+  public void join(final String room, final String sessionId) {
+    addToGroup(rooms, room, sessionId);
+    addToGroup(roomsBySession, sessionId, room);
+    // Session may be removed together with its rooms right before it was added, so verify after adding
+    if (sessions.get(sessionId) == null) {
+      leave(room, sessionId);
+    }
+  }
+
+  /**
+   * Removes session from the given room.
+   */
+  public void leave(final String room, final String sessionId) {
+    removeFromGroup(rooms, room, sessionId);
+    removeFromGroup(roomsBySession, sessionId, room);
+  }
+
+  /**
+   * Returns view of session ids which joined the given room or empty set if there is no such room.
+   */
+  public Set<String> getRoom(final String room) {
+    Set<String> members = rooms.get(room);
+    return members != null ? Collections.unmodifiableSet(members) : Collections.<String>emptySet();
+  }
+
+  /**
+   * Saves metadata of currently stored sessions and sessions which still may be resumed to the given snapshot file.
+   *
+   * @return number of saved sessions
+   */
+  public int saveSnapshot(final File file) throws IOException {
+    List<SessionSnapshot.Entry> entries = new ArrayList<>();
+    for (ManagedSession session : sessions.values()) {
+      if (!(session instanceof AbstractSession) || session.getState() == Session.State.DISCONNECTED) {
+        continue;
+      }
+      AbstractSession abstractSession = (AbstractSession) session;
+      Set<String> joinedRooms = roomsBySession.get(session.getSessionId());
+      entries.add(new SessionSnapshot.Entry(
+          session.getSessionId(),
+          session.getOrigin(),
+          session.getTransportType(),
+          session.getRemoteAddress() != null ? session.getRemoteAddress().toString() : null,
+          session.getCreationTime(),
+          abstractSession.getLastHeartbeatTime(),
+          joinedRooms != null ? new ArrayList<>(joinedRooms) : Collections.<String>emptyList()));
+    }
+    if (System.currentTimeMillis() < resumeDeadline) {
+      for (SessionSnapshot.Entry entry : resumableSessions.values()) {
+        if (sessions.get(entry.getSessionId()) == null) {
+          entries.add(entry);
+        }
+      }
+    }
+    SessionSnapshot.write(file, System.currentTimeMillis(), entries);
+    return entries.size();
+  }
+
+  /**
+   * Loads session snapshot from the given file, so clients which reconnect with session id from snapshot within
+   * the given timeout resume their sessions with original creation time and joined rooms. Snapshot file is deleted
+   * after loading in order to not resume the same sessions twice.
+   *
+   * @return number of loaded sessions or 0 if there is no snapshot file
+   */
+  public int loadSnapshot(final File file, final long resumeTimeoutMillis) throws IOException {
+    if (!file.exists()) {
+      return 0;
+    }
+    try {
+      SessionSnapshot snapshot = SessionSnapshot.read(file);
+      resumableSessions.clear();
+      resumableSessions.putAll(snapshot.getEntries());
+      resumeDeadline = System.currentTimeMillis() + resumeTimeoutMillis;
+      return resumableSessions.size();
+    } finally {
+      if (!file.delete()) {
+        log.warn("Failed to delete session snapshot file: {}", file);
+      }
+    }
+  }
+
+  /**
+   * Returns number of sessions loaded from snapshot which still may be resumed.
+   */
+  public int getResumableSessionsCount() {
+    if (!resumableSessions.isEmpty() && System.currentTimeMillis() >= resumeDeadline) {
+      resumableSessions.clear();
+    }
+    return resumableSessions.size();
+  }
+
+  private SessionSnapshot.Entry getResumableSession(final String sessionId) {
+    if (resumableSessions.isEmpty()) {
+      return null;
+    }
+    if (System.currentTimeMillis() >= resumeDeadline) {
+      resumableSessions.clear();
+      return null;
+    }
+    return resumableSessions.get(sessionId);
+  }
+
+  private void leaveAll(final String sessionId) {
+    Set<String> joinedRooms = roomsBySession.remove(sessionId);
+    if (joinedRooms != null) {
+      for (String room : joinedRooms) {
+        removeFromGroup(rooms, room, sessionId);
+      }
+    }
+  }
+
+  private static void addToGroup(ConcurrentMap<String, Set<String>> groups, String key, String value) {
+    for (;;) {
+      Set<String> group = groups.get(key);
+      if (group == null) {
+        Set<String> newGroup = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        group = groups.putIfAbsent(key, newGroup);
+        if (group == null) {
+          group = newGroup;
+        }
+      }
+      // Group is removed under the same lock when it becomes empty, so retry if we got removed one
+      synchronized (group) {
+        if (groups.get(key) == group) {
+          group.add(value);
+          return;
+        }
+      }
+    }
+  }
+
+  private static void removeFromGroup(ConcurrentMap<String, Set<String>> groups, String key, String value) {
+    Set<String> group = groups.get(key);
+    if (group != null) {
+      synchronized (group) {
+        if (group.remove(value) && group.isEmpty()) {
+          groups.remove(key, group);
+        }
+      }
+    }
   }
 
   public ManagedSession getSession(final ConnectPacket connectPacket,
@@ -55,16 +333,31 @@ public class SessionStorage {
 
     ManagedSession session = getOrCreateSession(connectPacket, channel, disconnectHandler, null);
 
-    // If transport protocol was changed then remove old session and create new one instead
-    if (connectPacket.getTransportType() != session.getTransportType()) {
-      session.markAsUpgraded();
+    // If transport protocol was changed then replace old session by new one of the requested transport type
+    while (connectPacket.getTransportType() != session.getTransportType()) {
+      ManagedSession oldSession = session;
+      String oldSessionId = oldSession.getSessionId();
+      TransportType oldTransportType = oldSession.getTransportType();
 
-      String oldSessionId = session.getSessionId();
-      TransportType oldTransportType = session.getTransportType();
+      session = createSession(connectPacket, channel, disconnectHandler, oldTransportType);
+      configureSession(session, channel);
+      if (!sessions.replace(connectPacket.getSessionId(), oldSession, session)) {
+        // Session was concurrently upgraded or removed
+        session = getOrCreateSession(connectPacket, channel, disconnectHandler, null);
+        continue;
+      }
+      // Session keeps its identity, rooms and pending packets
+      if (oldSession instanceof AbstractSession && session instanceof AbstractSession) {
+        ((AbstractSession) oldSession).upgradeTo((AbstractSession) session);
+      } else {
+        oldSession.markAsUpgraded();
+      }
 
-      final String sessionId = connectPacket.getSessionId();
-      removeSession(sessionId);
-      session = getOrCreateSession(connectPacket, channel, disconnectHandler, session.getTransportType());
+      if (metrics != null) {
+        metrics.onSessionDisconnected(oldTransportType);
+        metrics.onSessionConnected(session.getTransportType());
+        metrics.onSessionUpgraded(oldTransportType, session.getTransportType());
+      }
 
       if (log.isDebugEnabled())
         log.debug("{} transport type {} session was upgraded to new transport type {} and session {}",
@@ -82,9 +375,26 @@ public class SessionStorage {
     ManagedSession session = sessions.get(sessionId);
     if (session == null) {
       session = createSession(connectPacket, channel, disconnectHandler, upgradedFromTransportType);
+      configureSession(session, channel);
+      SessionSnapshot.Entry resumableSession = getResumableSession(sessionId);
+      if (resumableSession != null && session instanceof AbstractSession) {
+        ((AbstractSession) session).resume(resumableSession.getCreationTime());
+      }
       ManagedSession fasterSession = sessions.putIfAbsent(sessionId, session);
       if (fasterSession != null) {
         session = fasterSession;
+      } else {
+        if (resumableSession != null && resumableSessions.remove(sessionId, resumableSession)) {
+          for (String room : resumableSession.getRooms()) {
+            join(room, sessionId);
+          }
+          if (log.isDebugEnabled())
+            log.debug("Session {} was resumed from session snapshot", sessionId);
+        }
+        connectsCounter.increment();
+        if (metrics != null) {
+          metrics.onSessionConnected(session.getTransportType());
+        }
       }
     }
     return session;
@@ -110,16 +420,48 @@ public class SessionStorage {
             origin, disconnectHandler, upgradedFromTransportType, localPort, remoteAddress);
       case XHR_POLLING:
         return new XHRPollingSession(channel, sessionId,
-            origin, disconnectHandler, upgradedFromTransportType, localPort, remoteAddress);
+            origin, disconnectHandler, upgradedFromTransportType, localPort, remoteAddress, newPollingQueue());
       case JSONP_POLLING:
         return new JsonpPollingSession(channel, sessionId,
-            origin, disconnectHandler, upgradedFromTransportType, localPort, jsonpIndexParam, remoteAddress);
+            origin, disconnectHandler, upgradedFromTransportType, localPort, jsonpIndexParam, remoteAddress,
+            newPollingQueue());
       default:
         throw new UnsupportedTransportTypeException(transportType);
     }
   }
 
+  private void configureSession(final ManagedSession session, final Channel channel) {
+    if (session instanceof AbstractSession) {
+      ((AbstractSession) session).setSendLatencyHistogram(sendLatencyHistograms.get(session.getTransportType()));
+    }
+    if (replayBufferSize > 0 && session instanceof AbstractSocketSession) {
+      ((AbstractSocketSession) session).setReplayBuffer(
+          new ReplayBuffer(channel.alloc(), replayBufferSize, replayGracePeriodNanos));
+    }
+  }
+
+  private PollingQueue newPollingQueue() {
+    return new PollingQueue(pollingQueueMaxSize, pollingQueueMaxBytes, pollingQueueOverflowPolicy,
+        pollingQueueCounters);
+  }
+
   public ManagedSession getSessionIfExist(final String sessionId) {
     return sessions.get(sessionId);
   }
+
+  /**
+   * Returns session with the given id which received packet from the given channel. Socket sessions are bound
+   * to their channels on connect, so they are resolved without session storage lookup, otherwise it is the same
+   * as {@link #getSessionIfExist(String)}.
+   */
+  public ManagedSession getSessionIfExist(final Channel channel, final String sessionId) {
+    if (channel.hasAttr(AbstractSocketSession.SESSION)) {
+      ManagedSession session = channel.attr(AbstractSocketSession.SESSION).get();
+      if (session != null && session.getState() != Session.State.DISCONNECTED
+          && session.getSessionId().equals(sessionId)) {
+        return session;
+      }
+    }
+    return sessions.get(sessionId);
+  }
 }
@@ -0,0 +1,277 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.session;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Session map which keeps sessions in a number of lock striped open-addressing hash tables. Session ids generated
+ * at handshake are UUIDs in canonical form, so they are stored as two longs instead of strings. Ids in any other
+ * format (e.g. provided by client) are stored in a regular concurrent map.
+ */
+final class ShardedSessionMap implements SessionMap {
+
+  private static final int UUID_LENGTH = 36;
+
+  private final Shard[] shards;
+  private final int shardMask;
+  private final ConcurrentMap<String, ManagedSession> otherSessions = new ConcurrentHashMap<>();
+
+  public ShardedSessionMap(int concurrencyLevel) {
+    int shardsCount = 1;
+    while (shardsCount < concurrencyLevel) {
+      shardsCount <<= 1;
+    }
+    shards = new Shard[shardsCount];
+    for (int i = 0; i < shardsCount; i++) {
+      shards[i] = new Shard();
+    }
+    shardMask = shardsCount - 1;
+  }
+
+  @Override
+  public ManagedSession get(String sessionId) {
+    if (!isUuid(sessionId)) {
+      return otherSessions.get(sessionId);
+    }
+    long msb = parseMostSigBits(sessionId);
+    long lsb = parseLeastSigBits(sessionId);
+    long hash = hash(msb, lsb);
+    return shard(hash).get(msb, lsb, hash);
+  }
+
+  @Override
+  public ManagedSession putIfAbsent(String sessionId, ManagedSession session) {
+    if (!isUuid(sessionId)) {
+      return otherSessions.putIfAbsent(sessionId, session);
+    }
+    long msb = parseMostSigBits(sessionId);
+    long lsb = parseLeastSigBits(sessionId);
+    long hash = hash(msb, lsb);
+    return shard(hash).putIfAbsent(msb, lsb, hash, session);
+  }
+
+  @Override
+  public ManagedSession remove(String sessionId) {
+    if (!isUuid(sessionId)) {
+      return otherSessions.remove(sessionId);
+    }
+    long msb = parseMostSigBits(sessionId);
+    long lsb = parseLeastSigBits(sessionId);
+    long hash = hash(msb, lsb);
+    return shard(hash).remove(msb, lsb, hash);
+  }
+
+  @Override
+  public boolean replace(String sessionId, ManagedSession oldSession, ManagedSession newSession) {
+    if (!isUuid(sessionId)) {
+      return otherSessions.replace(sessionId, oldSession, newSession);
+    }
+    long msb = parseMostSigBits(sessionId);
+    long lsb = parseLeastSigBits(sessionId);
+    long hash = hash(msb, lsb);
+    return shard(hash).replace(msb, lsb, hash, oldSession, newSession);
+  }
+
+  @Override
+  public Collection<ManagedSession> values() {
+    List<ManagedSession> values = new ArrayList<>(otherSessions.values());
+    for (Shard shard : shards) {
+      shard.collect(values);
+    }
+    return values;
+  }
+
+  private Shard shard(long hash) {
+    return shards[(int) (hash >>> 40) & shardMask];
+  }
+
+  private static long hash(long msb, long lsb) {
+    long h = msb ^ lsb;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  /**
+   * Checks if session id is UUID in canonical lower case form as generated by {@link java.util.UUID#toString()}.
+   */
+  static boolean isUuid(String id) {
+    if (id == null || id.length() != UUID_LENGTH) {
+      return false;
+    }
+    for (int i = 0; i < UUID_LENGTH; i++) {
+      char c = id.charAt(i);
+      if (i == 8 || i == 13 || i == 18 || i == 23) {
+        if (c != '-') {
+          return false;
+        }
+      } else if (hexValue(c) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static long parseMostSigBits(String uuid) {
+    long bits = parseHex(uuid, 0, 8);
+    bits = (bits << 16) | parseHex(uuid, 9, 13);
+    return (bits << 16) | parseHex(uuid, 14, 18);
+  }
+
+  static long parseLeastSigBits(String uuid) {
+    long bits = parseHex(uuid, 19, 23);
+    return (bits << 48) | parseHex(uuid, 24, 36);
+  }
+
+  private static long parseHex(String s, int from, int to) {
+    long value = 0;
+    for (int i = from; i < to; i++) {
+      value = (value << 4) | hexValue(s.charAt(i));
+    }
+    return value;
+  }
+
+  private static int hexValue(char c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0';
+    } else if (c >= 'a' && c <= 'f') {
+      return c - 'a' + 10;
+    } else {
+      return -1;
+    }
+  }
+
+  /**
+   * Open-addressing hash table with linear probing and backward shift deletion.
+   */
+  private static final class Shard {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] msbs = new long[INITIAL_CAPACITY];
+    private long[] lsbs = new long[INITIAL_CAPACITY];
+    private ManagedSession[] sessions = new ManagedSession[INITIAL_CAPACITY];
+    private int size;
+
+    synchronized ManagedSession get(long msb, long lsb, long hash) {
+      int mask = sessions.length - 1;
+      for (int i = (int) hash & mask; sessions[i] != null; i = (i + 1) & mask) {
+        if (msbs[i] == msb && lsbs[i] == lsb) {
+          return sessions[i];
+        }
+      }
+      return null;
+    }
+
+    synchronized ManagedSession putIfAbsent(long msb, long lsb, long hash, ManagedSession session) {
+      int mask = sessions.length - 1;
+      int i = (int) hash & mask;
+      for (; sessions[i] != null; i = (i + 1) & mask) {
+        if (msbs[i] == msb && lsbs[i] == lsb) {
+          return sessions[i];
+        }
+      }
+      msbs[i] = msb;
+      lsbs[i] = lsb;
+      sessions[i] = session;
+      if (++size > (sessions.length >> 1) + (sessions.length >> 2)) {
+        resize(sessions.length << 1);
+      }
+      return null;
+    }
+
+    synchronized ManagedSession remove(long msb, long lsb, long hash) {
+      int mask = sessions.length - 1;
+      int i = (int) hash & mask;
+      for (; sessions[i] != null; i = (i + 1) & mask) {
+        if (msbs[i] == msb && lsbs[i] == lsb) {
+          ManagedSession removed = sessions[i];
+          shiftBackward(i);
+          size--;
+          return removed;
+        }
+      }
+      return null;
+    }
+
+    synchronized boolean replace(long msb, long lsb, long hash, ManagedSession oldSession,
+                                 ManagedSession newSession) {
+      int mask = sessions.length - 1;
+      for (int i = (int) hash & mask; sessions[i] != null; i = (i + 1) & mask) {
+        if (msbs[i] == msb && lsbs[i] == lsb) {
+          if (sessions[i] != oldSession) {
+            return false;
+          }
+          sessions[i] = newSession;
+          return true;
+        }
+      }
+      return false;
+    }
+
+    synchronized void collect(List<ManagedSession> values) {
+      for (ManagedSession session : sessions) {
+        if (session != null) {
+          values.add(session);
+        }
+      }
+    }
+
+    /**
+     * Fills the gap at the given slot by moving back subsequent entries of the same probe sequence.
+     */
+    private void shiftBackward(int gap) {
+      int mask = sessions.length - 1;
+      int i = (gap + 1) & mask;
+      for (; sessions[i] != null; i = (i + 1) & mask) {
+        int home = (int) hash(msbs[i], lsbs[i]) & mask;
+        // Move entry if its home slot isn't in the cyclic range (gap, i]
+        if (((i - home) & mask) >= ((i - gap) & mask)) {
+          msbs[gap] = msbs[i];
+          lsbs[gap] = lsbs[i];
+          sessions[gap] = sessions[i];
+          gap = i;
+        }
+      }
+      sessions[gap] = null;
+    }
+
+    private void resize(int capacity) {
+      long[] oldMsbs = msbs;
+      long[] oldLsbs = lsbs;
+      ManagedSession[] oldSessions = sessions;
+      msbs = new long[capacity];
+      lsbs = new long[capacity];
+      sessions = new ManagedSession[capacity];
+      int mask = capacity - 1;
+      for (int j = 0; j < oldSessions.length; j++) {
+        if (oldSessions[j] != null) {
+          int i = (int) hash(oldMsbs[j], oldLsbs[j]) & mask;
+          while (sessions[i] != null) {
+            i = (i + 1) & mask;
+          }
+          msbs[i] = oldMsbs[j];
+          lsbs[i] = oldLsbs[j];
+          sessions[i] = oldSessions[j];
+        }
+      }
+    }
+  }
+
+}
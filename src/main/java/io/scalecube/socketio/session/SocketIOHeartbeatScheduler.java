@@ -20,6 +20,7 @@ import java.util.concurrent.TimeUnit;
 import io.netty.util.HashedWheelTimer;
 import io.netty.util.Timeout;
 import io.netty.util.TimerTask;
+import io.scalecube.socketio.metrics.SocketIOMetrics;
 
 public class SocketIOHeartbeatScheduler {
 
@@ -30,6 +31,10 @@ public class SocketIOHeartbeatScheduler {
 
   private static HashedWheelTimer hashedWheelTimer;
 
+  private static HeartbeatSweeper heartbeatSweeper;
+
+  private static SocketIOMetrics metrics;
+
   private Timeout hTimeout = null;
   private Timeout dTimeout = null;
 
@@ -37,6 +42,10 @@ public class SocketIOHeartbeatScheduler {
 
   private volatile boolean disabled = false;
 
+  // Used only if heartbeat sweeper is enabled
+  private volatile long lastHeartbeatTime;
+  private volatile boolean registered = false;
+
   public SocketIOHeartbeatScheduler(final ManagedSession session) {
     this.session = session;
   }
@@ -45,6 +54,20 @@ public class SocketIOHeartbeatScheduler {
     SocketIOHeartbeatScheduler.hashedWheelTimer = hashedWheelTimer;
   }
 
+  /**
+   * Sets heartbeat sweeper which is used instead of per session timeouts if it isn't null.
+   */
+  public static void setHeartbeatSweeper(HeartbeatSweeper heartbeatSweeper) {
+    SocketIOHeartbeatScheduler.heartbeatSweeper = heartbeatSweeper;
+  }
+
+  /**
+   * Sets metrics which are notified about heartbeat timeouts or null if metrics are disabled.
+   */
+  public static void setMetrics(SocketIOMetrics metrics) {
+    SocketIOHeartbeatScheduler.metrics = metrics;
+  }
+
   public static void setHeartbeatInterval(int heartbeatInterval) {
     SocketIOHeartbeatScheduler.heartbeatInterval = heartbeatInterval;
   }
@@ -54,7 +77,14 @@ public class SocketIOHeartbeatScheduler {
   }
 
   public void reschedule() {
-    if (!disabled) {
+    if (disabled) {
+      return;
+    }
+    HeartbeatSweeper sweeper = heartbeatSweeper;
+    if (sweeper != null) {
+      lastHeartbeatTime = System.nanoTime();
+      register(sweeper);
+    } else {
       cancelDisconnect();
       cancelHeartbeat();
       scheduleHeartbeat();
@@ -76,6 +106,9 @@ public class SocketIOHeartbeatScheduler {
 
   public void disableHeartbeat() {
     disabled = true;
+    // Release timer wheel slots instead of waiting for timeouts to expire
+    cancelHeartbeat();
+    cancelDisconnect();
   }
 
   private void scheduleHeartbeat() {
@@ -92,15 +125,74 @@ public class SocketIOHeartbeatScheduler {
   }
 
   public void scheduleDisconnect() {
+    HeartbeatSweeper sweeper = heartbeatSweeper;
+    if (sweeper != null) {
+      // Sweeper disconnects session in heartbeat timeout after the last heartbeat, which is the same moment
+      // when already scheduled disconnect timeout would be triggered
+      if (!registered) {
+        lastHeartbeatTime = System.nanoTime();
+        register(sweeper);
+      }
+      return;
+    }
     dTimeout = hashedWheelTimer.newTimeout(new TimerTask() {
       @Override
       public void run(Timeout timeout) throws Exception {
         if (!disabled) {
           if (log.isDebugEnabled())
             log.debug("{} Session will be disconnected by timeout", session.getSessionId());
+          onHeartbeatTimeout();
           session.disconnect();
         }
       }
     }, heartbeatTimeout, TimeUnit.SECONDS);
   }
+
+  private void register(HeartbeatSweeper sweeper) {
+    if (!registered) {
+      synchronized (this) {
+        if (!registered) {
+          registered = true;
+          sweeper.register(this);
+        }
+      }
+    }
+  }
+
+  private static void onHeartbeatTimeout() {
+    SocketIOMetrics currentMetrics = metrics;
+    if (currentMetrics != null) {
+      currentMetrics.onHeartbeatTimeout();
+    }
+  }
+
+  ManagedSession getSession() {
+    return session;
+  }
+
+  /**
+   * Invoked by heartbeat sweeper on each visit of this scheduler's bucket. Heartbeats of socket sessions are added
+   * to the given batch, so they are written and flushed together per event loop.
+   *
+   * @return false if scheduler should be removed from the sweeper; true otherwise.
+   */
+  boolean sweep(long now, long heartbeatTimeoutNanos, EventLoopBatch heartbeatBatch) {
+    if (disabled) {
+      return false;
+    }
+    if (now - lastHeartbeatTime >= heartbeatTimeoutNanos) {
+      if (log.isDebugEnabled())
+        log.debug("{} Session will be disconnected by timeout", session.getSessionId());
+      onHeartbeatTimeout();
+      session.disconnect();
+      return false;
+    }
+    if (session instanceof AbstractSocketSession) {
+      AbstractSocketSession socketSession = (AbstractSocketSession) session;
+      heartbeatBatch.add(socketSession.getChannel(), socketSession.newHeartbeatFrame());
+    } else {
+      session.sendHeartbeat();
+    }
+    return true;
+  }
 }
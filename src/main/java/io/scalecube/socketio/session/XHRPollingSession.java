@@ -25,6 +25,12 @@ public class XHRPollingSession extends AbstractPollingSession {
     super(channel, sessionId, origin, disconnectHandler, upgradedFromTransportType, localPort, remoteAddress);
   }
 
+  public XHRPollingSession(final Channel channel, final String sessionId, final String origin,
+                           final SessionDisconnectHandler disconnectHandler, final TransportType upgradedFromTransportType, final int localPort,
+                           final SocketAddress remoteAddress, final PollingQueue messagesQueue) {
+    super(channel, sessionId, origin, disconnectHandler, upgradedFromTransportType, localPort, remoteAddress, messagesQueue);
+  }
+
   @Override
   public TransportType getTransportType() {
     return TransportType.XHR_POLLING;
@@ -0,0 +1,118 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import io.scalecube.socketio.ServerConfiguration;
+import io.scalecube.socketio.Session;
+import io.scalecube.socketio.TransportType;
+import io.scalecube.socketio.packets.ConnectPacket;
+import io.scalecube.socketio.packets.PacketType;
+import io.scalecube.socketio.pipeline.PacketEncoderHandler;
+import io.scalecube.socketio.session.ManagedSession;
+import io.scalecube.socketio.session.SessionDisconnectHandler;
+import io.scalecube.socketio.session.SessionStorage;
+import io.scalecube.socketio.session.SocketIOHeartbeatScheduler;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import io.netty.util.HashedWheelTimer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+
+public class DefaultSocketIOMetricsTest {
+
+  private HashedWheelTimer timer;
+  private DefaultSocketIOMetrics metrics;
+  private SessionStorage sessionStorage;
+
+  private final SessionDisconnectHandler disconnectHandler = new SessionDisconnectHandler() {
+    @Override
+    public void onSessionDisconnect(Session session) {
+      sessionStorage.removeSession(session.getSessionId());
+    }
+  };
+
+  @Before
+  public void setUp() throws Exception {
+    timer = new HashedWheelTimer();
+    SocketIOHeartbeatScheduler.setHashedWheelTimer(timer);
+    SocketIOHeartbeatScheduler.setHeartbeatInterval(25);
+    SocketIOHeartbeatScheduler.setHeartbeatTimeout(60);
+    metrics = new DefaultSocketIOMetrics();
+    sessionStorage = new SessionStorage(ServerConfiguration.builder().metrics(metrics).build());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    timer.stop();
+  }
+
+  @Test
+  public void testSessionAndPacketMetrics() throws Exception {
+    // Given
+    EmbeddedChannel channel = new EmbeddedChannel(new PacketEncoderHandler(4096, metrics));
+    ConnectPacket connectPacket = new ConnectPacket("s1");
+    connectPacket.setTransportType(TransportType.XHR_POLLING);
+    ManagedSession session = sessionStorage.getSession(connectPacket, channel, disconnectHandler);
+    session.connect(channel);
+    channel.finishAndReleaseAll();
+
+    // When
+    session.send(Unpooled.copiedBuffer("hello", CharsetUtil.UTF_8));
+
+    // Then
+    assertEquals(1, metrics.getActiveSessions(TransportType.XHR_POLLING));
+    assertEquals(1, metrics.getOutboundPackets(PacketType.CONNECT));
+    assertEquals(1, metrics.getPollingQueuedPackets());
+    assertEquals(5, metrics.getPollingQueuedBytes());
+
+    EmbeddedChannel pollChannel = new EmbeddedChannel(new PacketEncoderHandler(4096, metrics));
+    session.connect(pollChannel);
+    pollChannel.finishAndReleaseAll();
+    assertEquals(0, metrics.getPollingQueuedPackets());
+    assertEquals(1, metrics.getOutboundPackets(PacketType.MESSAGE));
+    assertEquals(5, metrics.getOutboundBytes(PacketType.MESSAGE));
+
+    session.disconnect(null);
+    assertEquals(0, metrics.getActiveSessions(TransportType.XHR_POLLING));
+    assertEquals(1, metrics.getConnectsCount());
+  }
+
+  @Test
+  public void testRegisterMBean() throws Exception {
+    // Given
+    String objectName = "io.scalecube.socketio:type=Metrics,name=test";
+    metrics.onHandshake();
+
+    // When
+    metrics.registerMBean(objectName);
+
+    // Then
+    try {
+      assertEquals(1L, ManagementFactory.getPlatformMBeanServer()
+          .getAttribute(new ObjectName(objectName), "HandshakesCount"));
+    } finally {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(objectName));
+    }
+  }
+
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void testPercentiles() {
+    // Given
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    // When
+    for (int i = 0; i < 99; i++) {
+      histogram.record(1000);
+    }
+    histogram.record(1000000);
+
+    // Then
+    assertEquals(100, histogram.getCount());
+    assertEquals(1024, histogram.getPercentile(50));
+    assertEquals(1024, histogram.getPercentile(99));
+    assertEquals(1048576, histogram.getPercentile(100));
+    assertEquals(10990, histogram.getMean());
+  }
+
+  @Test
+  public void testEmptyHistogram() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getPercentile(99.9));
+    assertEquals(0, histogram.getMean());
+  }
+
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class StripedLongCounterTest {
+
+  @Test
+  public void testConcurrentUpdates() throws Exception {
+    // Given
+    final StripedLongCounter counter = new StripedLongCounter();
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      threads.add(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 10000; j++) {
+            counter.increment();
+            counter.add(2);
+          }
+        }
+      }));
+    }
+
+    // When
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    counter.decrement();
+
+    // Then
+    assertEquals(8 * 10000 * 3 - 1, counter.value());
+  }
+
+  @Test
+  public void testStripesCount() {
+    assertEquals(2, StripedLongCounter.stripesCount(1));
+    assertEquals(8, StripedLongCounter.stripesCount(3));
+    assertEquals(64, StripedLongCounter.stripesCount(128));
+  }
+
+}
@@ -0,0 +1,218 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.scalecube.socketio.Session;
+import io.scalecube.socketio.SocketIOListener;
+import io.scalecube.socketio.TransportType;
+import io.scalecube.socketio.packets.ConnectPacket;
+import io.scalecube.socketio.session.SessionDisconnectHandler;
+import io.scalecube.socketio.session.SessionStorage;
+import io.scalecube.socketio.session.SocketIOHeartbeatScheduler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import io.netty.util.HashedWheelTimer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ExecutorSocketIOListenerTest {
+
+  private static final int MESSAGES_COUNT = 100;
+
+  private HashedWheelTimer timer;
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() throws Exception {
+    timer = new HashedWheelTimer();
+    SocketIOHeartbeatScheduler.setHashedWheelTimer(timer);
+    SocketIOHeartbeatScheduler.setHeartbeatInterval(25);
+    SocketIOHeartbeatScheduler.setHeartbeatTimeout(60);
+    executor = Executors.newFixedThreadPool(8);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    executor.shutdownNow();
+    timer.stop();
+  }
+
+  @Test
+  public void testSessionCallbacksAreOrdered() throws Exception {
+    // Given
+    final StringBuilder events = new StringBuilder();
+    final CountDownLatch latch = new CountDownLatch(1);
+    SocketIOListener listener = new ExecutorSocketIOListener(new SocketIOListener() {
+      @Override
+      public void onConnect(Session session) {
+        events.append("c");
+      }
+
+      @Override
+      public void onMessage(Session session, ByteBuf message) {
+        events.append(message.toString(CharsetUtil.UTF_8));
+        message.release();
+      }
+
+      @Override
+      public void onDisconnect(Session session) {
+        events.append("d");
+        latch.countDown();
+      }
+    }, executor, true);
+    Session session = createSession();
+
+    // When
+    StringBuilder expected = new StringBuilder("c");
+    listener.onConnect(session);
+    for (int i = 0; i < MESSAGES_COUNT; i++) {
+      listener.onMessage(session, Unpooled.copiedBuffer(String.valueOf(i), CharsetUtil.UTF_8));
+      expected.append(i);
+    }
+    listener.onDisconnect(session);
+    expected.append("d");
+
+    // Then
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertEquals(expected.toString(), events.toString());
+  }
+
+  @Test
+  public void testMessagesAfterDisconnectAreReleased() throws Exception {
+    // Given
+    final StringBuilder events = new StringBuilder();
+    final CountDownLatch latch = new CountDownLatch(1);
+    SocketIOListener listener = new ExecutorSocketIOListener(new SocketIOListener() {
+      @Override
+      public void onConnect(Session session) {
+        events.append("c");
+      }
+
+      @Override
+      public void onMessage(Session session, ByteBuf message) {
+        events.append(message.toString(CharsetUtil.UTF_8));
+        message.release();
+      }
+
+      @Override
+      public void onDisconnect(Session session) {
+        events.append("d");
+        latch.countDown();
+      }
+    }, executor, true);
+    Session session = createSession();
+    listener.onConnect(session);
+    // Second call forces disconnect of polling session
+    session.disconnect();
+    session.disconnect();
+    listener.onDisconnect(session);
+
+    // When
+    ByteBuf message1 = Unpooled.copiedBuffer("1", CharsetUtil.UTF_8);
+    listener.onMessage(session, message1);
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    ByteBuf message2 = Unpooled.copiedBuffer("2", CharsetUtil.UTF_8);
+    listener.onMessage(session, message2);
+
+    // Then
+    assertEquals(0, message1.refCnt());
+    assertEquals(0, message2.refCnt());
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    assertEquals("cd", events.toString());
+  }
+
+  @Test
+  public void testRejectedCallbacksAreNotExecuted() throws Exception {
+    // Given
+    final StringBuilder events = new StringBuilder();
+    final AtomicBoolean rejecting = new AtomicBoolean(true);
+    Executor rejectingExecutor = new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        if (rejecting.get()) {
+          throw new RejectedExecutionException();
+        }
+        command.run();
+      }
+    };
+    SocketIOListener listener = new ExecutorSocketIOListener(new SocketIOListener() {
+      @Override
+      public void onConnect(Session session) {
+        events.append("c");
+      }
+
+      @Override
+      public void onMessage(Session session, ByteBuf message) {
+        events.append(message.toString(CharsetUtil.UTF_8));
+        message.release();
+      }
+
+      @Override
+      public void onDisconnect(Session session) {
+        events.append("d");
+      }
+    }, rejectingExecutor, true);
+    Session session = createSession();
+    ByteBuf message = Unpooled.copiedBuffer("1", CharsetUtil.UTF_8);
+
+    // When
+    try {
+      listener.onMessage(session, message);
+      fail("Callback must be rejected");
+    } catch (RejectedExecutionException e) {
+      // expected
+    }
+    try {
+      listener.onDisconnect(session);
+      fail("Callback must be rejected");
+    } catch (RejectedExecutionException e) {
+      // expected
+    }
+    rejecting.set(false);
+    listener.onMessage(session, Unpooled.copiedBuffer("2", CharsetUtil.UTF_8));
+    listener.onDisconnect(session);
+
+    // Then
+    assertEquals(0, message.refCnt());
+    assertEquals("2d", events.toString());
+  }
+
+  private Session createSession() throws Exception {
+    ConnectPacket connectPacket = new ConnectPacket("s1");
+    connectPacket.setTransportType(TransportType.XHR_POLLING);
+    return new SessionStorage(8080).getSession(connectPacket, new EmbeddedChannel(), new SessionDisconnectHandler() {
+      @Override
+      public void onSessionDisconnect(Session session) {
+      }
+    });
+  }
+
+}
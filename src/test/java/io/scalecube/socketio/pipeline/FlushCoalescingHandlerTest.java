@@ -0,0 +1,97 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+
+import org.junit.Test;
+
+public class FlushCoalescingHandlerTest {
+
+  @Test
+  public void testFlushIsDeferredToEndOfEventLoopTick() throws Exception {
+    // Given
+    EmbeddedChannel channel = new EmbeddedChannel(new FlushCoalescingHandler(64, 65536));
+
+    // When
+    channel.writeAndFlush(message("a"));
+    channel.writeAndFlush(message("b"));
+
+    // Then
+    assertNull(channel.readOutbound());
+    channel.runPendingTasks();
+    assertMessage("a", channel.readOutbound());
+    assertMessage("b", channel.readOutbound());
+    channel.finish();
+  }
+
+  @Test
+  public void testFlushWhenMaxMessagesReached() throws Exception {
+    // Given
+    EmbeddedChannel channel = new EmbeddedChannel(new FlushCoalescingHandler(2, 65536));
+
+    // When
+    channel.writeAndFlush(message("a"));
+    assertNull(channel.readOutbound());
+    channel.writeAndFlush(message("b"));
+
+    // Then
+    assertMessage("a", channel.readOutbound());
+    assertMessage("b", channel.readOutbound());
+    channel.finish();
+  }
+
+  @Test
+  public void testFlushWhenMaxBytesReached() throws Exception {
+    // Given
+    EmbeddedChannel channel = new EmbeddedChannel(new FlushCoalescingHandler(64, 4));
+
+    // When
+    channel.writeAndFlush(message("abcd"));
+
+    // Then
+    assertMessage("abcd", channel.readOutbound());
+    channel.finish();
+  }
+
+  @Test
+  public void testPendingMessagesAreFlushedOnClose() throws Exception {
+    // Given
+    EmbeddedChannel channel = new EmbeddedChannel(new FlushCoalescingHandler(64, 65536));
+    channel.writeAndFlush(message("a"));
+
+    // When
+    channel.close();
+
+    // Then
+    assertMessage("a", channel.readOutbound());
+    channel.finish();
+  }
+
+  private static ByteBuf message(String text) {
+    return Unpooled.copiedBuffer(text, CharsetUtil.UTF_8);
+  }
+
+  private static void assertMessage(String expected, Object message) {
+    ByteBuf buf = (ByteBuf) message;
+    assertEquals(expected, buf.toString(CharsetUtil.UTF_8));
+    buf.release();
+  }
+
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.scalecube.socketio.Session;
+import io.scalecube.socketio.SocketIOAdapter;
+import io.scalecube.socketio.TransportType;
+import io.scalecube.socketio.packets.ConnectPacket;
+import io.scalecube.socketio.packets.Packet;
+import io.scalecube.socketio.packets.PacketType;
+import io.scalecube.socketio.session.SessionStorage;
+import io.scalecube.socketio.session.SocketIOHeartbeatScheduler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class PacketDispatcherHandlerTest {
+
+  private static final int MESSAGES_COUNT = 20;
+
+  private HashedWheelTimer timer;
+  private DefaultEventExecutorGroup executorGroup;
+
+  @Before
+  public void setUp() throws Exception {
+    timer = new HashedWheelTimer();
+    SocketIOHeartbeatScheduler.setHashedWheelTimer(timer);
+    SocketIOHeartbeatScheduler.setHeartbeatInterval(25);
+    SocketIOHeartbeatScheduler.setHeartbeatTimeout(60);
+    executorGroup = new DefaultEventExecutorGroup(4);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    executorGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+    timer.stop();
+  }
+
+  @Test
+  public void testSessionPacketsAreDispatchedOnSameThread() throws Exception {
+    // Given
+    final Set<Thread> threads = new HashSet<>();
+    final StringBuilder messages = new StringBuilder();
+    final CountDownLatch latch = new CountDownLatch(MESSAGES_COUNT);
+    PacketDispatcherHandler dispatcher = new PacketDispatcherHandler(new SessionStorage(8080),
+        new SocketIOAdapter() {
+          @Override
+          public void onMessage(Session session, ByteBuf message) {
+            threads.add(Thread.currentThread());
+            messages.append(message.toString(CharsetUtil.UTF_8));
+            message.release();
+            latch.countDown();
+          }
+        }, executorGroup);
+    ConnectPacket connectPacket = new ConnectPacket("s1");
+    connectPacket.setTransportType(TransportType.XHR_POLLING);
+    new EmbeddedChannel(dispatcher).writeInbound(connectPacket);
+
+    // When: each message is received by new channel as in case of polling transport
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < MESSAGES_COUNT; i++) {
+      Packet packet = new Packet(PacketType.MESSAGE);
+      packet.setSessionId("s1");
+      packet.setData(Unpooled.copiedBuffer(String.valueOf(i), CharsetUtil.UTF_8));
+      new EmbeddedChannel(dispatcher).writeInbound(packet);
+      expected.append(i);
+    }
+
+    // Then
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertEquals(1, threads.size());
+    assertEquals(expected.toString(), messages.toString());
+  }
+
+  @Test
+  public void testSocketSessionIsResolvedByChannel() throws Exception {
+    // Given
+    final List<Session> sessions = new ArrayList<>();
+    SessionStorage sessionStorage = new SessionStorage(8080);
+    PacketDispatcherHandler dispatcher = new PacketDispatcherHandler(sessionStorage, new SocketIOAdapter() {
+      @Override
+      public void onMessage(Session session, ByteBuf message) {
+        sessions.add(session);
+        message.release();
+      }
+    });
+    ConnectPacket connectPacket = new ConnectPacket("s1");
+    connectPacket.setTransportType(TransportType.WEBSOCKET);
+    EmbeddedChannel channel = new EmbeddedChannel(new PacketEncoderHandler(), dispatcher);
+    channel.writeInbound(connectPacket);
+    Session session = sessionStorage.getSessionIfExist("s1");
+
+    // When: session isn't looked up in storage for packets received by its channel
+    sessionStorage.removeSession("s1");
+    channel.writeInbound(newMessagePacket("s1"));
+    new EmbeddedChannel(dispatcher).writeInbound(newMessagePacket("s1"));
+
+    // Then
+    assertEquals(1, sessions.size());
+    assertTrue(sessions.get(0) == session);
+    channel.finishAndReleaseAll();
+  }
+
+  private static Packet newMessagePacket(String sessionId) {
+    Packet packet = new Packet(PacketType.MESSAGE);
+    packet.setSessionId(sessionId);
+    packet.setData(Unpooled.copiedBuffer("1", CharsetUtil.UTF_8));
+    return packet;
+  }
+
+}
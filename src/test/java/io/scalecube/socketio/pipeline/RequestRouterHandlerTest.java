@@ -0,0 +1,81 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class RequestRouterHandlerTest {
+
+  private static final String HANDSHAKE_PATH = "/socket.io/1/";
+
+  private RequestRouterHandler requestRouterHandler;
+
+  @Before
+  public void setUp() {
+    requestRouterHandler = new RequestRouterHandler(
+        new HandshakeHandler(HANDSHAKE_PATH, 60, 60, "websocket,xhr-polling"),
+        new DisconnectHandler(),
+        new WebSocketHandler(HANDSHAKE_PATH, false, 65536, null),
+        null,
+        new XHRPollingHandler(HANDSHAKE_PATH, null),
+        null);
+  }
+
+  @Test
+  public void testHandshakeRequestIsHandled() {
+    // Given
+    LastOutboundHandler lastOutboundHandler = new LastOutboundHandler();
+    EmbeddedChannel channel = new EmbeddedChannel(lastOutboundHandler, requestRouterHandler);
+
+    // When
+    channel.writeInbound(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, HANDSHAKE_PATH));
+
+    // Then
+    Object outboundMessage = lastOutboundHandler.getOutboundMessages().poll();
+    assertTrue(outboundMessage instanceof FullHttpResponse);
+    assertEquals(HttpResponseStatus.OK, ((FullHttpResponse) outboundMessage).status());
+    assertNull(channel.readInbound());
+    channel.finish();
+  }
+
+  @Test
+  public void testUnsupportedTransportRequestIsPassedThrough() {
+    // Given
+    EmbeddedChannel channel = new EmbeddedChannel(requestRouterHandler);
+    FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET,
+        HANDSHAKE_PATH + "jsonp-polling/123abc?i=0");
+
+    // When
+    channel.writeInbound(request);
+
+    // Then
+    assertSame(request, channel.readInbound());
+    request.release();
+    channel.finish();
+  }
+
+}
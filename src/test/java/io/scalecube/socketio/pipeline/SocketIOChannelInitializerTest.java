@@ -0,0 +1,195 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpRequestEncoder;
+import io.netty.util.ReferenceCountUtil;
+import io.scalecube.socketio.PipelineModifier;
+import io.scalecube.socketio.ServerConfiguration;
+import io.scalecube.socketio.Session;
+import io.scalecube.socketio.SocketIOListener;
+import io.scalecube.socketio.TransportType;
+import io.scalecube.socketio.UpgradePipelineModifier;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+public class SocketIOChannelInitializerTest {
+
+  private SocketIOListener listener;
+  private SocketIOChannelInitializer channelInitializer;
+
+  @Before
+  public void setUp() {
+    listener = new SocketIOListener() {
+      @Override
+      public void onConnect(Session session) {
+      }
+
+      @Override
+      public void onMessage(Session session, ByteBuf message) {
+        message.release();
+      }
+
+      @Override
+      public void onDisconnect(Session session) {
+      }
+    };
+    channelInitializer = new SocketIOChannelInitializer(ServerConfiguration.builder().build(), listener, null);
+  }
+
+  @Test
+  public void testInitialPipelineHasNoTransportHandlers() {
+    // When
+    EmbeddedChannel channel = new EmbeddedChannel(channelInitializer);
+
+    // Then
+    List<String> names = channel.pipeline().names();
+    assertTrue(names.contains(SocketIOChannelInitializer.HTTP_REQUEST_DECODER));
+    assertTrue(names.contains(SocketIOChannelInitializer.SOCKETIO_HANDSHAKE_HANDLER));
+    assertFalse(names.contains(SocketIOChannelInitializer.SOCKETIO_WEBSOCKET_HANDLER));
+    assertFalse(names.contains(SocketIOChannelInitializer.SOCKETIO_FLASHSOCKET_HANDLER));
+    assertFalse(names.contains(SocketIOChannelInitializer.SOCKETIO_XHR_POLLING_HANDLER));
+    assertFalse(names.contains(SocketIOChannelInitializer.SOCKETIO_JSONP_POLLING_HANDLER));
+    channel.finish();
+  }
+
+  @Test
+  public void testHandlerIsAddedBeforeHandshakeHandler() {
+    // Given
+    SocketIOChannelInitializer initializer = new SocketIOChannelInitializer(ServerConfiguration.builder().build(),
+        listener, new PipelineModifier() {
+          @Override
+          public void modifyPipeline(ChannelPipeline pipeline) {
+            pipeline.addBefore(SocketIOChannelInitializer.SOCKETIO_HANDSHAKE_HANDLER, "auth-handler",
+                new ChannelInboundHandlerAdapter());
+          }
+        });
+
+    // When
+    EmbeddedChannel channel = new EmbeddedChannel(initializer);
+
+    // Then
+    List<String> names = channel.pipeline().names();
+    assertEquals(names.indexOf(SocketIOChannelInitializer.SOCKETIO_HANDSHAKE_HANDLER) - 1,
+        names.indexOf("auth-handler"));
+    channel.finish();
+  }
+
+  @Test
+  public void testWebSocketUpgradeRemovesHttpHandlers() {
+    // Given
+    EmbeddedChannel channel = new EmbeddedChannel(channelInitializer);
+
+    // When
+    channel.writeInbound(encode(WebSocketHandlerTest.newUpgradeRequest("s1")));
+
+    // Then
+    Object response = channel.readOutbound();
+    assertTrue(response instanceof ByteBuf);
+    ReferenceCountUtil.release(response);
+    List<String> names = channel.pipeline().names();
+    assertTrue(names.contains(SocketIOChannelInitializer.SOCKETIO_WEBSOCKET_HANDLER));
+    assertTrue(names.contains(SocketIOChannelInitializer.SOCKETIO_PACKET_DISPATCHER));
+    assertFalse(names.contains(SocketIOChannelInitializer.SOCKETIO_HANDSHAKE_HANDLER));
+    assertFalse(names.contains(SocketIOChannelInitializer.HTTP_REQUEST_DECODER));
+    assertFalse(names.contains(SocketIOChannelInitializer.HTTP_CHUNK_AGGREGATOR));
+    assertFalse(names.contains(SocketIOChannelInitializer.HTTP_RESPONSE_ENCODER));
+    assertFalse(names.contains(SocketIOChannelInitializer.FLASH_RESOURCE_HANDLER));
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  public void testUpgradePipelineModifierIsInvokedOnUpgrade() {
+    // Given
+    SocketIOChannelInitializer initializer = new SocketIOChannelInitializer(ServerConfiguration.builder().build(),
+        listener, new UpgradePipelineModifier() {
+          @Override
+          public void modifyPipeline(ChannelPipeline pipeline) {
+          }
+
+          @Override
+          public void modifyUpgradedPipeline(ChannelPipeline pipeline, TransportType transportType) {
+            assertEquals(TransportType.WEBSOCKET, transportType);
+            pipeline.addBefore(SocketIOChannelInitializer.SOCKETIO_WEBSOCKET_HANDLER, "frame-handler",
+                new ChannelInboundHandlerAdapter());
+          }
+        });
+    EmbeddedChannel channel = new EmbeddedChannel(initializer);
+
+    // When
+    channel.writeInbound(encode(WebSocketHandlerTest.newUpgradeRequest("s1")));
+
+    // Then
+    ReferenceCountUtil.release(channel.readOutbound());
+    List<String> names = channel.pipeline().names();
+    assertEquals(names.indexOf(SocketIOChannelInitializer.SOCKETIO_WEBSOCKET_HANDLER) - 1,
+        names.indexOf("frame-handler"));
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  public void testChannelIsClosedIfHandshakeFails() {
+    // Given
+    SocketIOChannelInitializer initializer = new SocketIOChannelInitializer(ServerConfiguration.builder().build(),
+        listener, new PipelineModifier() {
+          @Override
+          public void modifyPipeline(ChannelPipeline pipeline) {
+            pipeline.addFirst(new ChannelOutboundHandlerAdapter() {
+              @Override
+              public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                ReferenceCountUtil.release(msg);
+                promise.setFailure(new IOException("Write failed"));
+              }
+            });
+          }
+        });
+    EmbeddedChannel channel = new EmbeddedChannel(initializer);
+
+    // When
+    channel.writeInbound(encode(WebSocketHandlerTest.newUpgradeRequest("s1")));
+
+    // Then
+    assertFalse(channel.isOpen());
+    channel.finishAndReleaseAll();
+  }
+
+  private static ByteBuf encode(Object request) {
+    EmbeddedChannel encoder = new EmbeddedChannel(new HttpRequestEncoder());
+    encoder.writeOutbound(request);
+    ByteBuf buf = Unpooled.buffer();
+    for (Object part; (part = encoder.readOutbound()) != null; ) {
+      ByteBuf partBuf = (ByteBuf) part;
+      buf.writeBytes(partBuf);
+      partBuf.release();
+    }
+    encoder.finish();
+    return buf;
+  }
+
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.scalecube.socketio.TransportType;
+
+import org.junit.Test;
+
+public class SocketIORequestTest {
+
+  @Test
+  public void testParseHandshakeRequest() {
+    SocketIORequest request = SocketIORequest.parse("/socket.io/1/");
+
+    assertEquals("/socket.io/1/", request.getPath());
+    assertEquals("1", request.getProtocol());
+    assertEquals("", request.getTransport());
+    assertNull(request.getTransportType());
+    assertNull(request.getSessionId());
+    assertFalse(request.isDisconnect());
+  }
+
+  @Test
+  public void testParseTransportRequestWithQuery() {
+    // Given
+    String uri = "/socket.io/1/jsonp-polling/123abc?t=1400000000000&i=2";
+
+    // When
+    SocketIORequest request = SocketIORequest.parse(uri);
+
+    // Then
+    assertEquals("/socket.io/1/jsonp-polling/123abc", request.getPath());
+    assertEquals(TransportType.JSONP_POLLING, request.getTransportType());
+    assertEquals("123abc", request.getSessionId());
+    assertEquals("2", request.getParameter("i"));
+    assertNull(request.getParameter("disconnect"));
+    assertFalse(request.isDisconnect());
+  }
+
+  @Test
+  public void testParseDisconnectRequest() {
+    SocketIORequest request = SocketIORequest.parse("/socket.io/1/xhr-polling/123abc?disconnect&t=1");
+
+    assertEquals(TransportType.XHR_POLLING, request.getTransportType());
+    assertEquals("123abc", request.getSessionId());
+    assertTrue(request.isDisconnect());
+  }
+
+  @Test
+  public void testParseNotSocketIORequest() {
+    SocketIORequest request = SocketIORequest.parse("/favicon.ico?disconnected=1");
+
+    assertEquals("/favicon.ico", request.getPath());
+    assertNull(request.getProtocol());
+    assertNull(request.getTransportType());
+    assertNull(request.getSessionId());
+    assertFalse(request.isDisconnect());
+  }
+
+  @Test
+  public void testParseEncodedPath() {
+    SocketIORequest request = SocketIORequest.parse("/socket.io/1/websocket/a%2Bb");
+
+    assertEquals(TransportType.WEBSOCKET, request.getTransportType());
+    assertEquals("a+b", request.getSessionId());
+  }
+
+}
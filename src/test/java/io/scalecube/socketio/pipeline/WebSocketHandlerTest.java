@@ -13,17 +13,31 @@
 package io.scalecube.socketio.pipeline;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import io.scalecube.socketio.ServerConfiguration;
+import io.scalecube.socketio.packets.ConnectPacket;
+import io.scalecube.socketio.packets.Packet;
+import io.scalecube.socketio.packets.PacketType;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
 import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpRequestDecoder;
+import io.netty.handler.codec.http.HttpResponseEncoder;
 import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -64,5 +78,44 @@ public class WebSocketHandlerTest {
     channel.finish();
   }
 
+  @Test
+  public void testFrameAggregatorIsAddedOnFragmentedFrame() throws Exception {
+    // Given
+    EmbeddedChannel channel = new EmbeddedChannel();
+    channel.pipeline().addLast(SocketIOChannelInitializer.HTTP_REQUEST_DECODER, new HttpRequestDecoder());
+    channel.pipeline().addLast(SocketIOChannelInitializer.HTTP_RESPONSE_ENCODER, new HttpResponseEncoder());
+    channel.pipeline().addLast(SocketIOChannelInitializer.SOCKETIO_PACKET_ENCODER, new PacketEncoderHandler());
+    channel.pipeline().addLast(SocketIOChannelInitializer.SOCKETIO_WEBSOCKET_HANDLER, webSocketHandler);
+    channel.writeInbound(newUpgradeRequest("s1"));
+    ReferenceCountUtil.release(channel.readOutbound());
+    assertTrue(channel.readInbound() instanceof ConnectPacket);
+    assertNull(channel.pipeline().get(SocketIOChannelInitializer.WEBSOCKET_FRAME_AGGREGATOR));
+
+    // When
+    channel.writeInbound(new TextWebSocketFrame(false, 0, "3:::he"));
+    channel.writeInbound(new ContinuationWebSocketFrame(true, 0, "llo"));
+
+    // Then
+    Packet packet = channel.readInbound();
+    assertEquals(PacketType.MESSAGE, packet.getType());
+    assertEquals("s1", packet.getSessionId());
+    assertEquals("hello", packet.getData().toString(CharsetUtil.UTF_8));
+    packet.getData().release();
+    assertNotNull(channel.pipeline().get(SocketIOChannelInitializer.WEBSOCKET_FRAME_AGGREGATOR));
+    channel.finishAndReleaseAll();
+  }
+
+  static FullHttpRequest newUpgradeRequest(String sessionId) {
+    FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET,
+        HANDSHAKE_PATH + "websocket/" + sessionId);
+    request.headers()
+        .set(HttpHeaderNames.HOST, "localhost")
+        .set(HttpHeaderNames.UPGRADE, HttpHeaderValues.WEBSOCKET)
+        .set(HttpHeaderNames.CONNECTION, HttpHeaderValues.UPGRADE)
+        .set(HttpHeaderNames.SEC_WEBSOCKET_KEY, "dGhlIHNhbXBsZSBub25jZQ==")
+        .set(HttpHeaderNames.SEC_WEBSOCKET_VERSION, "13");
+    return request;
+  }
+
 
 }
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.pipeline;
+
+import io.scalecube.socketio.ServerConfiguration;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpRequestDecoder;
+import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.util.ReferenceCountUtil;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures number of WebSocket upgrades per second handled by {@link WebSocketHandler} on a single thread. Each
+ * upgrade uses new embedded channel with the same handlers as server pipeline. It isn't run by unit tests, run its
+ * main method with test classpath after {@code mvn test-compile}.
+ */
+public final class WebSocketHandshakeBenchmark {
+
+  private static final int WARMUP_ITERATIONS = 5;
+  private static final int ITERATIONS = 10;
+  private static final int UPGRADES_PER_ITERATION = 20000;
+
+  private static final String HANDSHAKE_PATH = "/socket.io/1/";
+
+  private final WebSocketHandler webSocketHandler = new WebSocketHandler(HANDSHAKE_PATH, false,
+      ServerConfiguration.DEFAULT_MAX_WEB_SOCKET_FRAME_SIZE, null);
+  private final PacketEncoderHandler packetEncoderHandler = new PacketEncoderHandler();
+  private final ChannelInboundHandlerAdapter sink = new ChannelInboundHandlerAdapter() {
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+      ReferenceCountUtil.release(msg);
+    }
+
+    @Override
+    public boolean isSharable() {
+      return true;
+    }
+  };
+
+  public static void main(String[] args) {
+    WebSocketHandshakeBenchmark benchmark = new WebSocketHandshakeBenchmark();
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      benchmark.run();
+    }
+    double total = 0;
+    for (int i = 0; i < ITERATIONS; i++) {
+      double upgradesPerSecond = benchmark.run();
+      total += upgradesPerSecond;
+      System.out.printf("Iteration %d: %.0f upgrades/sec%n", i + 1, upgradesPerSecond);
+    }
+    System.out.printf("Average: %.0f upgrades/sec%n", total / ITERATIONS);
+  }
+
+  private double run() {
+    long startTime = System.nanoTime();
+    for (int i = 0; i < UPGRADES_PER_ITERATION; i++) {
+      upgrade("s" + i);
+    }
+    long elapsedNanos = System.nanoTime() - startTime;
+    return UPGRADES_PER_ITERATION * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+  }
+
+  private void upgrade(String sessionId) {
+    EmbeddedChannel channel = new EmbeddedChannel();
+    channel.pipeline().addLast(SocketIOChannelInitializer.HTTP_REQUEST_DECODER, new HttpRequestDecoder());
+    channel.pipeline().addLast(SocketIOChannelInitializer.HTTP_RESPONSE_ENCODER, new HttpResponseEncoder());
+    channel.pipeline().addLast(SocketIOChannelInitializer.SOCKETIO_PACKET_ENCODER, packetEncoderHandler);
+    channel.pipeline().addLast(SocketIOChannelInitializer.SOCKETIO_WEBSOCKET_HANDLER, webSocketHandler);
+    channel.pipeline().addLast(SocketIOChannelInitializer.SOCKETIO_PACKET_DISPATCHER, sink);
+    channel.writeInbound(WebSocketHandlerTest.newUpgradeRequest(sessionId));
+    channel.finishAndReleaseAll();
+  }
+
+}
@@ -0,0 +1,240 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.reactive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.scalecube.socketio.Session;
+import io.scalecube.socketio.TransportType;
+import io.scalecube.socketio.packets.ConnectPacket;
+import io.scalecube.socketio.pipeline.PacketEncoderHandler;
+import io.scalecube.socketio.session.ManagedSession;
+import io.scalecube.socketio.session.SessionDisconnectHandler;
+import io.scalecube.socketio.session.SessionStorage;
+import io.scalecube.socketio.session.SocketIOHeartbeatScheduler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.CharsetUtil;
+import io.netty.util.HashedWheelTimer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SessionSubscriberTest {
+
+  private HashedWheelTimer timer;
+  private SessionStorage sessionStorage;
+  private EmbeddedChannel channel;
+  private ManagedSession session;
+
+  @Before
+  public void setUp() throws Exception {
+    timer = new HashedWheelTimer();
+    SocketIOHeartbeatScheduler.setHashedWheelTimer(timer);
+    SocketIOHeartbeatScheduler.setHeartbeatInterval(25);
+    SocketIOHeartbeatScheduler.setHeartbeatTimeout(60);
+    sessionStorage = new SessionStorage(8080);
+    channel = new EmbeddedChannel(new PacketEncoderHandler());
+    ConnectPacket connectPacket = new ConnectPacket("s1");
+    connectPacket.setTransportType(TransportType.WEBSOCKET);
+    session = sessionStorage.getSession(connectPacket, channel, new SessionDisconnectHandler() {
+      @Override
+      public void onSessionDisconnect(Session session) {
+        sessionStorage.removeSession(session.getSessionId());
+      }
+    });
+    session.connect(channel);
+    ((TextWebSocketFrame) channel.readOutbound()).release();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    channel.finishAndReleaseAll();
+    timer.stop();
+  }
+
+  @Test
+  public void testSubscriberRequestsWhileSessionIsWritable() throws Exception {
+    // Given
+    TestSubscription subscription = new TestSubscription();
+    SessionSubscriber subscriber = new SessionSubscriber(session, 4);
+    subscriber.onSubscribe(subscription);
+    assertEquals(4, subscription.requested);
+
+    // When
+    subscriber.onNext(Unpooled.copiedBuffer("a", CharsetUtil.UTF_8));
+    subscriber.onNext(Unpooled.copiedBuffer("b", CharsetUtil.UTF_8));
+
+    // Then
+    assertEquals(6, subscription.requested);
+    assertMessage("3:::a", channel.readOutbound());
+    assertMessage("3:::b", channel.readOutbound());
+  }
+
+  @Test
+  public void testSubscriberWaitsUntilSessionIsWritable() throws Exception {
+    // Given
+    TestSubscription subscription = new TestSubscription();
+    SessionSubscriber subscriber = new SessionSubscriber(session, 2);
+    subscriber.onSubscribe(subscription);
+    channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+
+    // When
+    subscriber.onNext(Unpooled.copiedBuffer("a", CharsetUtil.UTF_8));
+    subscriber.onNext(Unpooled.copiedBuffer("b", CharsetUtil.UTF_8));
+
+    // Then
+    assertEquals(2, subscription.requested);
+    channel.unsafe().outboundBuffer().setUserDefinedWritability(1, true);
+    channel.runPendingTasks();
+    assertEquals(4, subscription.requested);
+    assertMessage("3:::a", channel.readOutbound());
+    assertMessage("3:::b", channel.readOutbound());
+  }
+
+  @Test
+  public void testSubscriberCancelsOnDisconnect() throws Exception {
+    // Given
+    TestSubscription subscription = new TestSubscription();
+    SessionSubscriber subscriber = new SessionSubscriber(session, 2);
+    subscriber.onSubscribe(subscription);
+    channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+    ByteBuf message = Unpooled.copiedBuffer("a", CharsetUtil.UTF_8);
+    subscriber.onNext(message);
+
+    // When
+    session.disconnect();
+
+    // Then
+    assertTrue(subscription.cancelled);
+  }
+
+  @Test
+  public void testPublisherSuspendsReadingWhenBufferIsFull() throws Exception {
+    // Given
+    SessionMessagePublisher publisher = new SessionMessagePublisher(session, 2);
+    TestSubscriber subscriber = new TestSubscriber();
+    publisher.subscribe(subscriber);
+
+    // When
+    publisher.onMessage(Unpooled.copiedBuffer("a", CharsetUtil.UTF_8));
+    publisher.onMessage(Unpooled.copiedBuffer("b", CharsetUtil.UTF_8));
+
+    // Then
+    assertFalse(channel.config().isAutoRead());
+    subscriber.subscription.request(2);
+    assertTrue(channel.config().isAutoRead());
+    assertEquals(2, subscriber.messages.size());
+    publisher.onDisconnect();
+    assertTrue(subscriber.completed);
+    for (ByteBuf message : subscriber.messages) {
+      message.release();
+    }
+  }
+
+  @Test
+  public void testSubscriberDisconnectsSessionOnError() throws Exception {
+    // Given
+    TestSubscription subscription = new TestSubscription();
+    SessionSubscriber subscriber = new SessionSubscriber(session, 2, true);
+    subscriber.onSubscribe(subscription);
+
+    // When
+    subscriber.onError(new IllegalStateException("Test error"));
+
+    // Then
+    assertEquals(Session.State.DISCONNECTED, session.getState());
+    ByteBuf message = Unpooled.copiedBuffer("a", CharsetUtil.UTF_8);
+    subscriber.onNext(message);
+    assertEquals(0, message.refCnt());
+  }
+
+  @Test
+  public void testPublisherSignalsErrorOnNonPositiveRequest() throws Exception {
+    // Given
+    SessionMessagePublisher publisher = new SessionMessagePublisher(session, 2);
+    TestSubscriber subscriber = new TestSubscriber();
+    publisher.subscribe(subscriber);
+    ByteBuf message = Unpooled.copiedBuffer("a", CharsetUtil.UTF_8);
+    publisher.onMessage(message);
+
+    // When
+    subscriber.subscription.request(0);
+
+    // Then
+    assertTrue(subscriber.error instanceof IllegalArgumentException);
+    assertTrue(subscriber.messages.isEmpty());
+    assertEquals(0, message.refCnt());
+  }
+
+  private static void assertMessage(String expected, Object frame) {
+    assertTrue(frame instanceof TextWebSocketFrame);
+    TextWebSocketFrame textFrame = (TextWebSocketFrame) frame;
+    assertEquals(expected, textFrame.text());
+    textFrame.release();
+  }
+
+  private static class TestSubscription implements Subscription {
+    long requested;
+    boolean cancelled;
+
+    @Override
+    public void request(long n) {
+      requested += n;
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+    }
+  }
+
+  private static class TestSubscriber implements Subscriber<ByteBuf> {
+    final List<ByteBuf> messages = new ArrayList<>();
+    Subscription subscription;
+    boolean completed;
+    Throwable error;
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(ByteBuf message) {
+      messages.add(message);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+  }
+
+}
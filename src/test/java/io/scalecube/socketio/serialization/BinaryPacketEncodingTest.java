@@ -0,0 +1,112 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.serialization;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import io.scalecube.socketio.packets.Packet;
+import io.scalecube.socketio.packets.PacketType;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+public class BinaryPacketEncodingTest {
+
+  @Test
+  public void testEncodeMessagePacket() throws IOException {
+    // Given
+    Packet packet = newPacket(PacketType.MESSAGE, new byte[] {0, (byte) 0xFF, 1});
+
+    // When
+    ByteBuf result = BinaryPacketEncoding.encodePacket(packet, PacketEncoder.DEFAULT_COMPOSITE_THRESHOLD);
+
+    // Then
+    assertArrayEquals(new byte[] {3, 0, 3, 0, (byte) 0xFF, 1}, ByteBufUtil.getBytes(result));
+    result.release();
+  }
+
+  @Test
+  public void testEncodeDecodePackets() throws IOException {
+    // Given
+    byte[] largeData = new byte[300];
+    Arrays.fill(largeData, (byte) 0x80);
+    List<Packet> packets = Arrays.asList(
+        newPacket(PacketType.MESSAGE, largeData),
+        new Packet(PacketType.HEARTBEAT),
+        newPacket(PacketType.JSON, new byte[] {'{', '}'}));
+
+    // When
+    ByteBuf encoded = BinaryPacketEncoding.encodePackets(packets, 100);
+    List<Packet> result = BinaryPacketEncoding.decodePackets(encoded);
+    encoded.release();
+
+    // Then
+    assertEquals(3, result.size());
+    assertEquals(PacketType.MESSAGE, result.get(0).getType());
+    assertArrayEquals(largeData, ByteBufUtil.getBytes(result.get(0).getData()));
+    assertEquals(PacketType.HEARTBEAT, result.get(1).getType());
+    assertNull(result.get(1).getData());
+    assertEquals(PacketType.JSON, result.get(2).getType());
+    assertArrayEquals(new byte[] {'{', '}'}, ByteBufUtil.getBytes(result.get(2).getData()));
+    result.get(0).getData().release();
+    result.get(2).getData().release();
+  }
+
+  @Test
+  public void testEncodeSharedHeartbeatPacket() throws IOException {
+    // When
+    ByteBuf result = BinaryPacketEncoding.encodeHeartbeatPacket();
+    result.release();
+
+    // Then
+    List<Packet> packets = BinaryPacketEncoding.decodePackets(BinaryPacketEncoding.encodeHeartbeatPacket());
+    assertEquals(1, packets.size());
+    assertEquals(PacketType.HEARTBEAT, packets.get(0).getType());
+  }
+
+  @Test
+  public void testDecodeMalformedPackets() {
+    assertMalformed(new byte[] {3, 0, 5, 1, 2});
+    assertMalformed(new byte[] {42, 0, 0});
+    assertMalformed(new byte[] {3, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0});
+    assertMalformed(new byte[] {3, 0, 1, 1, 3, 0});
+  }
+
+  private static void assertMalformed(byte[] bytes) {
+    ByteBuf payload = Unpooled.wrappedBuffer(bytes);
+    try {
+      BinaryPacketEncoding.decodePackets(payload);
+      fail("Expected IOException for payload: " + Arrays.toString(bytes));
+    } catch (IOException e) {
+      // Expected
+    }
+    assertEquals(1, payload.refCnt());
+  }
+
+  private static Packet newPacket(PacketType type, byte[] data) {
+    Packet packet = new Packet(type);
+    packet.setData(Unpooled.wrappedBuffer(data));
+    return packet;
+  }
+
+}
@@ -32,6 +32,24 @@ import java.io.IOException;
  */
 public class PacketDecoderTest {
 
+  @Test
+  public void testDecodeMessagePacketWithZeroCopy() throws IOException {
+    // Given
+    String message = "3:::woot";
+    ByteBuf byteMessage = Unpooled.copiedBuffer(message, CharsetUtil.UTF_8);
+
+    // When
+    Packet packet = PacketDecoder.decodePacket(byteMessage, true);
+    byteMessage.release();
+
+    // Then
+    assertEquals(PacketType.MESSAGE, packet.getType());
+    assertEquals("woot", packet.getData().toString(CharsetUtil.UTF_8));
+    assertEquals(1, byteMessage.refCnt());
+    packet.getData().release();
+    assertEquals(0, byteMessage.refCnt());
+  }
+
   @Test
   public void testDecodeDisconnectPacket() throws IOException {
     // Given
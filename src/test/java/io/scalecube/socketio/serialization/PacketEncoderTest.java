@@ -13,10 +13,14 @@
 package io.scalecube.socketio.serialization;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import io.scalecube.socketio.packets.Packet;
 import io.scalecube.socketio.packets.PacketType;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.util.CharsetUtil;
 
@@ -69,6 +73,51 @@ public class PacketEncoderTest {
     assertEquals("2::", result);
   }
 
+  @Test
+  public void testEncodeSharedHeartbeatPacket() throws IOException {
+    // When
+    ByteBuf result = PacketEncoder.encodeHeartbeatPacket();
+    result.release();
+
+    // Then
+    assertEquals("2::", result.toString(CharsetUtil.UTF_8));
+    assertEquals("2::", PacketEncoder.encodeHeartbeatPacket().toString(CharsetUtil.UTF_8));
+  }
+
+  @Test
+  public void testEncodeMessagePacketIntoSingleBuffer() throws IOException {
+    // Given
+    Packet packet = new Packet(PacketType.MESSAGE);
+    ByteBuf data = Unpooled.copiedBuffer("woot", CharsetUtil.UTF_8);
+    packet.setData(data);
+
+    // When
+    ByteBuf result = PacketEncoder.encodePacket(packet, 4);
+
+    // Then
+    assertFalse(result instanceof CompositeByteBuf);
+    assertEquals("3:::woot", result.toString(CharsetUtil.UTF_8));
+    assertEquals(0, data.refCnt());
+    result.release();
+  }
+
+  @Test
+  public void testEncodeMessagePacketAboveCompositeThreshold() throws IOException {
+    // Given
+    Packet packet = new Packet(PacketType.MESSAGE);
+    ByteBuf data = Unpooled.copiedBuffer("woot", CharsetUtil.UTF_8);
+    packet.setData(data);
+
+    // When
+    ByteBuf result = PacketEncoder.encodePacket(packet, 3);
+
+    // Then
+    assertTrue(result instanceof CompositeByteBuf);
+    assertEquals("3:::woot", result.toString(CharsetUtil.UTF_8));
+    result.release();
+    assertEquals(0, data.refCnt());
+  }
+
   @Test
   public void testEncodeDisconnectPacket() throws IOException {
     // Given
@@ -13,17 +13,21 @@
 package io.scalecube.socketio.serialization;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 import io.scalecube.socketio.packets.Packet;
 import io.scalecube.socketio.packets.PacketType;
 import io.scalecube.socketio.packets.PacketsFrame;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.util.CharsetUtil;
 
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -76,6 +80,42 @@ public class PacketFramerTest {
     assertEquals("53d", packets.get(2).getData().toString(CharsetUtil.UTF_8));
   }
 
+  @Test
+  public void testDecodingMessagesFrameWithSurrogatePairsAndLongAsciiRuns() throws IOException {
+    // Given
+    String data = "{\"text\":\"long ascii run \uD83D\uDE00 followed by emoji\"}";
+    String messagesFrame =
+        "\ufffd" + (data.length() + 4) + "\ufffd3:::" + data +
+            "\ufffd3\ufffd2::";
+
+    // When
+    final List<Packet> packets = new ArrayList<>();
+    PacketFramer.decodePacketsFrame(Unpooled.copiedBuffer(messagesFrame.getBytes(CharsetUtil.UTF_8)), false,
+        new PacketSink() {
+          @Override
+          public void accept(Packet packet) {
+            packets.add(packet);
+          }
+        });
+
+    // Then
+    assertEquals(2, packets.size());
+    assertEquals(PacketType.MESSAGE, packets.get(0).getType());
+    assertEquals(data, packets.get(0).getData().toString(CharsetUtil.UTF_8));
+    assertEquals(0, packets.get(0).getSequenceNumber());
+    assertEquals(PacketType.HEARTBEAT, packets.get(1).getType());
+    assertEquals(1, packets.get(1).getSequenceNumber());
+  }
+
+  @Test(expected = IOException.class)
+  public void testDecodingMessagesFrameWithInvalidLength() throws IOException {
+    // Given
+    String messagesFrame = "\ufffd3a\ufffd0::";
+
+    // When
+    PacketFramer.decodePacketsFrame(Unpooled.copiedBuffer(messagesFrame.getBytes(CharsetUtil.UTF_8)));
+  }
+
   @Test
   public void testEncodePacketsFrame() throws IOException {
     // Given
@@ -94,6 +134,28 @@ public class PacketFramerTest {
     assertEquals("\ufffd5\ufffd3:::5\ufffd7\ufffd3:::53d", result);
   }
 
+  @Test
+  public void testEncodePacketsFrameIntoSingleBuffer() throws IOException {
+    // Given
+    Packet packet1 = new Packet(PacketType.HEARTBEAT);
+    Packet packet2 = new Packet(PacketType.MESSAGE);
+    ByteBuf data = Unpooled.copiedBuffer("\uD83D\uDE00 smile", CharsetUtil.UTF_8);
+    packet2.setData(data);
+    PacketsFrame packetsFrame = new PacketsFrame();
+    packetsFrame.getPackets().add(packet1);
+    packetsFrame.getPackets().add(packet2);
+
+    // When
+    ByteBuf result = PacketFramer.encodePacketsFrame(packetsFrame);
+
+    // Then
+    assertFalse(result instanceof CompositeByteBuf);
+    assertEquals(result.capacity(), result.readableBytes());
+    assertEquals("\ufffd3\ufffd2::\ufffd12\ufffd3:::\uD83D\uDE00 smile", result.toString(CharsetUtil.UTF_8));
+    assertEquals(0, data.refCnt());
+    result.release();
+  }
+
   @Test
   public void testEncodePacketsFrameWithOnePacket() throws IOException {
     // Given
@@ -0,0 +1,134 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.scalecube.socketio.Session;
+import io.scalecube.socketio.TransportType;
+import io.scalecube.socketio.packets.ConnectPacket;
+import io.scalecube.socketio.pipeline.PacketEncoderHandler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.CharsetUtil;
+import io.netty.util.HashedWheelTimer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BroadcasterTest {
+
+  private HashedWheelTimer timer;
+  private SessionStorage sessionStorage;
+  private Broadcaster broadcaster;
+
+  private final SessionDisconnectHandler disconnectHandler = new SessionDisconnectHandler() {
+    @Override
+    public void onSessionDisconnect(Session session) {
+      sessionStorage.removeSession(session.getSessionId());
+    }
+  };
+
+  @Before
+  public void setUp() throws Exception {
+    timer = new HashedWheelTimer();
+    SocketIOHeartbeatScheduler.setHashedWheelTimer(timer);
+    SocketIOHeartbeatScheduler.setHeartbeatInterval(25);
+    SocketIOHeartbeatScheduler.setHeartbeatTimeout(60);
+    sessionStorage = new SessionStorage(8080);
+    broadcaster = new Broadcaster(sessionStorage);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    timer.stop();
+  }
+
+  @Test
+  public void testBroadcastToAllSessions() throws Exception {
+    EmbeddedChannel channel1 = connectWebSocket("s1");
+    EmbeddedChannel channel2 = connectWebSocket("s2");
+    ByteBuf message = Unpooled.copiedBuffer("hello", CharsetUtil.UTF_8);
+
+    broadcaster.broadcast(message);
+
+    assertMessage("3:::hello", channel1.readOutbound());
+    assertMessage("3:::hello", channel2.readOutbound());
+    assertEquals(0, message.refCnt());
+    channel1.finish();
+    channel2.finish();
+  }
+
+  @Test
+  public void testBroadcastToRoom() throws Exception {
+    EmbeddedChannel channel1 = connectWebSocket("s1");
+    EmbeddedChannel channel2 = connectWebSocket("s2");
+    sessionStorage.join("room", "s2");
+    ByteBuf message = Unpooled.copiedBuffer("hello", CharsetUtil.UTF_8);
+
+    broadcaster.broadcast("room", message);
+
+    assertNull(channel1.readOutbound());
+    assertMessage("3:::hello", channel2.readOutbound());
+    assertEquals(0, message.refCnt());
+    channel1.finish();
+    channel2.finish();
+  }
+
+  @Test
+  public void testRoomIsRemovedOnDisconnect() throws Exception {
+    EmbeddedChannel channel = connectWebSocket("s1");
+    sessionStorage.join("room", "s1");
+    assertEquals(1, sessionStorage.getRoom("room").size());
+
+    sessionStorage.getSessionIfExist("s1").disconnect();
+
+    assertTrue(sessionStorage.getRoom("room").isEmpty());
+    channel.finish();
+  }
+
+  @Test
+  public void testDisconnectedSessionDoesNotJoinRoom() throws Exception {
+    EmbeddedChannel channel = connectWebSocket("s1");
+    sessionStorage.getSessionIfExist("s1").disconnect();
+
+    sessionStorage.join("room", "s1");
+
+    assertTrue(sessionStorage.getRoom("room").isEmpty());
+    channel.finish();
+  }
+
+  private EmbeddedChannel connectWebSocket(String sessionId) throws Exception {
+    EmbeddedChannel channel = new EmbeddedChannel(new PacketEncoderHandler());
+    ConnectPacket connectPacket = new ConnectPacket(sessionId);
+    connectPacket.setTransportType(TransportType.WEBSOCKET);
+    ManagedSession session = sessionStorage.getSession(connectPacket, channel, disconnectHandler);
+    session.connect(channel);
+    assertMessage("1::", channel.readOutbound());
+    return channel;
+  }
+
+  private static void assertMessage(String expected, Object frame) {
+    assertTrue(frame instanceof TextWebSocketFrame);
+    TextWebSocketFrame textFrame = (TextWebSocketFrame) frame;
+    assertEquals(expected, textFrame.text());
+    textFrame.release();
+  }
+
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.scalecube.socketio.Session;
+import io.scalecube.socketio.TransportType;
+import io.scalecube.socketio.packets.ConnectPacket;
+import io.scalecube.socketio.pipeline.PacketEncoderHandler;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class HeartbeatSweeperTest {
+
+  private SessionStorage sessionStorage;
+
+  private final SessionDisconnectHandler disconnectHandler = new SessionDisconnectHandler() {
+    @Override
+    public void onSessionDisconnect(Session session) {
+      sessionStorage.removeSession(session.getSessionId());
+    }
+  };
+
+  // Sweeper ticks are triggered manually by tests
+  private final Timer manualTimer = new Timer() {
+    @Override
+    public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+      return null;
+    }
+
+    @Override
+    public Set<Timeout> stop() {
+      return Collections.emptySet();
+    }
+  };
+
+  @Before
+  public void setUp() throws Exception {
+    sessionStorage = new SessionStorage(8080);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    SocketIOHeartbeatScheduler.setHeartbeatSweeper(null);
+  }
+
+  @Test
+  public void testHeartbeatIsSentOnSweep() throws Exception {
+    HeartbeatSweeper sweeper = createSweeper(1, 60);
+    EmbeddedChannel channel = connectWebSocket("s1");
+
+    sweeper.run(null);
+
+    assertMessage("2::", channel.readOutbound());
+    assertTrue(sessionStorage.containSession("s1"));
+    channel.finish();
+  }
+
+  @Test
+  public void testSessionIsDisconnectedByTimeout() throws Exception {
+    HeartbeatSweeper sweeper = createSweeper(1, 0);
+    EmbeddedChannel channel = connectWebSocket("s1");
+
+    sweeper.run(null);
+
+    assertMessage("0::", channel.readOutbound());
+    assertFalse(sessionStorage.containSession("s1"));
+    channel.finish();
+  }
+
+  @Test
+  public void testDisconnectedSessionIsNotSwept() throws Exception {
+    HeartbeatSweeper sweeper = createSweeper(1, 60);
+    EmbeddedChannel channel = connectWebSocket("s1");
+    sessionStorage.getSessionIfExist("s1").disconnect();
+    assertMessage("0::", channel.readOutbound());
+
+    sweeper.run(null);
+
+    assertNull(channel.readOutbound());
+    channel.finish();
+  }
+
+  @Test
+  public void testBucketIsSweptOncePerInterval() throws Exception {
+    HeartbeatSweeper sweeper = createSweeper(3, 60);
+    EmbeddedChannel channel = connectWebSocket("s1");
+
+    sweeper.run(null);
+    sweeper.run(null);
+    assertNull(channel.readOutbound());
+    sweeper.run(null);
+
+    assertMessage("2::", channel.readOutbound());
+    channel.finish();
+  }
+
+  private HeartbeatSweeper createSweeper(int heartbeatInterval, int heartbeatTimeout) {
+    HeartbeatSweeper sweeper = new HeartbeatSweeper(manualTimer, heartbeatInterval, heartbeatTimeout);
+    SocketIOHeartbeatScheduler.setHeartbeatSweeper(sweeper);
+    return sweeper;
+  }
+
+  private EmbeddedChannel connectWebSocket(String sessionId) throws Exception {
+    EmbeddedChannel channel = new EmbeddedChannel(new PacketEncoderHandler());
+    ConnectPacket connectPacket = new ConnectPacket(sessionId);
+    connectPacket.setTransportType(TransportType.WEBSOCKET);
+    ManagedSession session = sessionStorage.getSession(connectPacket, channel, disconnectHandler);
+    session.connect(channel);
+    assertMessage("1::", channel.readOutbound());
+    return channel;
+  }
+
+  private static void assertMessage(String expected, Object frame) {
+    assertTrue(frame instanceof TextWebSocketFrame);
+    TextWebSocketFrame textFrame = (TextWebSocketFrame) frame;
+    assertEquals(expected, textFrame.text());
+    textFrame.release();
+  }
+
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.scalecube.socketio.OverflowPolicy;
+import io.scalecube.socketio.packets.Packet;
+import io.scalecube.socketio.packets.PacketType;
+import io.scalecube.socketio.packets.PacketsFrame;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+import org.junit.Test;
+
+import java.util.List;
+
+public class PollingQueueTest {
+
+  @Test
+  public void testDropOldest() {
+    PollingQueue queue = new PollingQueue(2, 0, OverflowPolicy.DROP_OLDEST);
+    ByteBuf data1 = Unpooled.copiedBuffer("1", CharsetUtil.UTF_8);
+
+    queue.add(message(data1));
+    queue.add(message(Unpooled.copiedBuffer("2", CharsetUtil.UTF_8)));
+    queue.add(message(Unpooled.copiedBuffer("3", CharsetUtil.UTF_8)));
+
+    assertEquals(0, data1.refCnt());
+    assertMessages(queue.takeAll(), "2", "3");
+  }
+
+  @Test
+  public void testDropNewest() {
+    PollingQueue queue = new PollingQueue(0, 2, OverflowPolicy.DROP_NEWEST);
+    ByteBuf data3 = Unpooled.copiedBuffer("3", CharsetUtil.UTF_8);
+
+    queue.add(message(Unpooled.copiedBuffer("1", CharsetUtil.UTF_8)));
+    queue.add(message(Unpooled.copiedBuffer("2", CharsetUtil.UTF_8)));
+    queue.add(message(data3));
+
+    assertEquals(0, data3.refCnt());
+    assertEquals(2, queue.bytes());
+    assertMessages(queue.takeAll(), "1", "2");
+  }
+
+  @Test
+  public void testCoalesceKeepsControlPackets() {
+    PollingQueue queue = new PollingQueue(2, 0, OverflowPolicy.COALESCE);
+
+    queue.add(message(Unpooled.copiedBuffer("1", CharsetUtil.UTF_8)));
+    queue.add(new Packet(PacketType.HEARTBEAT));
+    queue.add(message(Unpooled.copiedBuffer("2", CharsetUtil.UTF_8)));
+
+    List<Packet> packets = queue.takeAll().getPackets();
+    assertEquals(2, packets.size());
+    assertEquals(PacketType.HEARTBEAT, packets.get(0).getType());
+    assertEquals("2", packets.get(1).getData().toString(CharsetUtil.UTF_8));
+    packets.get(1).getData().release();
+  }
+
+  @Test
+  public void testDisconnect() {
+    PollingQueue queue = new PollingQueue(1, 0, OverflowPolicy.DISCONNECT);
+    ByteBuf data2 = Unpooled.copiedBuffer("2", CharsetUtil.UTF_8);
+
+    assertTrue(queue.add(message(Unpooled.copiedBuffer("1", CharsetUtil.UTF_8))));
+    assertFalse(queue.add(message(data2)));
+
+    assertEquals(0, data2.refCnt());
+    queue.clear();
+    assertTrue(queue.isEmpty());
+    assertEquals(0, queue.size());
+  }
+
+  private static Packet message(ByteBuf data) {
+    Packet packet = new Packet(PacketType.MESSAGE);
+    packet.setData(data);
+    return packet;
+  }
+
+  private static void assertMessages(PacketsFrame frame, String... expected) {
+    List<Packet> packets = frame.getPackets();
+    assertEquals(expected.length, packets.size());
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], packets.get(i).getData().toString(CharsetUtil.UTF_8));
+      packets.get(i).getData().release();
+    }
+  }
+
+}
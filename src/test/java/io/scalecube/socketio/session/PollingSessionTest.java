@@ -0,0 +1,146 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.scalecube.socketio.OverflowPolicy;
+import io.scalecube.socketio.ServerConfiguration;
+import io.scalecube.socketio.Session;
+import io.scalecube.socketio.TransportType;
+import io.scalecube.socketio.packets.ConnectPacket;
+import io.scalecube.socketio.pipeline.PacketEncoderHandler;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.util.CharsetUtil;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PollingSessionTest {
+
+  private HashedWheelTimer timer;
+  private SessionStorage sessionStorage;
+
+  private final SessionDisconnectHandler disconnectHandler = new SessionDisconnectHandler() {
+    @Override
+    public void onSessionDisconnect(Session session) {
+      sessionStorage.removeSession(session.getSessionId());
+    }
+  };
+
+  @Before
+  public void setUp() throws Exception {
+    timer = new HashedWheelTimer();
+    SocketIOHeartbeatScheduler.setHashedWheelTimer(timer);
+    SocketIOHeartbeatScheduler.setHeartbeatInterval(25);
+    SocketIOHeartbeatScheduler.setHeartbeatTimeout(60);
+    sessionStorage = new SessionStorage(8080);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    timer.stop();
+  }
+
+  @Test
+  public void testQueuedMessagesAreSentOnPoll() throws Exception {
+    ManagedSession session = connect();
+    session.send(Unpooled.copiedBuffer("1", CharsetUtil.UTF_8));
+    session.send(Unpooled.copiedBuffer("2", CharsetUtil.UTF_8));
+    assertEquals(2, sessionStorage.getPollingQueuedPacketsCount());
+
+    EmbeddedChannel channel = poll(session);
+
+    assertResponse("\ufffd5\ufffd3:::1\ufffd5\ufffd3:::2", channel.readOutbound());
+    assertEquals(0, sessionStorage.getPollingQueuedPacketsCount());
+    channel.finish();
+  }
+
+  @Test
+  public void testMessageIsSentToWaitingPoll() throws Exception {
+    ManagedSession session = connect();
+    EmbeddedChannel channel = poll(session);
+    assertNull(channel.readOutbound());
+
+    session.send(Unpooled.copiedBuffer("1", CharsetUtil.UTF_8));
+    session.send(Unpooled.copiedBuffer("2", CharsetUtil.UTF_8));
+
+    assertResponse("3:::1", channel.readOutbound());
+    assertNull(channel.readOutbound());
+    assertEquals(1, sessionStorage.getPollingQueuedPacketsCount());
+    channel.finish();
+  }
+
+  @Test
+  public void testSendAsyncIsCompletedOnPoll() throws Exception {
+    sessionStorage = new SessionStorage(ServerConfiguration.builder().sendLatencyTrackingEnabled(true).build());
+    ManagedSession session = connect();
+    Future<Void> future = session.sendAsync(Unpooled.copiedBuffer("1", CharsetUtil.UTF_8));
+    assertFalse(future.isDone());
+
+    EmbeddedChannel channel = poll(session);
+
+    assertResponse("3:::1", channel.readOutbound());
+    assertTrue(future.isSuccess());
+    assertEquals(1, sessionStorage.getSendLatencyHistogram(TransportType.XHR_POLLING).getCount());
+    channel.finish();
+  }
+
+  @Test
+  public void testSendAsyncIsFailedWhenPacketDropped() throws Exception {
+    sessionStorage = new SessionStorage(ServerConfiguration.builder()
+        .pollingQueueMaxSize(1)
+        .pollingQueueOverflowPolicy(OverflowPolicy.DROP_NEWEST)
+        .build());
+    ManagedSession session = connect();
+    Future<Void> future1 = session.sendAsync(Unpooled.copiedBuffer("1", CharsetUtil.UTF_8));
+    Future<Void> future2 = session.sendAsync(Unpooled.copiedBuffer("2", CharsetUtil.UTF_8));
+
+    assertFalse(future1.isDone());
+    assertTrue(future2.cause() instanceof PacketDroppedException);
+  }
+
+  private ManagedSession connect() throws Exception {
+    EmbeddedChannel channel = new EmbeddedChannel(new PacketEncoderHandler());
+    ConnectPacket connectPacket = new ConnectPacket("s1");
+    connectPacket.setTransportType(TransportType.XHR_POLLING);
+    ManagedSession session = sessionStorage.getSession(connectPacket, channel, disconnectHandler);
+    session.connect(channel);
+    assertResponse("1::", channel.readOutbound());
+    channel.finish();
+    return session;
+  }
+
+  private static EmbeddedChannel poll(ManagedSession session) {
+    EmbeddedChannel channel = new EmbeddedChannel(new PacketEncoderHandler());
+    session.connect(channel);
+    return channel;
+  }
+
+  private static void assertResponse(String expected, Object response) {
+    assertTrue(response instanceof FullHttpResponse);
+    FullHttpResponse httpResponse = (FullHttpResponse) response;
+    assertEquals(expected, httpResponse.content().toString(CharsetUtil.UTF_8));
+    httpResponse.release();
+  }
+
+}
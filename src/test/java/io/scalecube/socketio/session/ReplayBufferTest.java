@@ -0,0 +1,229 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.scalecube.socketio.ServerConfiguration;
+import io.scalecube.socketio.Session;
+import io.scalecube.socketio.TransportType;
+import io.scalecube.socketio.packets.ConnectPacket;
+import io.scalecube.socketio.packets.PacketType;
+import io.scalecube.socketio.pipeline.PacketEncoderHandler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.CharsetUtil;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.concurrent.Future;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class ReplayBufferTest {
+
+  @Test
+  public void testRingWrapAndEviction() {
+    // Given
+    ReplayBuffer buffer = new ReplayBuffer(ByteBufAllocator.DEFAULT, 8);
+    long seq1 = buffer.add(PacketType.MESSAGE, message("abc"));
+    buffer.add(PacketType.MESSAGE, message("def"));
+    buffer.acknowledge(seq1);
+
+    // When
+    buffer.add(PacketType.JSON, message("ghijk"));
+    buffer.add(PacketType.MESSAGE, message("lm"));
+
+    // Then
+    assertEquals(1, buffer.evictedCount());
+    List<ReplayBuffer.ReplayedMessage> messages = buffer.replay();
+    assertEquals(2, messages.size());
+    assertReplayed("ghijk", PacketType.JSON, messages.get(0));
+    assertReplayed("lm", PacketType.MESSAGE, messages.get(1));
+    assertEquals(7, buffer.bytes());
+    buffer.release();
+  }
+
+  @Test
+  public void testTooLargeMessageIsNotStored() {
+    ReplayBuffer buffer = new ReplayBuffer(ByteBufAllocator.DEFAULT, 4);
+    assertEquals(0, buffer.add(PacketType.MESSAGE, message("abcde")));
+    assertEquals(0, buffer.size());
+    buffer.release();
+  }
+
+  @Test
+  public void testWrittenMessagesAreKeptForGracePeriod() {
+    // Given
+    ReplayBuffer buffer = new ReplayBuffer(ByteBufAllocator.DEFAULT, 8, TimeUnit.HOURS.toNanos(1));
+    buffer.add(PacketType.MESSAGE, message("abc"));
+    long seq2 = buffer.add(PacketType.MESSAGE, message("de"));
+
+    // When
+    buffer.acknowledge(seq2);
+
+    // Then
+    List<ReplayBuffer.ReplayedMessage> messages = buffer.replay();
+    assertEquals(2, messages.size());
+    assertReplayed("abc", PacketType.MESSAGE, messages.get(0));
+    assertReplayed("de", PacketType.MESSAGE, messages.get(1));
+    assertEquals(0, buffer.evictedCount());
+    buffer.release();
+  }
+
+  @Test
+  public void testWrittenMessagesAreReplayedOnReconnectFromHalfOpenChannel() throws Exception {
+    // Given
+    HashedWheelTimer timer = new HashedWheelTimer();
+    SocketIOHeartbeatScheduler.setHashedWheelTimer(timer);
+    SocketIOHeartbeatScheduler.setHeartbeatInterval(25);
+    SocketIOHeartbeatScheduler.setHeartbeatTimeout(60);
+    final SessionStorage sessionStorage = new SessionStorage(ServerConfiguration.builder()
+        .replayBufferSize(1024)
+        .build());
+    SessionDisconnectHandler disconnectHandler = new SessionDisconnectHandler() {
+      @Override
+      public void onSessionDisconnect(Session session) {
+        sessionStorage.removeSession(session.getSessionId());
+      }
+    };
+    EmbeddedChannel channel1 = new EmbeddedChannel(new PacketEncoderHandler());
+    ManagedSession session = sessionStorage.getSession(newConnectPacket(), channel1, disconnectHandler);
+    session.connect(channel1);
+    assertMessage("1::", channel1.readOutbound());
+
+    // When
+    session.send(message("a"));
+    new Broadcaster(sessionStorage).broadcast(message("b"));
+    assertMessage("3:::a", channel1.readOutbound());
+    assertMessage("3:::b", channel1.readOutbound());
+    EmbeddedChannel channel2 = new EmbeddedChannel(new PacketEncoderHandler());
+    sessionStorage.getSession(newConnectPacket(), channel2, disconnectHandler).connect(channel2);
+
+    // Then
+    assertMessage("1::", channel2.readOutbound());
+    assertMessage("3:::a", channel2.readOutbound());
+    assertMessage("3:::b", channel2.readOutbound());
+    channel1.finishAndReleaseAll();
+    channel2.finish();
+    session.disconnect();
+    timer.stop();
+  }
+
+  @Test
+  public void testSendFutureIsCompletedWhenMessageIsReplayed() throws Exception {
+    // Given
+    HashedWheelTimer timer = new HashedWheelTimer();
+    SocketIOHeartbeatScheduler.setHashedWheelTimer(timer);
+    SocketIOHeartbeatScheduler.setHeartbeatInterval(25);
+    SocketIOHeartbeatScheduler.setHeartbeatTimeout(60);
+    final SessionStorage sessionStorage = new SessionStorage(ServerConfiguration.builder()
+        .replayBufferSize(1024)
+        .build());
+    SessionDisconnectHandler disconnectHandler = new SessionDisconnectHandler() {
+      @Override
+      public void onSessionDisconnect(Session session) {
+        sessionStorage.removeSession(session.getSessionId());
+      }
+    };
+    EmbeddedChannel channel1 = new EmbeddedChannel(new PacketEncoderHandler());
+    ManagedSession session = sessionStorage.getSession(newConnectPacket(), channel1, disconnectHandler);
+    session.connect(channel1);
+    assertMessage("1::", channel1.readOutbound());
+    channel1.finish();
+
+    // When
+    Future<Void> future = session.sendAsync(message("a"));
+    assertFalse(future.isDone());
+    EmbeddedChannel channel2 = new EmbeddedChannel(new PacketEncoderHandler());
+    sessionStorage.getSession(newConnectPacket(), channel2, disconnectHandler).connect(channel2);
+
+    // Then
+    assertTrue(future.isSuccess());
+    assertMessage("1::", channel2.readOutbound());
+    assertMessage("3:::a", channel2.readOutbound());
+    channel2.finish();
+    session.disconnect();
+    timer.stop();
+  }
+
+  @Test
+  public void testMessagesAreReplayedOnReconnect() throws Exception {
+    // Given
+    HashedWheelTimer timer = new HashedWheelTimer();
+    SocketIOHeartbeatScheduler.setHashedWheelTimer(timer);
+    SocketIOHeartbeatScheduler.setHeartbeatInterval(25);
+    SocketIOHeartbeatScheduler.setHeartbeatTimeout(60);
+    final SessionStorage sessionStorage = new SessionStorage(ServerConfiguration.builder()
+        .replayBufferSize(1024)
+        .build());
+    SessionDisconnectHandler disconnectHandler = new SessionDisconnectHandler() {
+      @Override
+      public void onSessionDisconnect(Session session) {
+        sessionStorage.removeSession(session.getSessionId());
+      }
+    };
+    EmbeddedChannel channel1 = new EmbeddedChannel(new PacketEncoderHandler());
+    ManagedSession session = sessionStorage.getSession(newConnectPacket(), channel1, disconnectHandler);
+    session.connect(channel1);
+    assertMessage("1::", channel1.readOutbound());
+    channel1.finish();
+
+    // When
+    session.send(message("a"));
+    session.send(message("b"));
+    EmbeddedChannel channel2 = new EmbeddedChannel(new PacketEncoderHandler());
+    sessionStorage.getSession(newConnectPacket(), channel2, disconnectHandler).connect(channel2);
+
+    // Then
+    assertMessage("1::", channel2.readOutbound());
+    assertMessage("3:::a", channel2.readOutbound());
+    assertMessage("3:::b", channel2.readOutbound());
+    session.send(message("c"));
+    assertMessage("3:::c", channel2.readOutbound());
+    channel2.finish();
+    session.disconnect();
+    timer.stop();
+  }
+
+  private static ConnectPacket newConnectPacket() {
+    ConnectPacket connectPacket = new ConnectPacket("s1");
+    connectPacket.setTransportType(TransportType.WEBSOCKET);
+    return connectPacket;
+  }
+
+  private static ByteBuf message(String text) {
+    return Unpooled.copiedBuffer(text, CharsetUtil.UTF_8);
+  }
+
+  private static void assertReplayed(String expected, PacketType type, ReplayBuffer.ReplayedMessage message) {
+    assertEquals(type, message.type);
+    assertEquals(expected, message.data.toString(CharsetUtil.UTF_8));
+    message.data.release();
+  }
+
+  private static void assertMessage(String expected, Object frame) {
+    assertTrue(frame instanceof TextWebSocketFrame);
+    TextWebSocketFrame textFrame = (TextWebSocketFrame) frame;
+    assertEquals(expected, textFrame.text());
+    textFrame.release();
+  }
+
+}
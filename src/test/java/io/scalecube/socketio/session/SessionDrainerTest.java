@@ -0,0 +1,112 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.scalecube.socketio.Session;
+import io.scalecube.socketio.TransportType;
+import io.scalecube.socketio.packets.ConnectPacket;
+import io.scalecube.socketio.pipeline.PacketEncoderHandler;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.CharsetUtil;
+import io.netty.util.HashedWheelTimer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SessionDrainerTest {
+
+  private HashedWheelTimer timer;
+  private SessionStorage sessionStorage;
+
+  private final SessionDisconnectHandler disconnectHandler = new SessionDisconnectHandler() {
+    @Override
+    public void onSessionDisconnect(Session session) {
+      sessionStorage.removeSession(session.getSessionId());
+    }
+  };
+
+  @Before
+  public void setUp() throws Exception {
+    timer = new HashedWheelTimer();
+    SocketIOHeartbeatScheduler.setHashedWheelTimer(timer);
+    SocketIOHeartbeatScheduler.setHeartbeatInterval(25);
+    SocketIOHeartbeatScheduler.setHeartbeatTimeout(60);
+    sessionStorage = new SessionStorage(8080);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    timer.stop();
+  }
+
+  @Test
+  public void testBatchSize() {
+    assertEquals(1, SessionDrainer.getBatchSize(0, 0));
+    assertEquals(10, SessionDrainer.getBatchSize(10, 0));
+    assertEquals(1, SessionDrainer.getBatchSize(10, 1000));
+    assertEquals(10, SessionDrainer.getBatchSize(1000, 10000));
+    assertEquals(11, SessionDrainer.getBatchSize(1001, 10000));
+  }
+
+  @Test
+  public void testSessionsAreAdvisedToReconnect() throws Exception {
+    // Given
+    EmbeddedChannel webSocketChannel = new EmbeddedChannel(new PacketEncoderHandler());
+    connect("s1", TransportType.WEBSOCKET, webSocketChannel);
+    assertEquals("1::", ((TextWebSocketFrame) webSocketChannel.readOutbound()).text());
+    ManagedSession pollingSession = connect("s2", TransportType.XHR_POLLING,
+        new EmbeddedChannel(new PacketEncoderHandler()));
+
+    // When
+    long startTime = System.currentTimeMillis();
+    int count = new SessionDrainer(sessionStorage).drain(2 * SessionDrainer.BATCH_INTERVAL_MILLIS, 0);
+
+    // Then
+    assertEquals(2, count);
+    assertTrue(System.currentTimeMillis() - startTime >= SessionDrainer.BATCH_INTERVAL_MILLIS);
+    TextWebSocketFrame frame = webSocketChannel.readOutbound();
+    assertEquals("7:::+0", frame.text());
+    frame.release();
+    assertNull(webSocketChannel.readOutbound());
+
+    EmbeddedChannel pollChannel = new EmbeddedChannel(new PacketEncoderHandler());
+    pollingSession.connect(pollChannel);
+    FullHttpResponse response = pollChannel.readOutbound();
+    assertEquals("7:::+0", response.content().toString(CharsetUtil.UTF_8));
+    response.release();
+    assertEquals(0, sessionStorage.getPollingQueuedPacketsCount());
+    webSocketChannel.finish();
+    pollChannel.finish();
+  }
+
+  private ManagedSession connect(String sessionId, TransportType transportType, EmbeddedChannel channel)
+      throws Exception {
+    ConnectPacket connectPacket = new ConnectPacket(sessionId);
+    connectPacket.setTransportType(transportType);
+    ManagedSession session = sessionStorage.getSession(connectPacket, channel, disconnectHandler);
+    session.connect(channel);
+    if (transportType == TransportType.XHR_POLLING) {
+      channel.finishAndReleaseAll();
+    }
+    return session;
+  }
+
+}
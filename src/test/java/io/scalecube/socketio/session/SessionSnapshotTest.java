@@ -0,0 +1,117 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.scalecube.socketio.Session;
+import io.scalecube.socketio.TransportType;
+import io.scalecube.socketio.packets.ConnectPacket;
+import io.scalecube.socketio.pipeline.PacketEncoderHandler;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.HashedWheelTimer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+public class SessionSnapshotTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private HashedWheelTimer timer;
+
+  private final SessionDisconnectHandler disconnectHandler = new SessionDisconnectHandler() {
+    @Override
+    public void onSessionDisconnect(Session session) {
+      // Do nothing
+    }
+  };
+
+  @Before
+  public void setUp() throws Exception {
+    timer = new HashedWheelTimer();
+    SocketIOHeartbeatScheduler.setHashedWheelTimer(timer);
+    SocketIOHeartbeatScheduler.setHeartbeatInterval(25);
+    SocketIOHeartbeatScheduler.setHeartbeatTimeout(60);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    timer.stop();
+  }
+
+  @Test
+  public void testSessionIsResumedAfterRestart() throws Exception {
+    // Given
+    File file = new File(folder.getRoot(), "sessions.snapshot");
+    SessionStorage oldStorage = new SessionStorage(8080);
+    ManagedSession oldSession = connect(oldStorage, "s1", TransportType.WEBSOCKET);
+    connect(oldStorage, "s2", TransportType.XHR_POLLING);
+    oldStorage.join("room", "s1");
+    assertEquals(2, oldStorage.saveSnapshot(file));
+
+    // When
+    SessionStorage newStorage = new SessionStorage(8080);
+    assertEquals(2, newStorage.loadSnapshot(file, 60000));
+    ManagedSession newSession = connect(newStorage, "s1", TransportType.WEBSOCKET);
+
+    // Then
+    assertFalse(file.exists());
+    assertTrue(newSession.isResumedSession());
+    assertEquals(oldSession.getCreationTime(), newSession.getCreationTime());
+    assertTrue(newStorage.getRoom("room").contains("s1"));
+    assertEquals(1, newStorage.getResumableSessionsCount());
+    assertFalse(connect(newStorage, "s3", TransportType.WEBSOCKET).isResumedSession());
+  }
+
+  @Test
+  public void testSessionIsNotResumedAfterTimeout() throws Exception {
+    // Given
+    File file = new File(folder.getRoot(), "sessions.snapshot");
+    SessionStorage oldStorage = new SessionStorage(8080);
+    connect(oldStorage, "s1", TransportType.WEBSOCKET);
+    oldStorage.join("room", "s1");
+    oldStorage.saveSnapshot(file);
+
+    // When
+    SessionStorage newStorage = new SessionStorage(8080);
+    newStorage.loadSnapshot(file, 0);
+    ManagedSession newSession = connect(newStorage, "s1", TransportType.WEBSOCKET);
+
+    // Then
+    assertFalse(newSession.isResumedSession());
+    assertTrue(newStorage.getRoom("room").isEmpty());
+    assertEquals(0, newStorage.getResumableSessionsCount());
+  }
+
+  private ManagedSession connect(SessionStorage sessionStorage, String sessionId, TransportType transportType)
+      throws Exception {
+    ConnectPacket connectPacket = new ConnectPacket(sessionId);
+    connectPacket.setTransportType(transportType);
+    EmbeddedChannel channel = new EmbeddedChannel(new PacketEncoderHandler());
+    ManagedSession session = sessionStorage.getSession(connectPacket, channel, disconnectHandler);
+    session.connect(channel);
+    channel.finishAndReleaseAll();
+    return session;
+  }
+
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import io.scalecube.socketio.Session;
+import io.scalecube.socketio.TransportType;
+import io.scalecube.socketio.packets.ConnectPacket;
+import io.scalecube.socketio.pipeline.PacketEncoderHandler;
+import io.scalecube.socketio.reactive.SessionMessagePublisher;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.CharsetUtil;
+import io.netty.util.HashedWheelTimer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+public class SessionUpgradeTest {
+
+  private HashedWheelTimer timer;
+  private SessionStorage sessionStorage;
+
+  private final SessionDisconnectHandler disconnectHandler = new SessionDisconnectHandler() {
+    @Override
+    public void onSessionDisconnect(Session session) {
+      sessionStorage.removeSession(session.getSessionId());
+    }
+  };
+
+  @Before
+  public void setUp() throws Exception {
+    timer = new HashedWheelTimer();
+    SocketIOHeartbeatScheduler.setHashedWheelTimer(timer);
+    SocketIOHeartbeatScheduler.setHeartbeatInterval(25);
+    SocketIOHeartbeatScheduler.setHeartbeatTimeout(60);
+    sessionStorage = new SessionStorage(8080);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    timer.stop();
+  }
+
+  @Test
+  public void testUpgradeKeepsPendingPacketsAndRooms() throws Exception {
+    // Given
+    ManagedSession pollingSession = connect(TransportType.XHR_POLLING);
+    sessionStorage.join("room", "s1");
+    pollingSession.send(Unpooled.copiedBuffer("1", CharsetUtil.UTF_8));
+
+    // When
+    EmbeddedChannel channel = new EmbeddedChannel(new PacketEncoderHandler());
+    ManagedSession webSocketSession = sessionStorage.getSession(newConnectPacket(TransportType.WEBSOCKET), channel,
+        disconnectHandler);
+    webSocketSession.connect(channel);
+
+    // Then
+    assertNotSame(pollingSession, webSocketSession);
+    assertEquals(pollingSession, webSocketSession);
+    assertEquals(TransportType.XHR_POLLING, webSocketSession.getUpgradedFromTransportType());
+    assertMessage("1::", channel.readOutbound());
+    assertMessage("3:::1", channel.readOutbound());
+    assertTrue(sessionStorage.getRoom("room").contains("s1"));
+    assertEquals(1, sessionStorage.getSessionsCount());
+    assertEquals(0, sessionStorage.getPollingQueuedPacketsCount());
+    channel.finish();
+  }
+
+  @Test
+  public void testUpgradedSessionForwardsCalls() throws Exception {
+    // Given
+    ManagedSession pollingSession = connect(TransportType.XHR_POLLING);
+    EmbeddedChannel channel = new EmbeddedChannel(new PacketEncoderHandler());
+    ManagedSession webSocketSession = sessionStorage.getSession(newConnectPacket(TransportType.WEBSOCKET), channel,
+        disconnectHandler);
+    webSocketSession.connect(channel);
+    assertMessage("1::", channel.readOutbound());
+
+    // When
+    pollingSession.send(Unpooled.copiedBuffer("2", CharsetUtil.UTF_8));
+    pollingSession.disconnect();
+
+    // Then
+    assertMessage("3:::2", channel.readOutbound());
+    assertMessage("0::", channel.readOutbound());
+    assertEquals(Session.State.DISCONNECTED, pollingSession.getState());
+    assertEquals(0, sessionStorage.getSessionsCount());
+    channel.finish();
+  }
+
+  @Test
+  public void testPublisherSuspendsReadingOfUpgradedChannel() throws Exception {
+    // Given
+    ManagedSession pollingSession = connect(TransportType.XHR_POLLING);
+    SessionMessagePublisher publisher = new SessionMessagePublisher(pollingSession, 2);
+    EmbeddedChannel channel = new EmbeddedChannel(new PacketEncoderHandler());
+    sessionStorage.getSession(newConnectPacket(TransportType.WEBSOCKET), channel, disconnectHandler).connect(channel);
+
+    // When
+    publisher.onMessage(Unpooled.copiedBuffer("a", CharsetUtil.UTF_8));
+    publisher.onMessage(Unpooled.copiedBuffer("b", CharsetUtil.UTF_8));
+
+    // Then
+    assertFalse(channel.config().isAutoRead());
+    publisher.onDisconnect();
+    publisher.subscribe(new Subscriber<ByteBuf>() {
+      @Override
+      public void onSubscribe(Subscription subscription) {
+        subscription.cancel();
+      }
+
+      @Override
+      public void onNext(ByteBuf message) {
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+      }
+
+      @Override
+      public void onComplete() {
+      }
+    });
+    assertTrue(channel.config().isAutoRead());
+    channel.finishAndReleaseAll();
+  }
+
+  private ManagedSession connect(TransportType transportType) throws Exception {
+    EmbeddedChannel channel = new EmbeddedChannel(new PacketEncoderHandler());
+    ManagedSession session = sessionStorage.getSession(newConnectPacket(transportType), channel, disconnectHandler);
+    session.connect(channel);
+    channel.finishAndReleaseAll();
+    return session;
+  }
+
+  private static ConnectPacket newConnectPacket(TransportType transportType) {
+    ConnectPacket connectPacket = new ConnectPacket("s1");
+    connectPacket.setTransportType(transportType);
+    return connectPacket;
+  }
+
+  private static void assertMessage(String expected, Object frame) {
+    assertTrue(frame instanceof TextWebSocketFrame);
+    TextWebSocketFrame textFrame = (TextWebSocketFrame) frame;
+    assertEquals(expected, textFrame.text());
+    textFrame.release();
+  }
+
+}
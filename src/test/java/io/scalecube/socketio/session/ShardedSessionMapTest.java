@@ -0,0 +1,83 @@
+/**
+ * Copyright 2012 Ronen Hamias, Anton Kharenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.scalecube.socketio.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+public class ShardedSessionMapTest {
+
+  @Test
+  public void testParseUuid() {
+    UUID uuid = UUID.randomUUID();
+    String id = uuid.toString();
+    assertTrue(ShardedSessionMap.isUuid(id));
+    assertEquals(uuid.getMostSignificantBits(), ShardedSessionMap.parseMostSigBits(id));
+    assertEquals(uuid.getLeastSignificantBits(), ShardedSessionMap.parseLeastSigBits(id));
+  }
+
+  @Test
+  public void testNonCanonicalIdIsNotUuid() {
+    assertFalse(ShardedSessionMap.isUuid(null));
+    assertFalse(ShardedSessionMap.isUuid("4d4f185e96a7b"));
+    assertFalse(ShardedSessionMap.isUuid(UUID.randomUUID().toString().toUpperCase().replace('-', 'A')));
+    assertFalse(ShardedSessionMap.isUuid("F81D4FAE-7DEC-11D0-A765-00A0C91E6BF6"));
+  }
+
+  @Test
+  public void testPutGetRemove() {
+    ShardedSessionMap map = new ShardedSessionMap(4);
+    Map<String, ManagedSession> expected = new HashMap<>();
+    List<String> ids = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      String id = i % 10 == 0 ? "custom-" + i : UUID.randomUUID().toString();
+      ManagedSession session = newSession(id);
+      assertNull(map.putIfAbsent(id, session));
+      assertSame(session, map.putIfAbsent(id, newSession(id)));
+      expected.put(id, session);
+      ids.add(id);
+    }
+
+    Random random = new Random(42);
+    for (int i = 0; i < 2500; i++) {
+      String id = ids.remove(random.nextInt(ids.size()));
+      assertSame(expected.remove(id), map.remove(id));
+      assertNull(map.remove(id));
+    }
+
+    for (Map.Entry<String, ManagedSession> entry : expected.entrySet()) {
+      assertSame(entry.getValue(), map.get(entry.getKey()));
+    }
+    assertNull(map.get(UUID.randomUUID().toString()));
+    assertEquals(expected.size(), map.values().size());
+  }
+
+  private static ManagedSession newSession(String sessionId) {
+    return new WebSocketSession(new EmbeddedChannel(), sessionId, null, null, null, 8080, null);
+  }
+
+}